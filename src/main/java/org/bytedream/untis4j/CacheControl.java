@@ -0,0 +1,181 @@
+package org.bytedream.untis4j;
+
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Cache directives for the requests of a session, see {@link Session#withCacheControl(CacheControl)}
+ *
+ * <p>Without directives ({@link CacheControl#DEFAULT}) a cached response is returned as long as it isn't expired and is refreshed in the background
+ * when its refresh is due. The directives change this for single calls:
+ * <ul>
+ *     <li>{@link CacheControl#forceRefresh()}: the request is always sent to the server and the cache is updated with the response</li>
+ *     <li>{@link CacheControl#maxStale(Duration)}: a cached response is only returned if its refresh is due for at most the given duration,
+ *     otherwise it's requested from the server first</li>
+ *     <li>{@link CacheControl#onlyIfCached()}: the server is never requested, a {@link CacheMissException} is thrown if the response isn't cached</li>
+ *     <li>{@link CacheControl#noStore()}: the request is sent to the server and the response isn't cached</li>
+ * </ul>
+ * Master data which is needed to decode a response (e.g. the teachers of a timetable) is requested with the default directives,
+ * except for {@code onlyIfCached} and {@code maxStale}, which apply to them as well</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class CacheControl {
+
+    /**
+     * The default cache behaviour
+     */
+    public static final CacheControl DEFAULT = new CacheControl(false, null, false, false);
+
+    private final boolean forceRefresh;
+    private final Duration maxStale;
+    private final boolean onlyIfCached;
+    private final boolean noStore;
+
+    private CacheControl(boolean forceRefresh, Duration maxStale, boolean onlyIfCached, boolean noStore) {
+        this.forceRefresh = forceRefresh;
+        this.maxStale = maxStale;
+        this.onlyIfCached = onlyIfCached;
+        this.noStore = noStore;
+    }
+
+    /**
+     * Returns directives which always send the request to the server and update the cache with the response
+     *
+     * @return the cache directives
+     * @since 1.4
+     */
+    public static CacheControl forceRefresh() {
+        return new CacheControl(true, null, false, false);
+    }
+
+    /**
+     * Returns directives which only return a cached response if its refresh is due for at most {@code maxStale}.
+     * An older response is requested from the server first
+     *
+     * @param maxStale the maximal time a cached response may be overdue for its refresh
+     * @return the cache directives
+     * @since 1.4
+     */
+    public static CacheControl maxStale(Duration maxStale) {
+        if (maxStale.isNegative()) {
+            throw new IllegalArgumentException("maxStale must not be negative");
+        }
+        return new CacheControl(false, maxStale, false, false);
+    }
+
+    /**
+     * Returns directives which never send a request to the server. If a response isn't cached, a {@link CacheMissException} is thrown
+     *
+     * @return the cache directives
+     * @since 1.4
+     */
+    public static CacheControl onlyIfCached() {
+        return new CacheControl(false, null, true, false);
+    }
+
+    /**
+     * Returns directives which send the request to the server and don't cache the response
+     *
+     * @return the cache directives
+     * @since 1.4
+     */
+    public static CacheControl noStore() {
+        return new CacheControl(false, null, false, true);
+    }
+
+    /**
+     * Returns a copy of these directives which never send a request to the server, e.g. {@code CacheControl.maxStale(...).andOnlyIfCached()}
+     * only returns cached responses whose refresh is due for at most the given duration and throws a {@link CacheMissException} otherwise
+     *
+     * @return the cache directives
+     * @since 1.4
+     */
+    public CacheControl andOnlyIfCached() {
+        if (forceRefresh || noStore) {
+            throw new IllegalStateException("onlyIfCached can't be combined with forceRefresh or noStore");
+        }
+        return new CacheControl(false, maxStale, true, false);
+    }
+
+    /**
+     * Returns if the request is always sent to the server
+     *
+     * @return if the request is always sent to the server
+     * @since 1.4
+     */
+    public boolean isForceRefresh() {
+        return forceRefresh;
+    }
+
+    /**
+     * Returns the maximal time a cached response may be overdue for its refresh
+     *
+     * @return the maximal time a cached response may be overdue, or null if it's returned until it expires
+     * @since 1.4
+     */
+    public Duration getMaxStale() {
+        return maxStale;
+    }
+
+    /**
+     * Returns if only cached responses are returned
+     *
+     * @return if only cached responses are returned
+     * @since 1.4
+     */
+    public boolean isOnlyIfCached() {
+        return onlyIfCached;
+    }
+
+    /**
+     * Returns if the response isn't cached
+     *
+     * @return if the response isn't cached
+     * @since 1.4
+     */
+    public boolean isNoStore() {
+        return noStore;
+    }
+
+    /**
+     * Returns the directives for master data which is needed to decode a response
+     *
+     * @return the directives for master data
+     * @since 1.4
+     */
+    CacheControl forDependencies() {
+        return forceRefresh || noStore ? DEFAULT : this;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof CacheControl)) {
+            return false;
+        }
+        CacheControl other = (CacheControl) obj;
+        return forceRefresh == other.forceRefresh && Objects.equals(maxStale, other.maxStale) && onlyIfCached == other.onlyIfCached && noStore == other.noStore;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(forceRefresh, maxStale, onlyIfCached, noStore);
+    }
+
+    @Override
+    public String toString() {
+        HashMap<String, Object> cacheControlAsMap = new HashMap<>();
+
+        cacheControlAsMap.put("forceRefresh", forceRefresh);
+        cacheControlAsMap.put("maxStale", maxStale != null ? maxStale.toString() : null);
+        cacheControlAsMap.put("onlyIfCached", onlyIfCached);
+        cacheControlAsMap.put("noStore", noStore);
+
+        return new JSONObject(cacheControlAsMap).toString();
+    }
+
+}
@@ -0,0 +1,191 @@
+package org.bytedream.untis4j;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Expiry policy of refreshed responses, which depends on how likely a response changes.
+ *
+ * <p>Every request is sorted into a {@link Kind} by its method and the date range of its params. A response for past dates
+ * is kept and refreshed much longer than one for today, master data longer than timetables.
+ * Additionally, the refresh interval of a response doubles with every refresh which didn't change it (up to eight times the base interval),
+ * so responses which rarely change get requested less often. A changed response starts with the base interval again.
+ * With a grace period (see {@link ResponseCache#setStaleIfError(Duration)}) expired responses are kept that much longer,
+ * to be returned if the server can't be reached</p>
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+class CacheExpiry implements Expiry<RequestKey, Response> {
+
+    /**
+     * The shortest refresh interval of all kinds. Responses are checked this often, if their refresh is due
+     */
+    static final Duration minimalRefreshInterval = Duration.ofMinutes(1);
+
+    private static final int maxRefreshDoublings = 3;
+    private static final byte[] startDateParam = "\"startDate\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] endDateParam = "\"endDate\":".getBytes(StandardCharsets.UTF_8);
+
+    private final Duration gracePeriod;
+
+    /**
+     * Initialize the {@link CacheExpiry} class
+     *
+     * @param gracePeriod the time expired responses are kept additionally
+     * @since 1.4
+     */
+    CacheExpiry(Duration gracePeriod) {
+        this.gracePeriod = gracePeriod;
+    }
+
+    /**
+     * Returns the time after which {@code response} should be refreshed, counted from the time the server last returned its content
+     *
+     * @param request  the request of the response
+     * @param response the response
+     * @return the refresh interval
+     * @since 1.4
+     */
+    Duration refreshInterval(RequestKey request, Response response) {
+        Kind kind = Kind.of(request);
+        Duration interval = kind.refreshInterval;
+        if (kind != Kind.IMPORT_TIME) {
+            interval = interval.multipliedBy(1L << Math.min(response.getUnchangedRefreshes(), maxRefreshDoublings));
+        }
+        // a refresh must be due before the response expires, otherwise it would never happen
+        Duration latest = kind.timeToLive.dividedBy(2);
+        return interval.compareTo(latest) < 0 ? interval : latest;
+    }
+
+    /**
+     * Returns if {@code response} is older than the time to live of its kind. Such a response is only kept because of the grace period
+     *
+     * @param request  the request of the response
+     * @param response the response
+     * @return if the response is expired
+     * @since 1.4
+     */
+    boolean isExpired(RequestKey request, Response response) {
+        return System.nanoTime() - response.getConfirmedAt() >= Kind.of(request).timeToLive.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(RequestKey request, Response response, long currentTime) {
+        return remainingTimeToLive(request, response);
+    }
+
+    @Override
+    public long expireAfterUpdate(RequestKey request, Response response, long currentTime, long currentDuration) {
+        // an unchanged refresh keeps the response instance, its time to live starts again when the server confirmed its content
+        return remainingTimeToLive(request, response);
+    }
+
+    @Override
+    public long expireAfterRead(RequestKey request, Response response, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+
+    private long remainingTimeToLive(RequestKey request, Response response) {
+        long age = System.nanoTime() - response.getConfirmedAt();
+        return Math.max(0, Kind.of(request).timeToLive.toNanos() + gracePeriod.toNanos() - age);
+    }
+
+    /**
+     * How likely a response changes
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    enum Kind {
+        /**
+         * The latest import time, which tells if anything has changed at all
+         */
+        IMPORT_TIME(Duration.ofMinutes(1), Duration.ofMinutes(10)),
+        /**
+         * Requests without a date range, like teachers or rooms
+         */
+        MASTER_DATA(Duration.ofMinutes(10), Duration.ofHours(2)),
+        /**
+         * Requests for a date range which contains today
+         */
+        CURRENT(Duration.ofMinutes(1), Duration.ofMinutes(10)),
+        /**
+         * Requests for a date range which lies completely in the future
+         */
+        FUTURE(Duration.ofMinutes(5), Duration.ofHours(1)),
+        /**
+         * Requests for a date range which lies completely in the past
+         */
+        PAST(Duration.ofHours(6), Duration.ofDays(1));
+
+        private final Duration refreshInterval;
+        private final Duration timeToLive;
+
+        Kind(Duration refreshInterval, Duration timeToLive) {
+            this.refreshInterval = refreshInterval;
+            this.timeToLive = timeToLive;
+        }
+
+        /**
+         * Returns the kind of {@code request}
+         *
+         * @param request the request
+         * @return the kind of the request
+         * @since 1.4
+         */
+        static Kind of(RequestKey request) {
+            if (UntisUtils.Method.GETLATESTIMPORTTIME.getMethod().equals(request.getMethod())) {
+                return IMPORT_TIME;
+            }
+            LocalDate start = findDate(request.getRequest(), startDateParam);
+            LocalDate end = findDate(request.getRequest(), endDateParam);
+            if (start == null && end == null) {
+                return MASTER_DATA;
+            }
+            LocalDate today = LocalDate.now();
+            if (end != null && end.isBefore(today)) {
+                return PAST;
+            } else if (start != null && start.isAfter(today)) {
+                return FUTURE;
+            }
+            return CURRENT;
+        }
+
+        /**
+         * Returns the date (formatted as {@code yyyyMMdd}, as string or number) of the first {@code param} in the encoded request
+         */
+        private static LocalDate findDate(byte[] request, byte[] param) {
+            search:
+            for (int i = 0; i <= request.length - param.length; i++) {
+                for (int j = 0; j < param.length; j++) {
+                    if (request[i + j] != param[j]) {
+                        continue search;
+                    }
+                }
+                int position = i + param.length;
+                if (position < request.length && request[position] == '"') {
+                    position++;
+                }
+                int date = 0;
+                for (int digits = 0; digits < 8; digits++, position++) {
+                    if (position >= request.length || request[position] < '0' || request[position] > '9') {
+                        return null;
+                    }
+                    date = date * 10 + request[position] - '0';
+                }
+                try {
+                    return LocalDate.of(date / 10000, date / 100 % 100, date % 100);
+                } catch (DateTimeException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+}
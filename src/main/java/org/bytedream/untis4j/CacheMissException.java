@@ -0,0 +1,17 @@
+package org.bytedream.untis4j;
+
+import java.io.IOException;
+
+/**
+ * Exception if a response is requested with {@link CacheControl#onlyIfCached()} but isn't cached
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class CacheMissException extends IOException {
+
+    public CacheMissException(String message) {
+        super(message);
+    }
+
+}
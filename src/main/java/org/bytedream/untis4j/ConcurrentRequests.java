@@ -0,0 +1,241 @@
+package org.bytedream.untis4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Support class to send many requests at once.
+ *
+ * <p>On Java 21+ every request runs on its own virtual thread, on older versions on a pool of at most {@link ConcurrentRequests#maxPoolThreads} threads,
+ * which is shared by all calls. All requests are scoped to the call: if one fails, the others get cancelled and no request outlives the call</p>
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+class ConcurrentRequests {
+
+    /**
+     * The maximal number of threads of the shared pool, if no virtual threads are available
+     */
+    static final int maxPoolThreads = 32;
+
+    private static final Method newVirtualThreadPerTaskExecutor = findVirtualThreadExecutor();
+    private static final ExecutorService executor = newExecutor(maxPoolThreads);
+    // if the current thread is running a request of the shared pool
+    private static final ThreadLocal<Boolean> runningRequest = new ThreadLocal<>();
+
+    /**
+     * Sends a request for every key and returns the results in the order of the keys.
+     *
+     * <p>If a request fails, all other requests are cancelled (running ones get interrupted) and the exception is thrown.
+     * Before this method returns or throws, it waits until no request of the call is running anymore, at most for the
+     * connect and read timeout (see {@link RequestManager#setTimeouts(Duration, Duration)}) or until the calling thread is interrupted</p>
+     *
+     * @param keys                  keys to send a request for
+     * @param maxConcurrentRequests maximal number of requests that are sent at the same time
+     * @param request               the request for one key
+     * @param <K>                   the key type
+     * @param <V>                   the result type
+     * @return the result of every key
+     * @throws IOException if an IO Exception occurs in any of the requests
+     * @since 1.4
+     */
+    static <K, V> Map<K, V> invokeAll(Collection<K> keys, int maxConcurrentRequests, Request<K, V> request) throws IOException {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("At least one concurrent request is required");
+        }
+
+        Map<K, V> results = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return results;
+        }
+
+        if (newVirtualThreadPerTaskExecutor == null && runningRequest.get() != null) {
+            // a request which sends requests itself would wait for threads of the same pool, which may all be waiting as well
+            for (K key : keys) {
+                results.put(key, request.send(key));
+            }
+            return results;
+        }
+
+        Scope scope = new Scope();
+        Semaphore permits = new Semaphore(maxConcurrentRequests);
+        List<Future<V>> futures = new ArrayList<>(keys.size());
+        CompletionService<V> completionService = new ExecutorCompletionService<>(executor);
+        int completed = 0;
+
+        try {
+            for (K key : keys) {
+                // the permit is taken before the request is submitted, so waiting requests don't block threads of the shared pool
+                permits.acquire();
+                for (Future<V> done = completionService.poll(); done != null; done = completionService.poll()) {
+                    done.get();
+                    completed++;
+                }
+                futures.add(completionService.submit(() -> {
+                    try {
+                        if (!scope.enter()) {
+                            throw new CancellationException("The call has ended");
+                        }
+                        runningRequest.set(true);
+                        try {
+                            return request.send(key);
+                        } finally {
+                            runningRequest.remove();
+                            scope.exit();
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (; completed < futures.size(); completed++) {
+                completionService.take().get();
+            }
+
+            int i = 0;
+            for (K key : keys) {
+                results.put(key, futures.get(i++).get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the requests");
+        } finally {
+            scope.close();
+            futures.forEach(future -> future.cancel(true));
+            scope.awaitEnd();
+        }
+    }
+
+    /**
+     * Returns an executor which uses virtual threads if the runtime supports them, else a thread pool with {@code threads} threads
+     *
+     * @param threads number of threads if no virtual threads are available
+     * @return the executor
+     * @since 1.4
+     */
+    static ExecutorService newExecutor(int threads) {
+        if (newVirtualThreadPerTaskExecutor != null) {
+            try {
+                return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+            } catch (ReflectiveOperationException ignore) {
+            }
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "untis4j-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // idle threads end, so an unused pool costs nothing
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which is only available since Java 21
+     *
+     * @return the method or {@code null} if it isn't available
+     * @since 1.4
+     */
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The requests of one call, which may only start as long as the call is running
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private static class Scope {
+
+        private int running = 0;
+        private boolean closed = false;
+
+        /**
+         * Registers a starting request
+         *
+         * @return false if the call has ended and the request must not start
+         */
+        private synchronized boolean enter() {
+            if (closed) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        private synchronized void exit() {
+            if (--running == 0) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Prevents requests which haven't started yet from starting
+         */
+        private synchronized void close() {
+            closed = true;
+        }
+
+        /**
+         * Waits until all running requests have ended, at most for the connect and read timeout.
+         * An interrupt stops the waiting, the interrupt status is kept
+         */
+        private synchronized void awaitEnd() {
+            Duration connectTimeout = RequestManager.getConnectTimeout();
+            Duration readTimeout = RequestManager.getReadTimeout();
+            // a zero timeout means no timeout
+            boolean bounded = !connectTimeout.isZero() && !readTimeout.isZero();
+            long deadline = System.nanoTime() + connectTimeout.plus(readTimeout).toNanos();
+            try {
+                while (running > 0) {
+                    if (!bounded) {
+                        wait();
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A single request of {@link ConcurrentRequests#invokeAll(Collection, int, Request)}
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    interface Request<K, V> {
+
+        V send(K key) throws IOException;
+
+    }
+}
@@ -0,0 +1,221 @@
+package org.bytedream.untis4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to open connections to the server before they are needed.
+ *
+ * <p>Resolves the server address and opens keep-alive connections in parallel, so the first requests don't have to wait for DNS, TCP and TLS.
+ * Connections are reused through the keep-alive cache of {@link HttpURLConnection}, which by default keeps at most 5 idle connections per server
+ * (system property {@code http.maxConnections}).
+ * All warmers send their pings from one shared pool, whose threads are reused and end when they are idle.
+ * Pings use the timeouts of {@link RequestManager#setTimeouts(Duration, Duration)} and aren't sent while the server is unavailable (see {@link UpstreamHealth})</p>
+ *
+ * @version 1.2
+ * @since 1.4
+ */
+class ConnectionWarmer {
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "untis4j-keep-alive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ExecutorService pinger = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "untis4j-ping");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final byte[] ping = RequestEncoder.encode(UntisUtils.Method.GETLATESTIMPORTTIME.getMethod(), new HashMap<>());
+
+    private final URL url;
+    private final String userAgent;
+    private final int connections;
+    private final UpstreamHealth upstreamHealth;
+    private final AtomicInteger runningPings = new AtomicInteger();
+    private volatile long lastUsed = System.nanoTime();
+    private volatile long lastPinged = System.nanoTime();
+
+    /**
+     * Initialize the {@link ConnectionWarmer} class
+     *
+     * @param url         url of the json rpc endpoint
+     * @param userAgent   the user agent used for the api
+     * @param connections    number of connections that should be opened
+     * @param upstreamHealth health of the server, no pings are sent while it's unavailable
+     * @throws IOException if the url is malformed
+     * @since 1.4
+     */
+    ConnectionWarmer(String url, String userAgent, int connections, UpstreamHealth upstreamHealth) throws IOException {
+        if (connections < 1) {
+            throw new IllegalArgumentException("At least one connection is required");
+        }
+        this.url = new URL(url);
+        this.userAgent = userAgent;
+        this.connections = connections;
+        this.upstreamHealth = upstreamHealth;
+    }
+
+    /**
+     * Resolves the server address and opens all connections in parallel. Nothing is done if the server is unavailable
+     *
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    void warmUp() throws IOException {
+        if (!upstreamHealth.isAvailable()) {
+            return;
+        }
+        InetAddress.getAllByName(url.getHost());
+
+        // all pings must run at the same time, otherwise a finished ping's connection would be reused instead of opening a new one
+        List<Callable<Void>> pings = Collections.nCopies(connections, this::ping);
+        try {
+            for (Future<Void> result : pinger.invokeAll(pings)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while warming up the connections");
+        } finally {
+            lastPinged = System.nanoTime();
+        }
+    }
+
+    /**
+     * Pings all connections every time they were idle for {@code interval}.
+     * The pings stop when {@code owner} is garbage collected or no request was sent for {@code idleLimit}
+     *
+     * @param owner     the object which uses the connections, it's only referenced weakly
+     * @param interval  time after which idle connections are pinged
+     * @param idleLimit time without requests after which the pings stop
+     * @return the scheduled pings, cancel them to stop
+     * @since 1.4
+     */
+    ScheduledFuture<?> keepAlive(Object owner, Duration interval, Duration idleLimit) {
+        KeepAlive keepAlive = new KeepAlive(owner, interval.toNanos(), idleLimit.toNanos());
+        // checking more often than the interval ensures that no connection stays idle much longer than the interval
+        long checkNanos = Math.max(interval.toNanos() / 4, 1);
+        keepAlive.future = scheduler.scheduleWithFixedDelay(keepAlive, checkNanos, checkNanos, TimeUnit.NANOSECONDS);
+        return keepAlive.future;
+    }
+
+    /**
+     * Marks the connections as used, so they don't get pinged until they are idle again
+     *
+     * @since 1.4
+     */
+    void used() {
+        lastUsed = System.nanoTime();
+    }
+
+    /**
+     * Scheduled check which pings the connections if they are idle and stops itself if they aren't needed anymore
+     */
+    private class KeepAlive implements Runnable {
+
+        private final WeakReference<Object> owner;
+        private final long intervalNanos;
+        private final long idleLimitNanos;
+        private volatile ScheduledFuture<?> future;
+
+        private KeepAlive(Object owner, long intervalNanos, long idleLimitNanos) {
+            this.owner = new WeakReference<>(owner);
+            this.intervalNanos = intervalNanos;
+            this.idleLimitNanos = idleLimitNanos;
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            if (owner.get() == null || now - lastUsed >= idleLimitNanos) {
+                ScheduledFuture<?> future = this.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+            } else if (now - Math.max(lastUsed, lastPinged) >= intervalNanos && upstreamHealth.isAvailable()) {
+                pingAll();
+            }
+        }
+    }
+
+    /**
+     * Pings all connections in the background. The scheduler, which is shared by all warmers, never waits for a ping,
+     * and a warmer whose previous pings are still running is skipped
+     */
+    private void pingAll() {
+        if (!runningPings.compareAndSet(0, connections)) {
+            return;
+        }
+        for (int i = 0; i < connections; i++) {
+            pinger.execute(() -> {
+                try {
+                    ping();
+                } catch (IOException ignore) {
+                } finally {
+                    if (runningPings.decrementAndGet() == 0) {
+                        lastPinged = System.nanoTime();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends a lightweight, unauthenticated request and reads the whole response, so the connection can go back to the keep-alive cache
+     *
+     * @return nothing
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    private Void ping() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setConnectTimeout((int) Math.min(Integer.MAX_VALUE, RequestManager.getConnectTimeout().toMillis()));
+        connection.setReadTimeout((int) Math.min(Integer.MAX_VALUE, RequestManager.getReadTimeout().toMillis()));
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(ping.length);
+        connection.setRequestProperty("User-Agent", userAgent);
+        connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(ping);
+        }
+
+        InputStream input = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (input != null) {
+            try (input) {
+                input.readAllBytes();
+            }
+        }
+        return null;
+    }
+}
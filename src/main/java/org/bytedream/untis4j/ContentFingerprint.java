@@ -0,0 +1,223 @@
+package org.bytedream.untis4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fast, non-cryptographic 64 bit fingerprint (xxHash64) of response bodies.
+ *
+ * <p>The fingerprint is calculated while the body is read, so it needs no extra pass over the data.
+ * It is used to recognize refreshed responses which are identical to the cached ones</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class ContentFingerprint {
+
+    private static final long prime1 = 0x9E3779B185EBCA87L;
+    private static final long prime2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long prime3 = 0x165667B19E3779F9L;
+    private static final long prime4 = 0x85EBCA77C2B2AE63L;
+    private static final long prime5 = 0x27D4EB2F165667C5L;
+
+    private final byte[] buffer = new byte[32];
+    private int buffered = 0;
+    private long length = 0;
+    private long v1 = prime1 + prime2;
+    private long v2 = prime2;
+    private long v3 = 0;
+    private long v4 = -prime1;
+
+    /**
+     * Returns the fingerprint of {@code bytes}
+     *
+     * @param bytes the bytes
+     * @return the fingerprint
+     * @since 1.4
+     */
+    static long of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the fingerprint of {@code count} bytes of {@code bytes}, starting at {@code offset}
+     *
+     * @param bytes  the bytes
+     * @param offset the offset of the first byte
+     * @param count  the number of bytes
+     * @return the fingerprint
+     * @since 1.4
+     */
+    static long of(byte[] bytes, int offset, int count) {
+        ContentFingerprint fingerprint = new ContentFingerprint();
+        fingerprint.update(bytes, offset, count);
+        return fingerprint.getValue();
+    }
+
+    /**
+     * Adds bytes to the fingerprint
+     *
+     * @param bytes  the bytes
+     * @param offset the offset of the first byte to add
+     * @param count  the number of bytes to add
+     * @since 1.4
+     */
+    void update(byte[] bytes, int offset, int count) {
+        length += count;
+        int end = offset + count;
+
+        if (buffered > 0) {
+            int fill = Math.min(32 - buffered, count);
+            System.arraycopy(bytes, offset, buffer, buffered, fill);
+            buffered += fill;
+            offset += fill;
+            if (buffered < 32) {
+                return;
+            }
+            stripe(buffer, 0);
+            buffered = 0;
+        }
+
+        for (; offset + 32 <= end; offset += 32) {
+            stripe(bytes, offset);
+        }
+
+        System.arraycopy(bytes, offset, buffer, 0, end - offset);
+        buffered = end - offset;
+    }
+
+    /**
+     * Returns the fingerprint of all bytes added so far
+     *
+     * @return the fingerprint
+     * @since 1.4
+     */
+    long getValue() {
+        long hash;
+        if (length >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = prime5;
+        }
+        hash += length;
+
+        int offset = 0;
+        for (; offset + 8 <= buffered; offset += 8) {
+            hash ^= round(0, getLong(buffer, offset));
+            hash = Long.rotateLeft(hash, 27) * prime1 + prime4;
+        }
+        if (offset + 4 <= buffered) {
+            hash ^= (getInt(buffer, offset) & 0xFFFFFFFFL) * prime1;
+            hash = Long.rotateLeft(hash, 23) * prime2 + prime3;
+            offset += 4;
+        }
+        for (; offset < buffered; offset++) {
+            hash ^= (buffer[offset] & 0xFF) * prime5;
+            hash = Long.rotateLeft(hash, 11) * prime1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= prime2;
+        hash ^= hash >>> 29;
+        hash *= prime3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void stripe(byte[] bytes, int offset) {
+        v1 = round(v1, getLong(bytes, offset));
+        v2 = round(v2, getLong(bytes, offset + 8));
+        v3 = round(v3, getLong(bytes, offset + 16));
+        v4 = round(v4, getLong(bytes, offset + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * prime2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * prime1;
+    }
+
+    private static long merge(long hash, long accumulator) {
+        hash ^= round(0, accumulator);
+        return hash * prime1 + prime4;
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        return (getInt(bytes, offset) & 0xFFFFFFFFL) | ((long) getInt(bytes, offset + 4) << 32);
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Input stream which adds every read byte to a {@link ContentFingerprint}
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    static class FingerprintInputStream extends FilterInputStream {
+
+        private final ContentFingerprint fingerprint = new ContentFingerprint();
+        private final byte[] single = new byte[1];
+
+        FingerprintInputStream(InputStream input) {
+            super(input);
+        }
+
+        /**
+         * Returns the fingerprint of all bytes read so far
+         *
+         * @return the fingerprint
+         * @since 1.4
+         */
+        long getFingerprint() {
+            return fingerprint.getValue();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                single[0] = (byte) b;
+                fingerprint.update(single, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                fingerprint.update(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes are part of the fingerprint too, so they have to be read
+            byte[] skipped = new byte[(int) Math.min(n, 8192)];
+            long total = 0;
+            while (total < n) {
+                int read = read(skipped, 0, (int) Math.min(n - total, skipped.length));
+                if (read <= 0) {
+                    break;
+                }
+                total += read;
+            }
+            return total;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.bytedream.untis4j;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Class to reference a single element (class, teacher, subject, room, ...) by its type and id
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class ElementRef {
+
+    private final UntisUtils.ElementType elementType;
+    private final int id;
+
+    /**
+     * Initialize the {@link ElementRef} class
+     *
+     * @param elementType type of the element
+     * @param id          id of the element
+     * @since 1.4
+     */
+    public ElementRef(UntisUtils.ElementType elementType, int id) {
+        this.elementType = Objects.requireNonNull(elementType);
+        this.id = id;
+    }
+
+    /**
+     * Returns a new {@link ElementRef}
+     *
+     * @param elementType type of the element
+     * @param id          id of the element
+     * @return the element reference
+     * @since 1.4
+     */
+    public static ElementRef of(UntisUtils.ElementType elementType, int id) {
+        return new ElementRef(elementType, id);
+    }
+
+    /**
+     * Returns the type of the element
+     *
+     * @return the type of the element
+     * @since 1.4
+     */
+    public UntisUtils.ElementType getElementType() {
+        return elementType;
+    }
+
+    /**
+     * Returns the id of the element
+     *
+     * @return the id of the element
+     * @since 1.4
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ElementRef)) return false;
+        ElementRef elementRef = (ElementRef) obj;
+        return elementType == elementRef.elementType && id == elementRef.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * elementType.hashCode() + id;
+    }
+
+    /**
+     * Returns a json parsed string with all information
+     *
+     * @return a json parsed string with all information
+     * @since 1.4
+     */
+    @Override
+    public String toString() {
+        HashMap<String, Object> elementRefAsMap = new HashMap<>();
+
+        elementRefAsMap.put("elementType", elementType);
+        elementRefAsMap.put("id", id);
+
+        return new JSONObject(elementRefAsMap).toString();
+    }
+}
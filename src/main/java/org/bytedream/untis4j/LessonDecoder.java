@@ -0,0 +1,230 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonArray;
+import org.bytedream.untis4j.json.JsonObject;
+import org.bytedream.untis4j.responseObjects.Classes;
+import org.bytedream.untis4j.responseObjects.Rooms;
+import org.bytedream.untis4j.responseObjects.Subjects;
+import org.bytedream.untis4j.responseObjects.Teachers;
+import org.bytedream.untis4j.responseObjects.TimeUnits;
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponseObjects.NILResponseObject;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.bytedream.untis4j.TimetableQuery.Field.*;
+
+/**
+ * Decodes the lessons of a {@code getTimetable} response
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+class LessonDecoder {
+
+    private final Set<TimetableQuery.Field> fields;
+    private final Classes allClasses;
+    private final Teachers allTeachers;
+    private final Subjects allSubjects;
+    private final Rooms allRooms;
+    private final TimeUnits timeUnits;
+    private volatile Map<Integer, Classes.ClassObject> classes;
+    private volatile Map<Integer, Teachers.TeacherObject> teachers;
+    private volatile Map<Integer, Subjects.SubjectObject> subjects;
+    private volatile Map<Integer, Rooms.RoomObject> rooms;
+
+    /**
+     * Initialize the {@link LessonDecoder} class
+     *
+     * @param fields    the fields which should be decoded, all others are skipped
+     * @param classes   all classes, or null if they couldn't be requested
+     * @param teachers  all teachers, or null if they couldn't be requested
+     * @param subjects  all subjects, or null if they couldn't be requested
+     * @param rooms     all rooms, or null if they couldn't be requested
+     * @param timeUnits the time units of the timegrid, or null if no time units are needed
+     * @since 1.4
+     */
+    LessonDecoder(Set<TimetableQuery.Field> fields, Classes classes, Teachers teachers, Subjects subjects, Rooms rooms, TimeUnits timeUnits) {
+        this.fields = fields;
+        this.allClasses = classes;
+        this.allTeachers = teachers;
+        this.allSubjects = subjects;
+        this.allRooms = rooms;
+        this.timeUnits = timeUnits;
+    }
+
+    /**
+     * Returns everything the decoded lessons depend on besides the response, see {@link Response#decode(ResponseConsumer, Object...)}
+     *
+     * @return the inputs of the decoder
+     * @since 1.4
+     */
+    Object[] getInputs() {
+        return new Object[]{fields, allClasses, allTeachers, allSubjects, allRooms, timeUnits};
+    }
+
+    /**
+     * Indexes the classes, teachers, subjects and rooms by their id, if it isn't done yet.
+     * The index is only built when the first lesson is decoded, so a decoder whose result is already known costs nothing
+     */
+    private void index() {
+        if (classes == null && allClasses != null) classes = byId(allClasses);
+        if (teachers == null && allTeachers != null) teachers = byId(allTeachers);
+        if (subjects == null && allSubjects != null) subjects = byId(allSubjects);
+        if (rooms == null && allRooms != null) rooms = byId(allRooms);
+    }
+
+    private static <E extends NILResponseObject> Map<Integer, E> byId(List<E> elements) {
+        if (elements == null) {
+            return null;
+        }
+        Map<Integer, E> byId = new HashMap<>();
+        // the first element wins, like it does in findById
+        for (E element : elements) {
+            byId.putIfAbsent(element.getId(), element);
+        }
+        return byId;
+    }
+
+    /**
+     * Decodes all lessons of {@code lessons}
+     *
+     * @param lessons the {@code result} array of the response
+     * @return the timetable with all decoded lessons
+     * @since 1.4
+     */
+    Timetable decodeAll(JsonArray lessons) {
+        Timetable timetable = new Timetable();
+        for (int i = 0; i < lessons.length(); i++) {
+            timetable.add(decode(lessons.getJsonObject(i)));
+        }
+        return timetable;
+    }
+
+    /**
+     * Creates a lazy timetable which decodes the lessons of {@code lessons} on first access
+     *
+     * @param lessons the {@code result} array of the response
+     * @return the lazy timetable
+     * @since 1.4
+     */
+    Timetable decodeLazy(JsonArray lessons) {
+        return Timetable.lazy(new Timetable.LessonSource() {
+            @Override
+            public int size() {
+                return lessons.length();
+            }
+
+            @Override
+            public LocalDate getDate(int index) {
+                return date(lessons.getJsonObject(index).getInt("date"));
+            }
+
+            @Override
+            public Timetable.Lesson decode(int index) {
+                return LessonDecoder.this.decode(lessons.getJsonObject(index));
+            }
+        });
+    }
+
+    /**
+     * Decodes a single lesson
+     *
+     * @param lesson the lesson object of the response
+     * @return the decoded lesson
+     * @since 1.4
+     */
+    Timetable.Lesson decode(JsonObject lesson) {
+        index();
+        Classes classes = new Classes();
+        Classes originalClasses = new Classes();
+        Teachers teachers = new Teachers();
+        Teachers originalTeachers = new Teachers();
+        Subjects subjects = new Subjects();
+        Subjects originalSubjects = new Subjects();
+        Rooms rooms = new Rooms();
+        Rooms originalRooms = new Rooms();
+
+        // some schools haven't specified their rooms or teachers
+        addElements(lesson, "kl", this.classes, fields.contains(CLASSES) ? classes : null, fields.contains(ORIGINAL_CLASSES) ? originalClasses : null);
+        addElements(lesson, "te", this.teachers, fields.contains(TEACHERS) ? teachers : null, fields.contains(ORIGINAL_TEACHERS) ? originalTeachers : null);
+        addElements(lesson, "su", this.subjects, fields.contains(SUBJECTS) ? subjects : null, fields.contains(ORIGINAL_SUBJECTS) ? originalSubjects : null);
+        addElements(lesson, "ro", this.rooms, fields.contains(ROOMS) ? rooms : null, fields.contains(ORIGINAL_ROOMS) ? originalRooms : null);
+
+        LocalTime startTime = fields.contains(START_TIME) || fields.contains(TIME_UNIT) ? time(lesson.getInt("startTime")) : null;
+
+        UntisUtils.LessonCode code = null;
+        if (fields.contains(CODE)) {
+            code = lesson.has("code") ? UntisUtils.LessonCode.valueOf(lesson.getString("code").toUpperCase()) : UntisUtils.LessonCode.REGULAR;
+        }
+
+        return new Timetable.Lesson(
+                fields.contains(DATE) ? date(lesson.getInt("date")) : null,
+                fields.contains(START_TIME) ? startTime : null,
+                fields.contains(END_TIME) ? time(lesson.getInt("endTime")) : null,
+                fields.contains(TIME_UNIT) ? timeUnits.findByStartTime(startTime) : null,
+                classes,
+                originalClasses,
+                teachers,
+                originalTeachers,
+                rooms,
+                originalRooms,
+                subjects,
+                originalSubjects,
+                code,
+                string(lesson, ACTIVITY_TYPE, "activityType"),
+                string(lesson, INFO, "info"),
+                string(lesson, SUBST_TEXT, "substText"),
+                string(lesson, LS_TEXT, "lstext"),
+                fields.contains(LS_NUMBER) && lesson.has("lsnumber") ? lesson.getInt("lsnumber") : null,
+                string(lesson, STUDENT_GROUP, "sg")
+        );
+    }
+
+    private String string(JsonObject lesson, TimetableQuery.Field field, String key) {
+        return fields.contains(field) && lesson.has(key) ? lesson.getString(key) : null;
+    }
+
+    /**
+     * Adds the elements of the {@code key} array of {@code lesson} to {@code elements} and their original elements to
+     * {@code originalElements}. A {@code null} target list is skipped, if both are {@code null} the array isn't touched at all
+     */
+    private static <E> void addElements(JsonObject lesson, String key, Map<Integer, E> all, List<E> elements, List<E> originalElements) {
+        if (all == null || (elements == null && originalElements == null) || !lesson.has(key)) {
+            return;
+        }
+        JsonArray array = lesson.getJsonArray(key);
+        for (int i = 0; i < array.length(); i++) {
+            JsonObject element = array.getJsonObject(i);
+            if (elements != null) {
+                E found = all.get(element.getInt("id"));
+                if (found != null) {
+                    elements.add(found);
+                }
+            }
+            if (originalElements != null && element.has("orgid")) {
+                originalElements.add(all.get(element.getInt("orgid")));
+            }
+        }
+    }
+
+    /**
+     * Converts a date in the {@code yyyyMMdd} format, sent as number, to a {@link LocalDate}
+     */
+    private static LocalDate date(int date) {
+        return LocalDate.of(date / 10000, date / 100 % 100, date % 100);
+    }
+
+    /**
+     * Converts a time in the {@code Hmm} format, sent as number, to a {@link LocalTime}
+     */
+    private static LocalTime time(int time) {
+        return LocalTime.of(time / 100, time % 100);
+    }
+
+}
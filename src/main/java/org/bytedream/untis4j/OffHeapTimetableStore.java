@@ -0,0 +1,517 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonArray;
+import org.bytedream.untis4j.json.JsonObject;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Off-heap store for the lessons of cached {@code getTimetable} responses.
+ *
+ * <p>The lessons are written in a compact binary layout into direct {@link ByteBuffer} slabs, so hundreds of thousands of cached lessons
+ * don't live on the java heap. The slabs are filled one after another, if all slabs are full the oldest one is cleared and every
+ * response in it is evicted. Responses are stored by their {@link Response#getFingerprint() fingerprint}, identical responses
+ * (e.g. of different users) are only stored once. A primitive open addressing hash table maps the fingerprints to their location.
+ *
+ * <p>A stored response is replaced by a small {@link Response} whose {@code result} is a view on the slab. Every lesson of the view is decoded
+ * on demand when it's accessed. If the slab of the view was cleared in the meantime, an {@link EvictedException} is thrown</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class OffHeapTimetableStore {
+
+    private static final int maxSlabs = 1 << 15;
+    private static final int minSlabs = 4;
+    private static final long preferredSlabSize = 32 << 20;
+
+    private static final byte nullValue = 0;
+    private static final byte falseValue = 1;
+    private static final byte trueValue = 2;
+    private static final byte intValue = 3;
+    private static final byte doubleValue = 4;
+    private static final byte bigIntegerValue = 5;
+    private static final byte stringValue = 6;
+    private static final byte objectValue = 7;
+    private static final byte arrayValue = 8;
+
+    private final ByteBuffer[] slabs;
+    private final int slabSize;
+    private final AtomicIntegerArray generations;
+    private int currentSlab = 0;
+    private int position = 0;
+    private long[] fingerprints = new long[64];
+    private long[] locations = new long[64];
+    private int stored = 0;
+
+    /**
+     * Initialize the {@link OffHeapTimetableStore} class
+     *
+     * @param capacity the number of bytes of all slabs together
+     * @since 1.4
+     */
+    OffHeapTimetableStore(long capacity) {
+        int slabCount = (int) Math.max(minSlabs, Math.min(maxSlabs, capacity / preferredSlabSize));
+        this.slabSize = (int) Math.min(Integer.MAX_VALUE, capacity / slabCount);
+        this.slabs = new ByteBuffer[slabCount];
+        this.generations = new AtomicIntegerArray(slabCount);
+    }
+
+    /**
+     * Returns the stored copy of {@code response}, whose lessons are kept off-heap.
+     * Responses without lessons and responses which don't fit into a slab are returned unchanged
+     *
+     * @param response the {@code getTimetable} response
+     * @return the response with its lessons off-heap
+     * @since 1.4
+     */
+    Response store(Response response) {
+        if (response == null || !(response.getJson().get("result") instanceof List)) {
+            return response;
+        }
+        long fingerprint = response.getFingerprint();
+        if (fingerprint == 0) {
+            // 0 marks empty slots of the index
+            return response;
+        }
+
+        Lessons lessons;
+        synchronized (this) {
+            long location = find(fingerprint);
+            if (location == 0) {
+                byte[] entry = encode(response.getJson().getJsonArray("result"));
+                if (entry.length > slabSize) {
+                    return response;
+                }
+                location = append(entry);
+                put(fingerprint, location);
+            }
+            lessons = new Lessons(location);
+        }
+
+        Map<String, Object> json = new HashMap<>(response.getJson().toMap());
+        json.put("result", lessons);
+        return new Response(response.getCode(), new JsonObject(json), fingerprint);
+    }
+
+    /**
+     * Returns if the lessons of {@code response} were evicted from the store
+     *
+     * @param response the response
+     * @return if the lessons of the response were evicted
+     * @since 1.4
+     */
+    static boolean isEvicted(Response response) {
+        Object result = response != null ? response.getJson().get("result") : null;
+        return result instanceof Lessons && ((Lessons) result).isEvicted();
+    }
+
+    /**
+     * Returns if the lessons of {@code response} are stored off-heap
+     *
+     * @param response the response
+     * @return if the lessons of the response are off-heap
+     * @since 1.4
+     */
+    static boolean isOffHeap(Response response) {
+        return response != null && response.getJson().get("result") instanceof Lessons;
+    }
+
+    /**
+     * Returns the number of bytes of all slabs together
+     *
+     * @return the capacity
+     * @since 1.4
+     */
+    long getCapacity() {
+        return (long) slabSize * slabs.length;
+    }
+
+    /**
+     * Appends {@code entry} to the current slab. If it doesn't fit, the next slab is cleared and used
+     */
+    private long append(byte[] entry) {
+        if (slabs[currentSlab] == null) {
+            slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        } else if (position + entry.length > slabSize) {
+            currentSlab = (currentSlab + 1) % slabs.length;
+            position = 0;
+            if (slabs[currentSlab] == null) {
+                slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+            } else {
+                evict(currentSlab);
+            }
+        }
+
+        ByteBuffer slab = slabs[currentSlab].duplicate();
+        slab.position(position);
+        slab.put(entry);
+        long location = location(currentSlab, position);
+        position += entry.length;
+        return location;
+    }
+
+    /**
+     * Clears {@code slab}. Views which still point to it notice it by its new generation
+     */
+    private void evict(int slab) {
+        generations.incrementAndGet(slab);
+        long[] oldFingerprints = fingerprints;
+        long[] oldLocations = locations;
+        fingerprints = new long[oldFingerprints.length];
+        locations = new long[oldLocations.length];
+        stored = 0;
+        for (int i = 0; i < oldFingerprints.length; i++) {
+            if (oldFingerprints[i] != 0 && slabOf(oldLocations[i]) != slab) {
+                put(oldFingerprints[i], oldLocations[i]);
+            }
+        }
+    }
+
+    private long find(long fingerprint) {
+        long key = fingerprint;
+        int mask = fingerprints.length - 1;
+        for (int i = mix(key) & mask; fingerprints[i] != 0; i = (i + 1) & mask) {
+            if (fingerprints[i] == key) {
+                return locations[i];
+            }
+        }
+        return 0;
+    }
+
+    private void put(long fingerprint, long location) {
+        if ((stored + 1) * 2 > fingerprints.length) {
+            long[] oldFingerprints = fingerprints;
+            long[] oldLocations = locations;
+            fingerprints = new long[oldFingerprints.length * 2];
+            locations = new long[oldLocations.length * 2];
+            stored = 0;
+            for (int i = 0; i < oldFingerprints.length; i++) {
+                if (oldFingerprints[i] != 0) {
+                    put(oldFingerprints[i], oldLocations[i]);
+                }
+            }
+        }
+
+        long key = fingerprint;
+        int mask = fingerprints.length - 1;
+        int i = mix(key) & mask;
+        while (fingerprints[i] != 0 && fingerprints[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (fingerprints[i] == 0) {
+            stored++;
+        }
+        fingerprints[i] = key;
+        locations[i] = location;
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * The location of an entry: the slab (15 bits) and the offset in the slab (32 bits). The highest bit is always set, so no location is 0.
+     * The index only holds entries of slabs which weren't cleared since, so a location always belongs to the current generation of its slab
+     */
+    private static long location(int slab, int offset) {
+        return Long.MIN_VALUE | ((long) slab << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int slabOf(long location) {
+        return (int) (location >>> 32) & 0x7FFF;
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Encodes the lessons of a response.
+     *
+     * <p>Layout: entry length (int), number of lessons (int), number of keys (int), the keys, the offset of every lesson (int) and the lessons.
+     * Every value starts with a type byte, numbers are zigzag varints, strings are varint length prefixed UTF-8
+     * and object keys are varint indices into the keys of the entry</p>
+     */
+    private static byte[] encode(JsonArray lessons) {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        Output body = new Output();
+        int[] offsets = new int[lessons.length()];
+        for (int i = 0; i < lessons.length(); i++) {
+            offsets[i] = body.size;
+            writeValue(body, lessons.get(i), keys);
+        }
+
+        Output entry = new Output();
+        entry.writeInt(0);
+        entry.writeInt(lessons.length());
+        entry.writeInt(keys.size());
+        for (String key : keys.keySet()) {
+            writeString(entry, key);
+        }
+        int bodyStart = entry.size + offsets.length * 4;
+        for (int offset : offsets) {
+            entry.writeInt(bodyStart + offset);
+        }
+        entry.write(body.bytes, 0, body.size);
+
+        byte[] bytes = entry.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(0, bytes.length);
+        return bytes;
+    }
+
+    private static void writeValue(Output output, Object value, Map<String, Integer> keys) {
+        // every json codec decodes null as plain null, see JsonCodec
+        if (value == null) {
+            output.write(nullValue);
+        } else if (value instanceof Boolean) {
+            output.write((Boolean) value ? trueValue : falseValue);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            output.write(intValue);
+            output.writeVarLong(((Number) value).longValue());
+        } else if (value instanceof BigInteger) {
+            output.write(bigIntegerValue);
+            writeString(output, value.toString());
+        } else if (value instanceof Number) {
+            output.write(doubleValue);
+            output.writeVarLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.write(objectValue);
+            output.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                output.writeVarLong(keys.computeIfAbsent(String.valueOf(entry.getKey()), key -> keys.size()));
+                writeValue(output, entry.getValue(), keys);
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            output.write(arrayValue);
+            output.writeVarLong(list.size());
+            for (Object element : list) {
+                writeValue(output, element, keys);
+            }
+        } else {
+            output.write(stringValue);
+            writeString(output, value.toString());
+        }
+    }
+
+    private static void writeString(Output output, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeVarLong(bytes.length);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static Object readValue(ByteBuffer input, String[] keys) {
+        byte type = input.get();
+        switch (type) {
+            case nullValue:
+                return null;
+            case falseValue:
+                return false;
+            case trueValue:
+                return true;
+            case intValue: {
+                long value = readVarLong(input);
+                return value == (int) value ? (Object) (int) value : (Object) value;
+            }
+            case doubleValue:
+                return Double.longBitsToDouble(readVarLong(input));
+            case bigIntegerValue:
+                return new BigInteger(readString(input));
+            case stringValue:
+                return readString(input);
+            case objectValue: {
+                int size = (int) readVarLong(input);
+                Map<String, Object> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String key = keys[(int) readVarLong(input)];
+                    map.put(key, readValue(input, keys));
+                }
+                return Collections.unmodifiableMap(map);
+            }
+            case arrayValue: {
+                int size = (int) readVarLong(input);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input, keys));
+                }
+                return Collections.unmodifiableList(list);
+            }
+            default:
+                throw new IllegalStateException("Unknown value type " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer input) {
+        byte[] bytes = new byte[(int) readVarLong(input)];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarLong(ByteBuffer input) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = input.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        // zigzag
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable byte array with the encoding methods
+     */
+    private static class Output {
+
+        private byte[] bytes = new byte[256];
+        private int size = 0;
+
+        private void ensure(int additional) {
+            if (size + additional > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, size + additional)];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+        }
+
+        private void write(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        private void write(byte[] b, int offset, int length) {
+            ensure(length);
+            System.arraycopy(b, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            // zigzag, so small negative numbers are small too
+            value = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private byte[] toByteArray() {
+            byte[] array = new byte[size];
+            System.arraycopy(bytes, 0, array, 0, size);
+            return array;
+        }
+    }
+
+    /**
+     * Exception if the lessons of a view were evicted from the store
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    static class EvictedException extends IllegalStateException {
+
+        EvictedException() {
+            super("The lessons were evicted from the off-heap store");
+        }
+
+    }
+
+    /**
+     * View on the lessons of a stored response, every lesson is decoded when it's accessed
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private class Lessons extends AbstractList<Object> {
+
+        private final ByteBuffer slab;
+        private final int slabIndex;
+        private final int generation;
+        private final int offset;
+        private final int size;
+        private final String[] keys;
+        private final int lessonOffsets;
+
+        /**
+         * Creates the view, must be called while the store is locked so the slab isn't cleared in the meantime
+         */
+        private Lessons(long location) {
+            this.slabIndex = slabOf(location);
+            this.generation = generations.get(slabIndex);
+            this.offset = offsetOf(location);
+            this.slab = slabs[slabIndex].duplicate();
+
+            ByteBuffer input = slab.duplicate();
+            input.position(offset + 4);
+            this.size = input.getInt();
+            this.keys = new String[input.getInt()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = readString(input).intern();
+            }
+            this.lessonOffsets = input.position();
+        }
+
+        private boolean isEvicted() {
+            return generations.get(slabIndex) != generation;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            if (isEvicted()) {
+                throw new EvictedException();
+            }
+
+            Object lesson;
+            try {
+                ByteBuffer input = slab.duplicate();
+                input.position(offset + input.getInt(lessonOffsets + index * 4));
+                lesson = readValue(input, keys);
+            } catch (RuntimeException e) {
+                // the slab may be overwritten while it is read
+                if (isEvicted()) {
+                    throw new EvictedException();
+                }
+                throw e;
+            }
+            if (isEvicted()) {
+                throw new EvictedException();
+            }
+            return lesson;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,370 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonCodecs;
+import org.bytedream.untis4j.json.JsonException;
+import org.bytedream.untis4j.json.JsonObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Append-only file store for cached responses, which survives restarts of the application.
+ *
+ * <p>Every response is written together with the latest import time of the server at the time it was requested. A stored response is only
+ * returned if the latest import time is still the same, so the server data hasn't changed since then.
+ * The file is indexed when it is used the first time, responses which are written later are appended to the file.
+ * A response which is stored again without a change only gets a new record if its old one has reached half of the maximal age,
+ * so responses which never change don't run out of it.
+ * If a key is written more than once only the last record counts, the file is compacted as soon as
+ * more than half of it are outdated records.
+ * A file must only be used by one process at the same time</p>
+ *
+ * @version 1.2
+ * @since 1.4
+ */
+class PersistentResponseStore {
+
+    private static final Map<Path, PersistentResponseStore> stores = new ConcurrentHashMap<>();
+    private static final int magic = 0x55344A43; // U4JC
+    private static final int formatVersion = 1;
+    private static final int headerSize = 8;
+    private static final long compactThreshold = 1 << 20;
+
+    private final Path file;
+    private volatile Duration maxAge;
+    private final Map<RequestKey, Entry> index = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long size;
+    private long outdatedBytes;
+    private boolean opened = false;
+
+    private PersistentResponseStore(Path file, Duration maxAge) {
+        this.file = file;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns the store of {@code file}. Every file has only one store, if it's already open its maximal age is set to {@code maxAge}
+     *
+     * @param file   the file of the store
+     * @param maxAge the maximal age of stored responses which are returned
+     * @return the store
+     * @since 1.4
+     */
+    static PersistentResponseStore of(Path file, Duration maxAge) {
+        PersistentResponseStore store = stores.computeIfAbsent(file.toAbsolutePath().normalize(), path -> new PersistentResponseStore(path, maxAge));
+        store.maxAge = maxAge;
+        return store;
+    }
+
+    /**
+     * Returns the stored response of {@code request}
+     *
+     * @param request          the request
+     * @param latestImportTime the current latest import time of the server
+     * @return the stored response, or null if it isn't stored, is older than the maximal age or was requested before another import
+     * @throws IOException if the store couldn't be read
+     * @since 1.4
+     */
+    Response get(RequestKey request, long latestImportTime) throws IOException {
+        open();
+        int code;
+        long fingerprint;
+        byte[] body;
+        // the lookup and the read must see the same file, a compaction changes the offsets of all records
+        synchronized (this) {
+            Entry entry = index.get(request);
+            if (entry == null || entry.latestImportTime != latestImportTime || System.currentTimeMillis() - entry.writtenAt > maxAge.toMillis()) {
+                return null;
+            }
+
+            ByteBuffer record = read(entry.offset, entry.length);
+            skipKey(record);
+            record.position(record.position() + 16); // written at and latest import time are already in the index
+            code = record.getInt();
+            fingerprint = record.getLong();
+            body = new byte[record.getInt()];
+            record.get(body);
+        }
+        try {
+            return new Response(code, new JsonObject(JsonCodecs.getDefault().decode(new ByteArrayInputStream(body))), fingerprint);
+        } catch (JsonException e) {
+            throw new IOException("Invalid stored response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends {@code response} to the store, unless the same response for the same import time is already stored
+     * and its record isn't older than half of the maximal age
+     *
+     * @param request          the request
+     * @param response         the response
+     * @param latestImportTime the latest import time of the server before the request was sent
+     * @throws IOException if the store couldn't be written
+     * @since 1.4
+     */
+    void put(RequestKey request, Response response, long latestImportTime) throws IOException {
+        open();
+        Entry existing = index.get(request);
+        if (existing != null && existing.latestImportTime == latestImportTime && existing.fingerprint == response.getFingerprint()
+                && System.currentTimeMillis() - existing.writtenAt < maxAge.toMillis() / 2) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0); // placeholder for the length
+        output.writeLong(0); // placeholder for the checksum
+        writeKey(output, request);
+        long writtenAt = System.currentTimeMillis();
+        output.writeLong(writtenAt);
+        output.writeLong(latestImportTime);
+        output.writeInt(response.getCode());
+        output.writeLong(response.getFingerprint());
+        byte[] body = response.getJson().toString().getBytes(StandardCharsets.UTF_8);
+        output.writeInt(body.length);
+        output.write(body);
+        output.flush();
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.limit() - 12);
+        record.putLong(4, ContentFingerprint.of(record.array(), 12, record.limit() - 12));
+
+        synchronized (this) {
+            if (record.limit() > Integer.MAX_VALUE - size) {
+                // a file larger than 2 GiB is discarded when it is opened, so it must not grow any further
+                return;
+            }
+            long offset = size;
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            size += record.limit();
+            Entry previous = index.put(request, new Entry(offset, record.limit(), writtenAt, latestImportTime, response.getFingerprint()));
+            if (previous != null) {
+                outdatedBytes += previous.length;
+            }
+            if (outdatedBytes > compactThreshold && outdatedBytes > size / 2) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Removes the stored responses whose request matches {@code filter}, so they aren't returned anymore.
+     * The file is compacted right away, otherwise the removed records would be indexed again after a restart
+     *
+     * @param filter the filter
+     * @throws IOException if the store couldn't be read or written
+     * @since 1.4
+     */
+    synchronized void removeIf(Predicate<RequestKey> filter) throws IOException {
+        open();
+        if (index.keySet().removeIf(filter)) {
+            compact();
+        }
+    }
+
+    /**
+     * Closes the file. The next {@link PersistentResponseStore#of(Path, Duration)} for the file returns a new store, which indexes it again
+     *
+     * @throws IOException if the file couldn't be closed
+     * @since 1.4
+     */
+    synchronized void close() throws IOException {
+        stores.remove(file, this);
+        if (opened) {
+            opened = false;
+            index.clear();
+            channel.close();
+        }
+    }
+
+    /**
+     * Opens and indexes the file, if it isn't opened yet
+     */
+    private synchronized void open() throws IOException {
+        if (opened) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > Integer.MAX_VALUE || !index()) {
+            // a file which is too large or has an unknown format is started from scratch
+            index.clear();
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(headerSize).putInt(magic).putInt(formatVersion);
+            header.flip();
+            channel.write(header, 0);
+            size = headerSize;
+            outdatedBytes = 0;
+        } else if (outdatedBytes > compactThreshold && outdatedBytes > size / 2) {
+            compact();
+        }
+        opened = true;
+    }
+
+    /**
+     * Indexes all records of the file. A record which is incomplete or corrupt (e.g. because the application crashed while it was written)
+     * and everything after it is cut off
+     *
+     * @return false if the file has no valid header
+     */
+    private boolean index() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < headerSize) {
+            return false;
+        }
+        ByteBuffer header = readFully(0, headerSize);
+        if (header.getInt() != magic || header.getInt() != formatVersion) {
+            return false;
+        }
+
+        long offset = headerSize;
+        while (offset + 12 <= fileSize) {
+            ByteBuffer prefix = readFully(offset, 12);
+            int length = prefix.getInt();
+            long checksum = prefix.getLong();
+            if (length < 0 || offset + 12L + length > fileSize) {
+                break;
+            }
+            ByteBuffer record = readFully(offset + 12, length);
+            if (ContentFingerprint.of(record.array(), 0, length) != checksum) {
+                break;
+            }
+
+            RequestKey request = readKey(record);
+            long writtenAt = record.getLong();
+            long latestImportTime = record.getLong();
+            record.getInt();
+            long fingerprint = record.getLong();
+            Entry previous = index.put(request, new Entry(offset, 12 + length, writtenAt, latestImportTime, fingerprint));
+            if (previous != null) {
+                outdatedBytes += previous.length;
+            }
+            offset += 12 + length;
+        }
+
+        size = offset;
+        if (offset < fileSize) {
+            channel.truncate(offset);
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites the file with only the current record of every key
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        Map<RequestKey, Entry> compactedIndex = new ConcurrentHashMap<>();
+        try (FileChannel output = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(headerSize).putInt(magic).putInt(formatVersion);
+            header.flip();
+            output.write(header);
+            long offset = headerSize;
+            for (Map.Entry<RequestKey, Entry> entry : index.entrySet()) {
+                Entry old = entry.getValue();
+                ByteBuffer record = read(old.offset, old.length);
+                record.position(0);
+                while (record.hasRemaining()) {
+                    output.write(record);
+                }
+                compactedIndex.put(entry.getKey(), new Entry(offset, old.length, old.writtenAt, old.latestImportTime, old.fingerprint));
+                offset += old.length;
+            }
+            output.force(true);
+        }
+
+        // the file isn't mapped and the channel is closed, so it can be replaced on every platform
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        index.putAll(compactedIndex);
+        size = channel.size();
+        outdatedBytes = 0;
+    }
+
+    /**
+     * Returns the record at {@code offset}, positioned after its length and checksum
+     */
+    private synchronized ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer record = readFully(offset, length);
+        record.position(12);
+        return record;
+    }
+
+    /**
+     * Reads {@code length} bytes at {@code offset} of the file
+     */
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeKey(DataOutputStream output, RequestKey request) throws IOException {
+        byte[] method = request.getMethod().getBytes(StandardCharsets.UTF_8);
+        output.writeInt(method.length);
+        output.write(method);
+        output.writeLong(request.getVersion());
+        output.writeInt(request.getRequest().length);
+        output.write(request.getRequest());
+    }
+
+    private static RequestKey readKey(ByteBuffer record) {
+        byte[] method = new byte[record.getInt()];
+        record.get(method);
+        long version = record.getLong();
+        byte[] request = new byte[record.getInt()];
+        record.get(request);
+        return new RequestKey(new String(method, StandardCharsets.UTF_8), request, version);
+    }
+
+    private static void skipKey(ByteBuffer record) {
+        int methodLength = record.getInt();
+        record.position(record.position() + methodLength + 8);
+        int requestLength = record.getInt();
+        record.position(record.position() + requestLength);
+    }
+
+    /**
+     * Position and metadata of a stored response
+     */
+    private static class Entry {
+
+        private final long offset;
+        private final int length;
+        private final long writtenAt;
+        private final long latestImportTime;
+        private final long fingerprint;
+
+        private Entry(long offset, int length, long writtenAt, long latestImportTime, long fingerprint) {
+            this.offset = offset;
+            this.length = length;
+            this.writtenAt = writtenAt;
+            this.latestImportTime = latestImportTime;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+}
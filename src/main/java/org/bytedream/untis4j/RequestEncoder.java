@@ -0,0 +1,179 @@
+package org.bytedream.untis4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes json rpc requests directly to UTF-8 bytes.
+ *
+ * <p>The envelope of every method is encoded only once. The params are written into a reusable per-thread buffer without creating an intermediate
+ * {@link org.json.JSONObject} or {@link String}. Supported param values are {@link Map}s, {@link Collection}s, arrays, {@link String}s, {@link Number}s,
+ * {@link Boolean}s and {@code null}, every other value is written as string</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class RequestEncoder {
+
+    private static final Map<String, byte[]> envelopes = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+    private static final byte[] hex = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        for (UntisUtils.Method method : UntisUtils.Method.values()) {
+            envelope(method.getMethod());
+        }
+    }
+
+    /**
+     * Encodes a request
+     *
+     * @param method the POST method
+     * @param params params you want to send with the request
+     * @return the encoded request
+     * @since 1.4
+     */
+    static byte[] encode(String method, Map<String, ?> params) {
+        Buffer buffer = buffers.get();
+        buffer.reset();
+
+        buffer.write(envelope(method));
+        writeValue(buffer, params);
+        buffer.write('}');
+
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Returns the encoded request envelope of a method, everything until the params
+     *
+     * @param method the POST method
+     * @return the encoded envelope
+     * @since 1.4
+     */
+    private static byte[] envelope(String method) {
+        return envelopes.computeIfAbsent(method, m -> {
+            Buffer buffer = new Buffer();
+            buffer.writeAscii("{\"id\":\"ID\",\"method\":");
+            writeString(buffer, m);
+            buffer.writeAscii(",\"jsonrpc\":\"2.0\",\"params\":");
+            return buffer.toByteArray();
+        });
+    }
+
+    private static void writeValue(Buffer buffer, Object value) {
+        if (value == null) {
+            buffer.writeAscii("null");
+        } else if (value instanceof String) {
+            writeString(buffer, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            buffer.writeAscii(value.toString());
+        } else if (value instanceof Map) {
+            buffer.write('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                // like org.json, entries without a value are left out
+                if (entry.getValue() == null) continue;
+                if (!first) buffer.write(',');
+                first = false;
+                writeString(buffer, String.valueOf(entry.getKey()));
+                buffer.write(':');
+                writeValue(buffer, entry.getValue());
+            }
+            buffer.write('}');
+        } else if (value instanceof Collection) {
+            buffer.write('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) buffer.write(',');
+                first = false;
+                writeValue(buffer, element);
+            }
+            buffer.write(']');
+        } else if (value instanceof Object[]) {
+            writeValue(buffer, Arrays.asList((Object[]) value));
+        } else {
+            writeString(buffer, value.toString());
+        }
+    }
+
+    private static void writeString(Buffer buffer, String string) {
+        buffer.write('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.write('\\');
+                buffer.write(c);
+            } else if (c < 0x20) {
+                buffer.writeAscii("\\u00");
+                buffer.write(hex[c >> 4]);
+                buffer.write(hex[c & 0xF]);
+            } else if (c < 0x80) {
+                buffer.write(c);
+            } else if (c < 0x800) {
+                buffer.write(0xC0 | (c >> 6));
+                buffer.write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                buffer.write(0xF0 | (codePoint >> 18));
+                buffer.write(0x80 | ((codePoint >> 12) & 0x3F));
+                buffer.write(0x80 | ((codePoint >> 6) & 0x3F));
+                buffer.write(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.write('?');
+            } else {
+                buffer.write(0xE0 | (c >> 12));
+                buffer.write(0x80 | ((c >> 6) & 0x3F));
+                buffer.write(0x80 | (c & 0x3F));
+            }
+        }
+        buffer.write('"');
+    }
+
+    /**
+     * Growable byte buffer without synchronization
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private static class Buffer {
+
+        private byte[] bytes = new byte[512];
+        private int size;
+
+        private void reset() {
+            size = 0;
+        }
+
+        private void write(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        private void write(byte[] b) {
+            ensureCapacity(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        private void writeAscii(String string) {
+            ensureCapacity(string.length());
+            for (int i = 0; i < string.length(); i++) {
+                bytes[size++] = (byte) string.charAt(i);
+            }
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
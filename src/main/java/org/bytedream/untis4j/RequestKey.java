@@ -0,0 +1,89 @@
+package org.bytedream.untis4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Key of a cached request
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class RequestKey {
+
+    private final String method;
+    private final byte[] request;
+    private final long version;
+    private final int hashCode;
+
+    /**
+     * Initialize the {@link RequestKey} class
+     *
+     * @param method  the POST method
+     * @param request the encoded request
+     * @since 1.4
+     */
+    RequestKey(String method, byte[] request) {
+        this(method, request, 0);
+    }
+
+    /**
+     * Initialize the {@link RequestKey} class
+     *
+     * @param method  the POST method
+     * @param request the encoded request
+     * @param version version of the server data the response belongs to. Keys which only differ in their version are different keys
+     * @since 1.4
+     */
+    RequestKey(String method, byte[] request, long version) {
+        this.method = method;
+        this.request = request;
+        this.version = version;
+        this.hashCode = 31 * Arrays.hashCode(request) + Long.hashCode(version);
+    }
+
+    /**
+     * Returns the POST method
+     *
+     * @return the POST method
+     * @since 1.4
+     */
+    String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the encoded request
+     *
+     * @return the encoded request
+     * @since 1.4
+     */
+    byte[] getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the version of the server data the response belongs to
+     *
+     * @return the version, 0 if the request isn't versioned
+     * @since 1.4
+     */
+    long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof RequestKey && hashCode == obj.hashCode() && version == ((RequestKey) obj).version && Arrays.equals(request, ((RequestKey) obj).request);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return new String(request, StandardCharsets.UTF_8);
+    }
+}
@@ -1,47 +1,72 @@
 package org.bytedream.untis4j;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import org.bytedream.untis4j.json.JsonCodecs;
+import org.bytedream.untis4j.json.JsonException;
+import org.bytedream.untis4j.json.JsonObject;
 
 import java.io.*;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
- * A class to manage all requests
+ * A class to manage all requests.
  *
- * @version 1.0
+ * <p>This class is thread-safe. The session state is an immutable {@link State} snapshot which is only ever replaced as a whole,
+ * so requests never see e.g. a new session id together with an old login status.
+ * Requests to a server which doesn't respond anymore fail fast, see {@link UpstreamHealth}</p>
+ *
+ * @version 1.3
  * @since 1.0
  */
 public class RequestManager {
 
     private static final String baseURL = "/WebUntis/jsonrpc.do";
-    private final Infos infos;
+    private static final int sessionExpiredErrorCode = -8520;
+    private static final int noRightErrorCode = -8509;
+    private static final int methodNotFoundErrorCode = -32601;
+    private static final String acceptEncoding = "gzip, deflate";
+    private final AtomicReference<State> state;
     private final String url;
-    private boolean loggedIn = true;
     private final boolean useCache;
-    private LoadingCache<String, Response> requests;
+    private static volatile Duration connectTimeout = Duration.ofSeconds(10);
+    private static volatile Duration readTimeout = Duration.ofSeconds(60);
+    private static final Duration keepAliveIdleLimit = Duration.ofMinutes(10);
+    private final TransferMetrics transferMetrics = new TransferMetrics();
+    private final UpstreamHealth upstreamHealth;
+    private ResponseCache requests;
+    // the cache only references its loaders weakly, so the loader lives as long as the request manager
+    private final CacheLoader<RequestKey, Response> loader = this::load;
+    private volatile ConnectionWarmer connectionWarmer;
+    private volatile Duration keepAliveInterval;
+    private volatile ScheduledFuture<?> keepAlive;
 
     /**
      * Initialize the {@link RequestManager} class
      *
-     * @param infos user information
+     * @param infos    user information
+     * @param useCache sets if every request response should be saved in cache. The cache is shared with all other {@link RequestManager}s of the same user,
+     *                 master data with all users of the same school and role (see {@link ResponseCache#setSharedMasterData(boolean)})
      * @since 1.0
      */
     public RequestManager(Infos infos, boolean useCache) {
-        this.infos = infos;
-        this.url = infos.getServer() + baseURL + "?school=" + infos.getSchoolName();
+        this.state = new AtomicReference<>(new State(infos, true, null));
+        this.url = url(infos.getServer(), infos.getSchoolName());
         this.useCache = useCache;
-        
+        this.upstreamHealth = UpstreamHealth.of(infos.getServer());
+
         if (this.useCache) {
-            requests = Caffeine.newBuilder().maximumSize(1_000).expireAfterWrite(Duration.ofMinutes(10)).refreshAfterWrite(Duration.ofMinutes(1)).build(this::POST);
+            requests = ResponseCache.of(infos, loader);
         }
     }
 
@@ -58,61 +83,73 @@ public class RequestManager {
      * @since 1.1
      */
     public static Infos generateUserInfosAndLogin(String username, String password, String server, String schoolName, String userAgent) throws IOException {
-        URL url = new URL(server + baseURL + "?school=" + schoolName);
-        String requestBody = UntisUtils.processParams(UntisUtils.Method.LOGIN.getMethod(), new HashMap<String, String>() {{
+        URL url = new URL(url(server, schoolName));
+        byte[] requestBody = RequestEncoder.encode(UntisUtils.Method.LOGIN.getMethod(), new HashMap<String, String>() {{
             put("user", username);
             put("password", password);
             put("client", userAgent);
         }});
-        StringBuilder stringBuilder = getStringBuilder(userAgent, url, requestBody);
+        JsonObject jsonObject = getJsonObject(userAgent, url, requestBody);
 
-        JSONObject jsonObject;
+        JsonObject result;
 
         try {
-            jsonObject = new JSONObject(stringBuilder.toString());
-
             if (jsonObject.has("error")) {
-                JSONObject errorObject = jsonObject.getJSONObject("error");
-                throw new LoginException("The response contains an error (" + errorObject.getInt("errorObject") + "): " + errorObject.getString("message"));
+                JsonObject errorObject = jsonObject.getJsonObject("error");
+                throw new LoginException("The response contains an error (" + errorObject.getInt("code") + "): " + errorObject.getString("message"));
             }
-        } catch (JSONException e) {
-            throw new IOException("An unexpected exception occurred: " + stringBuilder);
+            result = jsonObject.getJsonObject("result");
+        } catch (JsonException e) {
+            throw new IOException("An unexpected exception occurred: " + jsonObject);
         }
 
-        JSONObject result = jsonObject.getJSONObject("result");
-
         UntisUtils.ElementType elementType = UntisUtils.ElementType.of(result.getInt("personType"));
 
         return new Infos(username, password, server, schoolName, userAgent, result.getString("sessionId"), result.getInt("personId"), elementType, result.getInt("klasseId"));
     }
 
-    private static StringBuilder getStringBuilder(String userAgent, URL url, String requestBody) throws IOException {
+    /**
+     * Returns the url of the json rpc endpoint of a school
+     *
+     * @param server     the server used for the api
+     * @param schoolName the school name used for the api
+     * @return the url of the json rpc endpoint
+     * @since 1.4
+     */
+    static String url(String server, String schoolName) {
+        return server + baseURL + "?school=" + schoolName;
+    }
+
+    private static JsonObject getJsonObject(String userAgent, URL url, byte[] requestBody) throws IOException {
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
 
         connection.setRequestMethod("POST");
         connection.setInstanceFollowRedirects(true);
         connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(requestBody.length);
         connection.setRequestProperty("User-Agent", userAgent);
         connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+        connection.setRequestProperty("Accept-Encoding", acceptEncoding);
 
-        OutputStreamWriter utf8Writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8);
-        utf8Writer.write(requestBody);
-        utf8Writer.close();
+        OutputStream outputStream = connection.getOutputStream();
+        outputStream.write(requestBody);
+        outputStream.close();
 
-        BufferedReader input;
+        InputStream input;
 
         try {
-            input = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+            input = connection.getInputStream();
         } catch (NullPointerException e) {
-            input = new BufferedReader(new InputStreamReader(connection.getErrorStream()));
+            input = connection.getErrorStream();
         }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        String line;
-        while ((line = input.readLine()) != null) {
-            stringBuilder.append(line);
+        try (InputStream decodedInput = decode(connection, input, null)) {
+            JsonObject jsonObject = new JsonObject(JsonCodecs.getDefault().decode(decodedInput));
+            decodedInput.transferTo(OutputStream.nullOutputStream());
+            return jsonObject;
+        } catch (JsonException e) {
+            throw new IOException("An unexpected exception occurred: " + e.getMessage());
         }
-        return stringBuilder;
     }
 
     /**
@@ -126,10 +163,11 @@ public class RequestManager {
      */
     public Response POST(String method, Map<String, ?> params) throws IOException {
 
-        if (loggedIn || method.equals(UntisUtils.Method.LOGIN.getMethod())) {
-            Response response = POST(UntisUtils.processParams(method, params));
-            if (method.equals(UntisUtils.Method.LOGOUT.getMethod()) && loggedIn && response != null) {
-                loggedIn = false;
+        if (state.get().loggedIn || method.equals(UntisUtils.Method.LOGIN.getMethod())) {
+            Response response = send(method, RequestEncoder.encode(method, params));
+            if (method.equals(UntisUtils.Method.LOGOUT.getMethod()) && response != null) {
+                state.updateAndGet(State::loggedOut);
+                stopKeepAlive();
             }
             return response;
         } else {
@@ -147,16 +185,33 @@ public class RequestManager {
      * @since 1.0
      */
     public Response CachedPOST(String method, Map<String, ?> params) throws IOException {
+        return CachedPOST(method, params, CacheControl.DEFAULT);
+    }
 
-        if (loggedIn) {
+    /**
+     * Sends a POST request to the server or returns the cached response, as the cache directives {@code cacheControl} demand
+     *
+     * @param method       the POST method
+     * @param params       params you want to send with the request
+     * @param cacheControl the cache directives
+     * @return {@link Response} with all information about the response
+     * @throws IOException if an IO Exception occurs or {@link CacheMissException} if the response isn't cached but {@link CacheControl#isOnlyIfCached()} is set
+     * @since 1.4
+     */
+    public Response CachedPOST(String method, Map<String, ?> params, CacheControl cacheControl) throws IOException {
+
+        if (state.get().loggedIn) {
             Response response;
-            if (useCache) {
-                response = requests.get(UntisUtils.processParams(method, params));
+            if (useCache && !cacheControl.isNoStore()) {
+                response = requests.get(new RequestKey(method, RequestEncoder.encode(method, params)), cacheControl);
+            } else if (cacheControl.isOnlyIfCached()) {
+                throw new CacheMissException("No cache is used");
             } else {
-                response = POST(UntisUtils.processParams(method, params));
+                response = send(method, RequestEncoder.encode(method, params));
             }
-            if (method.equals(UntisUtils.Method.LOGOUT.getMethod()) && loggedIn && response != null) {
-                loggedIn = false;
+            if (method.equals(UntisUtils.Method.LOGOUT.getMethod()) && response != null) {
+                state.updateAndGet(State::loggedOut);
+                stopKeepAlive();
             }
             return response;
         } else {
@@ -164,52 +219,416 @@ public class RequestManager {
         }
     }
 
+    /**
+     * Sends a POST request to the server, but only if the same request with the same {@code version} is not in the cache.
+     *
+     * <p>Other than {@link RequestManager#CachedPOST(String, Map)} the response is not refreshed periodically and kept for a long time.
+     * It should only be used for data which changes together with {@code version}, e.g. the latest import time</p>
+     *
+     * @param method  the POST method
+     * @param params  params you want to send with the request
+     * @param version version of the server data
+     * @return {@link Response} with all information about the response
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    public Response VersionedPOST(String method, Map<String, ?> params, long version) throws IOException {
+        return VersionedPOST(method, params, version, CacheControl.DEFAULT);
+    }
+
+    /**
+     * Sends a POST request to the server or returns the cached response of the same request with the same {@code version},
+     * as the cache directives {@code cacheControl} demand
+     *
+     * @param method       the POST method
+     * @param params       params you want to send with the request
+     * @param version      version of the server data
+     * @param cacheControl the cache directives
+     * @return {@link Response} with all information about the response
+     * @throws IOException if an IO Exception occurs or {@link CacheMissException} if the response isn't cached but {@link CacheControl#isOnlyIfCached()} is set
+     * @see RequestManager#VersionedPOST(String, Map, long)
+     * @since 1.4
+     */
+    public Response VersionedPOST(String method, Map<String, ?> params, long version, CacheControl cacheControl) throws IOException {
+        if (!useCache || cacheControl.isNoStore()) {
+            return CachedPOST(method, params, cacheControl);
+        } else if (state.get().loggedIn) {
+            return requests.getVersioned(new RequestKey(method, RequestEncoder.encode(method, params), version), cacheControl);
+        } else {
+            throw new LoginException("Not logged in");
+        }
+    }
+
+    /**
+     * Returns the latest import time of the server, as the cache directives {@code cacheControl} demand.
+     * With a cache it is requested at most once per minute, see {@link ResponseCache#getLatestImportTime(CacheControl)}
+     *
+     * @param cacheControl the cache directives
+     * @return the latest import time
+     * @throws IOException if an IO Exception occurs or {@link CacheMissException} if it isn't known yet but {@link CacheControl#isOnlyIfCached()} is set
+     * @since 1.4
+     */
+    long getLatestImportTime(CacheControl cacheControl) throws IOException {
+        if (!state.get().loggedIn) {
+            throw new LoginException("Not logged in");
+        } else if (useCache && !cacheControl.isNoStore()) {
+            return requests.getLatestImportTime(cacheControl);
+        } else if (cacheControl.isOnlyIfCached()) {
+            throw new CacheMissException("No cache is used");
+        }
+        Response response = POST(UntisUtils.Method.GETLATESTIMPORTTIME.getMethod(), new HashMap<>());
+        if (response == null) {
+            throw new IOException("The latest import time couldn't be requested");
+        } else if (response.isError()) {
+            throw new IOException(response.getErrorMessage());
+        }
+        return response.getJson().getLong("result");
+    }
+
+    /**
+     * Keeps the connections of {@code connectionWarmer} alive while no requests are sent, until the {@link RequestManager} logs out
+     * or is garbage collected. After 10 minutes without requests the connections are released, the next request starts keeping them alive again
+     *
+     * @param connectionWarmer the connection warmer whose connections should be kept alive
+     * @param interval         time after which idle connections are pinged
+     * @since 1.4
+     */
+    synchronized void keepAlive(ConnectionWarmer connectionWarmer, Duration interval) {
+        stopKeepAlive();
+        this.connectionWarmer = connectionWarmer;
+        this.keepAliveInterval = interval;
+        this.keepAlive = connectionWarmer.keepAlive(this, interval, keepAliveIdleLimit);
+    }
+
+    /**
+     * Stops keeping idle connections alive
+     *
+     * @since 1.4
+     */
+    private void stopKeepAlive() {
+        ScheduledFuture<?> keepAlive = this.keepAlive;
+        if (keepAlive != null) {
+            keepAlive.cancel(false);
+        }
+    }
+
+    /**
+     * Logs in again with the credentials of the current session and logs out (if possible) the old session.
+     *
+     * <p>The new session replaces the old one at once, so other threads never see a logged out state.
+     * Requests which are still running with the old session are replayed with the new one</p>
+     *
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    public void reconnect() throws IOException {
+        Infos infos = state.get().infos;
+        Infos renewed = generateUserInfosAndLogin(infos.getUsername(), infos.getPassword(), infos.getServer(), infos.getSchoolName(), infos.getUserAgent());
+        State previous = state.getAndSet(new State(renewed, true, null));
+        if (previous.loggedIn) {
+            // the old session is logged out directly, the logout path of POST would mark the new state as logged out
+            try {
+                POST(UntisUtils.Method.LOGOUT.getMethod(), RequestEncoder.encode(UntisUtils.Method.LOGOUT.getMethod(), new HashMap<>()), previous.infos);
+            } catch (IOException ignore) {
+            }
+        }
+        if (connectionWarmer != null) {
+            keepAlive(connectionWarmer, keepAliveInterval);
+        }
+    }
+
+    /**
+     * Sends a POST request to the server and, if the server reports that the session has expired, logs in again and replays the request once.
+     *
+     * <p>Concurrent callers which run into the same expired session share a single re-login ({@link RequestManager#reauthenticate(State)})</p>
+     *
+     * @param method  the POST method
+     * @param request the encoded request
+     * @return {@link Response} with all information about the response
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    private Response send(String method, byte[] request) throws IOException {
+        State usedState = state.get();
+        try {
+            return POST(method, request, usedState.infos);
+        } catch (SessionExpiredException e) {
+            if (UntisUtils.Method.LOGIN.getMethod().equals(method) || UntisUtils.Method.LOGOUT.getMethod().equals(method)) {
+                throw e;
+            }
+            return POST(method, request, reauthenticate(usedState).infos);
+        }
+    }
+
+    /**
+     * Sends a request of the cache to the server
+     *
+     * @param request the request
+     * @return {@link Response} with all information about the response
+     * @throws IOException if an IO Exception occurs or {@link LoginException} if the request manager has logged out
+     * @since 1.4
+     */
+    private Response load(RequestKey request) throws IOException {
+        if (!state.get().loggedIn) {
+            throw new LoginException("Not logged in");
+        }
+        return send(request.getMethod(), request.getRequest());
+    }
+
+    /**
+     * Logs in again if the session of {@code expired} is still the current one.
+     *
+     * <p>The thread which manages to swap in a {@link State} with a pending login sends the login request,
+     * every other thread waits for this login instead of sending its own one</p>
+     *
+     * @param expired the state whose session has expired
+     * @return the state with the new session
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    private State reauthenticate(State expired) throws IOException {
+        while (true) {
+            State current = state.get();
+            if (current.login != null) {
+                return awaitLogin(current.login);
+            } else if (current.infos != expired.infos) {
+                return current;
+            }
+
+            CompletableFuture<State> login = new CompletableFuture<>();
+            State pending = new State(current.infos, current.loggedIn, login);
+            if (!state.compareAndSet(current, pending)) {
+                continue;
+            }
+
+            Infos infos = current.infos;
+            try {
+                State renewed = new State(generateUserInfosAndLogin(infos.getUsername(), infos.getPassword(), infos.getServer(), infos.getSchoolName(), infos.getUserAgent()), current.loggedIn, null);
+                state.compareAndSet(pending, renewed);
+                login.complete(renewed);
+                return renewed;
+            } catch (IOException | RuntimeException e) {
+                state.compareAndSet(pending, current);
+                login.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Waits until a login, started by another thread, has finished
+     *
+     * @param login the pending login
+     * @return the state with the new session
+     * @throws IOException if the login failed
+     * @since 1.4
+     */
+    private static State awaitLogin(CompletableFuture<State> login) throws IOException {
+        try {
+            return login.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
      * Sends a POST request to the server
      *
+     * @param method  the POST method
+     * @param request the encoded request
+     * @param infos   infos whose session id is used for the request
      * @return {@link Response} with all information about the response
      * @throws IOException if an IO Exception occurs
      * @since 1.0
      */
-    private Response POST(String request) throws IOException
+    private Response POST(String method, byte[] request, Infos infos) throws IOException {
+        upstreamHealth.acquire();
+        boolean reached = false;
+        try {
+            Response response = send(method, request, infos);
+            reached = true;
+            return response;
+        } catch (JsonRpcException e) {
+            // the server answered, only the request was refused
+            reached = true;
+            throw e;
+        } finally {
+            if (reached) {
+                upstreamHealth.success();
+            } else {
+                upstreamHealth.failure();
+            }
+        }
+    }
+
+    private Response send(String method, byte[] request, Infos infos) throws IOException
     {
+        ConnectionWarmer connectionWarmer = this.connectionWarmer;
+        if (connectionWarmer != null) {
+            connectionWarmer.used();
+            ScheduledFuture<?> keepAlive = this.keepAlive;
+            if (keepAlive != null && keepAlive.isDone() && state.get().loggedIn) {
+                // the keep alive has stopped itself after the idle limit
+                synchronized (this) {
+                    if (this.keepAlive == keepAlive) {
+                        keepAlive(connectionWarmer, keepAliveInterval);
+                    }
+                }
+            }
+        }
         boolean error;
         URL url = new URL(this.url);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         connection.setRequestMethod("POST");
+        connection.setConnectTimeout((int) Math.min(Integer.MAX_VALUE, connectTimeout.toMillis()));
+        connection.setReadTimeout((int) Math.min(Integer.MAX_VALUE, readTimeout.toMillis()));
         connection.setInstanceFollowRedirects(true);
         connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(request.length);
         connection.setRequestProperty("User-Agent", infos.getUserAgent());
         connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+        connection.setRequestProperty("Accept-Encoding", acceptEncoding);
         connection.setRequestProperty("Cookie", "JSESSIONID=" + infos.getSessionId() + "; schoolname=" + infos.getSchoolName());
-        DataOutputStream outputStream = new DataOutputStream(connection.getOutputStream());
-        outputStream.writeBytes(request);
-        BufferedReader input;
+        OutputStream outputStream = connection.getOutputStream();
+        outputStream.write(request);
+        outputStream.close();
+        InputStream input;
         try {
-            input = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+            input = connection.getInputStream();
             error = false;
         } catch (NullPointerException e) {
             error = true;
-            input = new BufferedReader(new InputStreamReader(connection.getErrorStream()));
-        }
-        StringBuilder stringBuilder = new StringBuilder();
-        String line;
-        while ((line = input.readLine()) != null) {
-            stringBuilder.append(line);
+            input = connection.getErrorStream();
         }
-        JSONObject jsonObject;
-        try {
-            jsonObject = new JSONObject(stringBuilder.toString());
+        JsonObject jsonObject;
+        long fingerprint;
+        try (ContentFingerprint.FingerprintInputStream decodedInput = new ContentFingerprint.FingerprintInputStream(decode(connection, input, transferMetrics.of(method)))) {
+            // the body is parsed while it is decompressed and fingerprinted, without buffering it as a whole
+            jsonObject = new JsonObject(JsonCodecs.getDefault().decode(decodedInput));
+            decodedInput.transferTo(OutputStream.nullOutputStream());
+            fingerprint = decodedInput.getFingerprint();
 
             if (jsonObject.has("error")) {
-                JSONObject errorObject = jsonObject.getJSONObject("error");
-                throw new ConnectException("The response contains an error (" + errorObject.getInt("errorObject") + "): " + errorObject.getString("message"));
+                JsonObject errorObject = jsonObject.getJsonObject("error");
+                String message = "The response contains an error (" + errorObject.getInt("code") + "): " + errorObject.getString("message");
+                if (errorObject.getInt("code") == sessionExpiredErrorCode) {
+                    throw new SessionExpiredException(message);
+                }
+                throw new JsonRpcException(message, errorObject.getInt("code"));
             }
-        } catch (JSONException e) {
-            throw new ConnectException("An unexpected exception occurred: " + stringBuilder);
+        } catch (JsonException e) {
+            throw new ConnectException("An unexpected exception occurred: " + e.getMessage());
         }
         if (error) return null;
-        return new Response(connection.getResponseCode(), jsonObject);
+        return new Response(connection.getResponseCode(), jsonObject, fingerprint);
+    }
+
+    /**
+     * Wraps the response stream of {@code connection} in a stream which decompresses it, depending on the content encoding of the response
+     *
+     * @param connection the connection the response belongs to
+     * @param input      the raw response stream
+     * @param metrics    metrics which count the transferred bytes, {@code null} if they should not be counted
+     * @return the decompressed response stream
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    private static InputStream decode(HttpURLConnection connection, InputStream input, TransferMetrics.MethodMetrics metrics) throws IOException {
+        if (metrics != null) {
+            input = metrics.countWire(input);
+        }
+
+        String contentEncoding = connection.getContentEncoding();
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            input = new GZIPInputStream(input);
+        } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            input = new InflaterInputStream(input);
+        }
+
+        if (metrics != null) {
+            input = metrics.countDecoded(input);
+        }
+        return input;
+    }
+
+    /**
+     * Returns the infos of the current session. They change if the session expired and the {@link RequestManager} logged in again
+     *
+     * @return the infos of the current session
+     * @since 1.4
+     */
+    public Infos getInfos() {
+        return state.get().infos;
+    }
+
+    /**
+     * Returns the transferred bytes of every POST method
+     *
+     * @return the transferred bytes of every POST method
+     * @since 1.4
+     */
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    /**
+     * Sets the timeouts of all requests which are sent from now on. The defaults are 10 seconds to connect and 60 seconds to read
+     *
+     * @param connectTimeout the timeout to connect to the server, {@link Duration#ZERO} for no timeout
+     * @param readTimeout    the timeout to wait for data of the response, {@link Duration#ZERO} for no timeout
+     * @since 1.4
+     */
+    public static void setTimeouts(Duration connectTimeout, Duration readTimeout) {
+        if (connectTimeout.isNegative() || readTimeout.isNegative()) {
+            throw new IllegalArgumentException("Timeouts must not be negative");
+        }
+        RequestManager.connectTimeout = connectTimeout;
+        RequestManager.readTimeout = readTimeout;
+    }
+
+    /**
+     * Returns the timeout to connect to the server
+     *
+     * @return the connect timeout, {@link Duration#ZERO} for no timeout
+     * @see RequestManager#setTimeouts(Duration, Duration)
+     * @since 1.4
+     */
+    static Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Returns the timeout to wait for data of a response
+     *
+     * @return the read timeout, {@link Duration#ZERO} for no timeout
+     * @see RequestManager#setTimeouts(Duration, Duration)
+     * @since 1.4
+     */
+    static Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Returns the health of the server
+     *
+     * @return the health of the server
+     * @since 1.4
+     */
+    public UpstreamHealth getUpstreamHealth() {
+        return upstreamHealth;
+    }
+
+    /**
+     * Returns the cache of the user
+     *
+     * @return the cache of the user, or null if no cache is used
+     * @since 1.4
+     */
+    public ResponseCache getResponseCache() {
+        return requests;
     }
 
     /**
@@ -231,4 +650,92 @@ public class RequestManager {
     public boolean isCacheUsed() {
         return useCache;
     }
+
+    /**
+     * Immutable snapshot of the session state
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private static class State {
+
+        private final Infos infos;
+        private final boolean loggedIn;
+        private final CompletableFuture<State> login;
+
+        /**
+         * Initialize the {@link State} class
+         *
+         * @param infos    user information of the session
+         * @param loggedIn if the session is logged in
+         * @param login    a pending re-login, {@code null} if there is none
+         * @since 1.4
+         */
+        private State(Infos infos, boolean loggedIn, CompletableFuture<State> login) {
+            this.infos = infos;
+            this.loggedIn = loggedIn;
+            this.login = login;
+        }
+
+        /**
+         * Returns a copy of this state which is logged out
+         *
+         * @return the logged out state
+         * @since 1.4
+         */
+        private State loggedOut() {
+            return new State(infos, false, login);
+        }
+    }
+
+    /**
+     * Exception if the server answers a request with a JSON-RPC error
+     *
+     * @version 1.1
+     * @since 1.4
+     */
+    static class JsonRpcException extends ConnectException {
+
+        private final int code;
+
+        public JsonRpcException(String message, int code) {
+            super(message);
+            this.code = code;
+        }
+
+        /**
+         * Returns the JSON-RPC error code
+         *
+         * @return the error code
+         * @since 1.4
+         */
+        int getCode() {
+            return code;
+        }
+
+        /**
+         * Returns if the same request fails the same way every time, e.g. because the user has no right to call the method
+         *
+         * @return if the error is deterministic
+         * @since 1.4
+         */
+        boolean isDeterministic() {
+            return code == noRightErrorCode || code == methodNotFoundErrorCode;
+        }
+
+    }
+
+    /**
+     * Exception if the server reports that the session id is no longer valid
+     *
+     * @version 1.1
+     * @since 1.4
+     */
+    private static class SessionExpiredException extends JsonRpcException {
+
+        public SessionExpiredException(String message) {
+            super(message, sessionExpiredErrorCode);
+        }
+
+    }
 }
@@ -1,18 +1,35 @@
 package org.bytedream.untis4j;
 
+import org.bytedream.untis4j.json.JsonCodec;
+import org.bytedream.untis4j.json.JsonObject;
 import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponse;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Base class for every response
  *
- * @version 1.0
+ * @version 1.4
  * @since 1.0
  */
 public class Response implements BaseResponse {
 
     private final int code;
-    private final JSONObject response;
+    private final JsonObject json;
+    private volatile JSONObject response;
+    private volatile long fingerprint;
+    private volatile boolean hasFingerprint;
+    private volatile Decoded decoded;
+    private volatile long confirmedAt = System.nanoTime();
+    private volatile int unchangedRefreshes;
+    private final Response origin;
 
     private final Object[] error = new Object[2];
 
@@ -24,11 +41,46 @@ public class Response implements BaseResponse {
      * @since 1.0
      */
     public Response(int code, JSONObject response) {
-        this.code = code;
+        this(code, new JsonObject(response.toMap()));
         this.response = response;
+    }
+
+    /**
+     * Initialize the {@code Response} class
+     *
+     * @param code response code
+     * @param json response content, decoded by a {@link JsonCodec}
+     * @since 1.4
+     */
+    public Response(int code, JsonObject json) {
+        this(code, json, 0, false);
+    }
 
-        if (response.has("error")) {
-            JSONObject errorResponse = response.getJSONObject("error");
+    /**
+     * Initialize the {@code Response} class
+     *
+     * @param code        response code
+     * @param json        response content, decoded by a {@link JsonCodec}
+     * @param fingerprint {@link ContentFingerprint} of the response body
+     * @since 1.4
+     */
+    Response(int code, JsonObject json, long fingerprint) {
+        this(code, json, fingerprint, true);
+    }
+
+    private Response(int code, JsonObject json, long fingerprint, boolean hasFingerprint) {
+        this(code, json, fingerprint, hasFingerprint, null);
+    }
+
+    private Response(int code, JsonObject json, long fingerprint, boolean hasFingerprint, Response origin) {
+        this.code = code;
+        this.fingerprint = fingerprint;
+        this.hasFingerprint = hasFingerprint;
+        this.json = json;
+        this.origin = origin;
+
+        if (json.has("error")) {
+            JsonObject errorResponse = json.getJsonObject("error");
             error[0] = errorResponse.getInt("code");
             error[1] = errorResponse.getString("message");
         } else {
@@ -78,15 +130,175 @@ public class Response implements BaseResponse {
     }
 
     /**
-     * Returns the response
+     * Returns a fast, non-cryptographic fingerprint of the response body.
+     * Responses with the same fingerprint have (with a very high probability) the same content
+     *
+     * @return the fingerprint of the response body
+     * @since 1.4
+     */
+    public long getFingerprint() {
+        if (!hasFingerprint) {
+            // the response wasn't read from the server, so its serialized form is used
+            fingerprint = ContentFingerprint.of(json.toString().getBytes(StandardCharsets.UTF_8));
+            hasFingerprint = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns if this response has the same code and content as {@code other}, judged by their fingerprints
+     *
+     * @param other the other response
+     * @return if both responses have the same content
+     * @since 1.4
+     */
+    boolean isUnchanged(Response other) {
+        return other != null && code == other.code && getFingerprint() == other.getFingerprint();
+    }
+
+    /**
+     * Returns the time ({@link System#nanoTime()}) at which the server returned the content of this response the last time
+     *
+     * @return the time at which the content was last confirmed
+     * @since 1.4
+     */
+    long getConfirmedAt() {
+        return confirmedAt;
+    }
+
+    /**
+     * Returns how often this response was refreshed in a row without changing
+     *
+     * @return the number of unchanged refreshes
+     * @since 1.4
+     */
+    int getUnchangedRefreshes() {
+        return unchangedRefreshes;
+    }
+
+    /**
+     * Marks this response as refreshed without a change
+     *
+     * @since 1.4
+     */
+    void confirmUnchanged() {
+        confirmedAt = System.nanoTime();
+        unchangedRefreshes++;
+    }
+
+    /**
+     * Returns if this response is expired and was returned from the cache because the server couldn't be reached.
+     * Only the response which was returned for this one request is flagged, the cached response itself never is
+     *
+     * @return if the response is stale
+     * @see ResponseCache#setStaleIfError(Duration)
+     * @since 1.4
+     */
+    public boolean isStale() {
+        return origin != null;
+    }
+
+    /**
+     * Returns a stale view of this response. It has the same content and shares the decoded object with this response,
+     * but this response isn't changed
+     *
+     * @return the stale view
+     * @since 1.4
+     */
+    Response asStale() {
+        Response view = new Response(code, json, getFingerprint(), true, origin != null ? origin : this);
+        view.response = response;
+        return view;
+    }
+
+    /**
+     * Decodes this response with {@code consumer}, or returns the object it was decoded to the last time if {@code inputs} are the same as then.
+     *
+     * <p>Together with cached responses which are only replaced if their content changes, the same decoded object is returned
+     * as long as neither the response nor the other inputs of the decoding have changed</p>
+     *
+     * @param consumer the decoder
+     * @param inputs   everything else the decoded object depends on
+     * @return the decoded object
+     * @throws IOException if the decoding fails
+     * @since 1.4
+     */
+    @SuppressWarnings("unchecked")
+    <T extends BaseResponse> T decode(ResponseConsumer<? extends T> consumer, Object... inputs) throws IOException {
+        if (origin != null) {
+            return origin.decode(consumer, inputs);
+        }
+        Decoded decoded = this.decoded;
+        if (decoded != null && decoded.matches(inputs)) {
+            return (T) decoded.value;
+        }
+        T value = consumer.getResponse(this);
+        this.decoded = new Decoded(inputs, value);
+        return value;
+    }
+
+    /**
+     * Returns the object this response was decoded to the last time
+     *
+     * @return the decoded object, or null if the response wasn't decoded yet
+     * @since 1.4
+     */
+    Object getDecoded() {
+        if (origin != null) {
+            return origin.getDecoded();
+        }
+        Decoded decoded = this.decoded;
+        return decoded != null ? decoded.value : null;
+    }
+
+    /**
+     * Returns the response, decoded by the {@link JsonCodec}
      *
      * @return the response
+     * @since 1.4
+     */
+    public JsonObject getJson() {
+        return json;
+    }
+
+    /**
+     * Returns the response as {@code org.json} object. It is only created when this method is called the first time
+     *
+     * @return the response
+     * @see Response#getJson()
      * @since 1.0
      */
     public JSONObject getResponse() {
+        JSONObject response = this.response;
+        if (response == null) {
+            response = (JSONObject) toOrgJson(json.toMap());
+            this.response = response;
+        }
         return response;
     }
 
+    /**
+     * Converts a decoded json value to {@code org.json}, keeping {@code null} values as {@link JSONObject#NULL}
+     *
+     * @param value the decoded json value
+     * @return the {@code org.json} value
+     * @since 1.4
+     */
+    private static Object toOrgJson(Object value) {
+        if (value == null) {
+            return JSONObject.NULL;
+        } else if (value instanceof Map) {
+            JSONObject jsonObject = new JSONObject();
+            ((Map<?, ?>) value).forEach((key, entryValue) -> jsonObject.put(String.valueOf(key), toOrgJson(entryValue)));
+            return jsonObject;
+        } else if (value instanceof List) {
+            JSONArray jsonArray = new JSONArray();
+            ((List<?>) value).forEach(element -> jsonArray.put(toOrgJson(element)));
+            return jsonArray;
+        }
+        return value;
+    }
+
     /**
      * Returns the response as string
      *
@@ -95,6 +307,27 @@ public class Response implements BaseResponse {
      */
     @Override
     public String toString() {
-        return response.toString();
+        return json.toString();
+    }
+
+    /**
+     * An object a response was decoded to, together with the inputs of the decoding
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private static class Decoded {
+
+        private final Object[] inputs;
+        private final Object value;
+
+        private Decoded(Object[] inputs, Object value) {
+            this.inputs = inputs;
+            this.value = value;
+        }
+
+        private boolean matches(Object[] inputs) {
+            return Arrays.deepEquals(this.inputs, inputs);
+        }
     }
 }
@@ -0,0 +1,1157 @@
+package org.bytedream.untis4j;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.bytedream.untis4j.json.JsonCodecs;
+import org.bytedream.untis4j.json.JsonException;
+import org.bytedream.untis4j.json.JsonObject;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Cache for request responses.
+ *
+ * <p>The cache belongs to a user of a school and not to a {@link RequestManager}. Every {@link RequestManager} of the same user, server and school
+ * uses the same cache, so it stays warm if the session gets renewed or a new {@link Session} logs in with the same user.
+ * A refreshed response whose {@link Response#getFingerprint() fingerprint} hasn't changed doesn't replace the cached one.
+ * How long a response is kept and how often it's refreshed depends on its date range, its method and how often it has changed
+ * before: a timetable of last month is refreshed every few hours, one of today every minute.
+ *
+ * <p>With {@link ResponseCache#setPersistentDirectory(Path, Duration)} all responses are also written to a file, so a restarted application
+ * starts with the responses of the last run instead of requesting everything again. These responses are only used if the
+ * {@link Session#getLatestImportTime() latest import time} of the server hasn't changed since they were requested.
+ *
+ * <p>The cache is bounded by the estimated heap memory of its responses and the objects they were decoded to
+ * (see {@link ResponseCache#setMaximumWeight(long)}), not by their number, so a large timetable counts more than a small master data response.
+ *
+ * <p>With {@link ResponseCache#setStaleIfError(Duration)} expired responses are kept for a grace period and returned,
+ * {@link Response#isStale() flagged as stale}, if the server can't be reached to refresh them.
+ *
+ * <p>Requests which fail deterministically, because the user has no right to call the method or the server doesn't know it,
+ * are cached as well, so calling them again throws the same error without a request until it expires
+ * (see {@link ResponseCache#setErrorTimeToLive(Duration)}).
+ *
+ * <p>{@link ResponseCache#getStats()} returns hits, misses, load times and the size of the cache per method,
+ * {@link ResponseCache#getEntries()} the cached responses. Responses can be invalidated by method, element, date range
+ * or any other {@link ResponseCache#invalidate(Predicate) filter}.
+ *
+ * <p>Master data which is the same for the whole school (teachers, rooms, subjects, classes, the timegrid, holidays, ...) isn't cached
+ * per user, but in a {@link ResponseCache#getSharedCache() shared cache} of the school. All users of the same school and the same role
+ * (person type, which decides what they are allowed to see) share one copy of it and one refresh.
+ * See {@link ResponseCache#setSharedMasterData(boolean)}</p>
+ *
+ * @version 1.7
+ * @since 1.4
+ */
+public class ResponseCache {
+
+    private static final Cache<String, ResponseCache> caches = Caffeine.newBuilder().weakValues().build();
+    private static final Duration importTimeCheckInterval = Duration.ofMinutes(1);
+    private static volatile Path persistentDirectory;
+    private static volatile Duration persistentMaxAge;
+    private static volatile OffHeapTimetableStore offHeapStore;
+    private static volatile long defaultMaximumWeight = 64L << 20;
+    private static volatile Duration defaultStaleIfError = Duration.ZERO;
+    private static volatile Duration defaultErrorTimeToLive = Duration.ofMinutes(5);
+    private static volatile boolean sharedMasterData = true;
+    private static final Set<String> sharedMethods = new HashSet<>();
+
+    static {
+        for (UntisUtils.Method method : new UntisUtils.Method[]{UntisUtils.Method.GETTEACHERS, UntisUtils.Method.GETROOMS, UntisUtils.Method.GETSUBJECTS,
+                UntisUtils.Method.GETCLASSES, UntisUtils.Method.GETTIMEGRIDUNTIS, UntisUtils.Method.GETHOLIDAYS, UntisUtils.Method.GETSCHOOLYEARS,
+                UntisUtils.Method.GETCURRENTSCHOOLYEAR, UntisUtils.Method.GETDEPARTMENTS, UntisUtils.Method.GETSTATUSDATA, UntisUtils.Method.GETLATESTIMPORTTIME}) {
+            sharedMethods.add(method.getMethod());
+        }
+    }
+
+    private final LoadingCache<RequestKey, Response> responses;
+    private final LoadingCache<RequestKey, Response> versionedResponses;
+    private final Cache<RequestKey, RequestManager.JsonRpcException> errors;
+    private final PersistentResponseStore store;
+    private final OffHeapTimetableStore timetableStore;
+    private final long maximumWeight;
+    private final Duration staleIfError;
+    private final CacheExpiry expiry;
+    private final Map<String, MethodCounters> counters = new ConcurrentHashMap<>();
+    private final LongAdder storeFailures = new LongAdder();
+    private final ResponseCache shared;
+    // the loaders of all request managers which use this cache, the newest first. They are only weakly referenced, so a cache doesn't keep its request managers alive
+    private final ConcurrentLinkedDeque<WeakReference<CacheLoader<RequestKey, Response>>> loaders = new ConcurrentLinkedDeque<>();
+    // the running or last check of the latest import time, guarded by this cache
+    private CompletableFuture<Long> latestImportTime;
+    private long latestImportTimeCheckedAt;
+    // the result of the last successful check and the failure of the last failed one
+    private volatile Long lastKnownImportTime;
+    private volatile Exception latestImportTimeFailure;
+
+    /**
+     * Initialize the {@link ResponseCache} class
+     *
+     * @param store           the store to which all responses are written as well, null if they are only kept in memory
+     * @param timetableStore  the store which keeps the lessons of timetable responses off-heap, null if they are kept on the heap
+     * @param maximumWeight   the maximal estimated size of all cached responses in bytes
+     * @param staleIfError    the time expired responses are kept to be returned if the server can't be reached
+     * @param errorTimeToLive the time deterministic errors are kept
+     * @param shared          the cache of master data which is shared with other users of the school, null if master data is cached in this cache
+     * @since 1.4
+     */
+    private ResponseCache(PersistentResponseStore store, OffHeapTimetableStore timetableStore, long maximumWeight, Duration staleIfError, Duration errorTimeToLive, ResponseCache shared) {
+        this.store = store;
+        this.shared = shared;
+        this.timetableStore = timetableStore;
+        this.maximumWeight = maximumWeight;
+        this.staleIfError = staleIfError;
+        this.expiry = new CacheExpiry(staleIfError);
+        // the budget is split equally between refreshed and versioned responses
+        responses = Caffeine.newBuilder().maximumWeight(maximumWeight / 2).weigher(ResponseCache::weigh).evictionListener(this::evicted).expireAfter(expiry).refreshAfterWrite(CacheExpiry.minimalRefreshInterval).build(new CacheLoader<RequestKey, Response>() {
+            @Override
+            public Response load(RequestKey request) throws Exception {
+                return offHeap(request, ResponseCache.this.load(request));
+            }
+
+            @Override
+            public Response reload(RequestKey request, Response oldResponse) throws Exception {
+                if (System.nanoTime() - oldResponse.getConfirmedAt() < expiry.refreshInterval(request, oldResponse).toNanos()) {
+                    // the refresh of this response isn't due yet
+                    return oldResponse;
+                }
+                Response response = fetch(request);
+                if (oldResponse.isUnchanged(response)) {
+                    // an unchanged response keeps its instance, so objects which were decoded from it can be reused
+                    oldResponse.confirmUnchanged();
+                    return oldResponse;
+                }
+                return offHeap(request, response);
+            }
+        });
+        // versioned responses are only replaced by a new version, so they can be kept much longer
+        versionedResponses = Caffeine.newBuilder().maximumWeight(maximumWeight / 2).weigher(ResponseCache::weigh).evictionListener(this::evicted).expireAfterAccess(Duration.ofDays(1)).build(this::load);
+        // errors are tiny and the number of methods is limited, so they don't count to the weight
+        errors = Caffeine.newBuilder().maximumSize(1024).expireAfterWrite(errorTimeToLive).build();
+    }
+
+    /**
+     * Makes all caches which are created from now on write their responses to a file in {@code directory}, one file per user.
+     * After a restart, a cache starts with the responses of its file, if they aren't older than {@code maxAge} and the
+     * {@link Session#getLatestImportTime() latest import time} of the server hasn't changed since they were requested.
+     *
+     * <p>This should be called before the first login. A directory must only be used by one application at the same time</p>
+     *
+     * @param directory the directory of the files, or null if responses should only be kept in memory
+     * @param maxAge    the maximal age of responses which are read from a file
+     * @since 1.4
+     */
+    public static void setPersistentDirectory(Path directory, Duration maxAge) {
+        persistentMaxAge = maxAge;
+        persistentDirectory = directory;
+    }
+
+    /**
+     * Keeps the lessons of all timetables which are created from now on off-heap, in direct memory of {@code capacity} bytes.
+     * If the memory is full, the oldest timetables are removed from the cache.
+     *
+     * <p>This should be called before the first login. Only the lessons are kept off-heap, timetables are decoded
+     * every time they are requested. The returned {@link org.bytedream.untis4j.responseObjects.Timetable}s are on the heap and
+     * can be collected as soon as they aren't used anymore</p>
+     *
+     * @param capacity the direct memory for cached lessons in bytes, or 0 if they should be kept on the heap
+     * @since 1.4
+     */
+    public static void setOffHeapTimetableCapacity(long capacity) {
+        offHeapStore = capacity > 0 ? new OffHeapTimetableStore(capacity) : null;
+    }
+
+    /**
+     * Sets the maximal estimated heap memory of every cache which is created from now on. If a cache exceeds it, the
+     * least used responses are removed. The default is 64 MiB.
+     *
+     * <p>This should be called before the first login. Every user has its own cache, so the budget of the application
+     * is the maximal weight times the number of users which are logged in at the same time. The estimate contains the responses
+     * and the objects they were decoded to, lessons which are kept off-heap (see {@link ResponseCache#setOffHeapTimetableCapacity(long)})
+     * aren't part of it</p>
+     *
+     * @param maximumWeight the maximal estimated size of all responses of a cache in bytes
+     * @throws IllegalArgumentException if {@code maximumWeight} is negative
+     * @since 1.4
+     */
+    public static void setMaximumWeight(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight must not be negative");
+        }
+        defaultMaximumWeight = maximumWeight;
+    }
+
+    /**
+     * Keeps expired responses of every cache which is created from now on for {@code gracePeriod}. If such a response is requested,
+     * it's refreshed first. If the server can't be reached (e.g. it times out or is {@link UpstreamHealth unavailable}),
+     * the expired response is returned and {@link Response#isStale()} (or {@link org.bytedream.untis4j.responseObjects.baseObjects.BaseResponseLists.ResponseList#isStale()}
+     * for decoded responses) is true. Errors reported by the server itself are still thrown.
+     *
+     * <p>This should be called before the first login. The default is no grace period, expired responses are removed</p>
+     *
+     * @param gracePeriod the time expired responses are kept, {@link Duration#ZERO} to disable it
+     * @throws IllegalArgumentException if {@code gracePeriod} is negative
+     * @since 1.4
+     */
+    public static void setStaleIfError(Duration gracePeriod) {
+        if (gracePeriod.isNegative()) {
+            throw new IllegalArgumentException("gracePeriod must not be negative");
+        }
+        defaultStaleIfError = gracePeriod;
+    }
+
+    /**
+     * Sets if master data which is the same for the whole school (teachers, rooms, subjects, classes, the timegrid, holidays, school years,
+     * departments, status data and the latest import time) is cached in a cache which all users of the same school and role share,
+     * instead of once per user. The default is true.
+     *
+     * <p>This should be called before the first login. It should be disabled if users of the same role have different rights for master data</p>
+     *
+     * @param shared if master data is shared
+     * @since 1.4
+     */
+    public static void setSharedMasterData(boolean shared) {
+        sharedMasterData = shared;
+    }
+
+    /**
+     * Sets how long every cache which is created from now on keeps errors of requests which fail deterministically,
+     * because the user has no right to call the method or the server doesn't know it. Until such an error expires,
+     * the request isn't sent again and the error is thrown immediately. The default is 5 minutes.
+     *
+     * <p>This should be called before the first login. Requests with {@link CacheControl#forceRefresh()} are always sent</p>
+     *
+     * @param timeToLive the time errors are kept, {@link Duration#ZERO} to not keep them
+     * @throws IllegalArgumentException if {@code timeToLive} is negative
+     * @since 1.4
+     */
+    public static void setErrorTimeToLive(Duration timeToLive) {
+        if (timeToLive.isNegative()) {
+            throw new IllegalArgumentException("timeToLive must not be negative");
+        }
+        defaultErrorTimeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the estimated heap memory of all responses of all caches together
+     *
+     * @return the estimated size of all cached responses in bytes
+     * @since 1.4
+     */
+    public static long getTotalWeight() {
+        long totalWeight = 0;
+        for (ResponseCache responseCache : caches.asMap().values()) {
+            totalWeight += responseCache.getWeight();
+        }
+        return totalWeight;
+    }
+
+    /**
+     * Returns the estimated heap memory of all responses of this cache
+     *
+     * @return the estimated size of all cached responses in bytes
+     * @since 1.4
+     */
+    public long getWeight() {
+        return responses.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L)
+                + versionedResponses.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /**
+     * Returns the maximal estimated heap memory of all responses of this cache
+     *
+     * @return the maximal estimated size of all cached responses in bytes
+     * @since 1.4
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the cache of master data which this cache shares with other users of the same school and role
+     *
+     * @return the shared cache, or null if master data is cached in this cache
+     * @see ResponseCache#setSharedMasterData(boolean)
+     * @since 1.4
+     */
+    public ResponseCache getSharedCache() {
+        return shared;
+    }
+
+    /**
+     * Returns the statistics of this cache, per method. Master data which is cached in the {@link ResponseCache#getSharedCache() shared cache}
+     * is included, its counters are those of all users of the shared cache
+     *
+     * @return a snapshot of the statistics
+     * @since 1.4
+     */
+    public ResponseCacheStats getStats() {
+        Map<String, long[]> methods = new HashMap<>();
+        collectStats(methods);
+        long maximumWeight = this.maximumWeight;
+        long storeFailureCount = storeFailures.sum();
+        if (shared != null) {
+            shared.collectStats(methods);
+            maximumWeight += shared.maximumWeight;
+            storeFailureCount += shared.storeFailures.sum();
+        }
+
+        Map<String, ResponseCacheStats.MethodStats> methodStats = new HashMap<>();
+        methods.forEach((method, stats) -> methodStats.put(method, new ResponseCacheStats.MethodStats(method, Math.max(0, stats[0] - stats[1]), stats[1],
+                stats[2], stats[3], stats[4], stats[5], stats[6], stats[7])));
+        return new ResponseCacheStats(methodStats, maximumWeight, storeFailureCount);
+    }
+
+    /**
+     * Adds the counters and cached responses of this cache, without the shared cache, to {@code methods}.
+     * Per method these are the requests, misses, loads, load failures, load time, evictions, cached responses and their weight
+     */
+    private void collectStats(Map<String, long[]> methods) {
+        counters.forEach((method, methodCounters) -> {
+            long[] stats = methods.computeIfAbsent(method, m -> new long[8]);
+            stats[0] += methodCounters.requests.sum();
+            stats[1] += methodCounters.misses.sum();
+            stats[2] += methodCounters.loads.sum();
+            stats[3] += methodCounters.loadFailures.sum();
+            stats[4] += methodCounters.loadTime.sum();
+            stats[5] += methodCounters.evictions.sum();
+        });
+        for (Entry entry : ownEntries()) {
+            long[] stats = methods.computeIfAbsent(entry.getMethod(), m -> new long[8]);
+            stats[6]++;
+            stats[7] += entry.getWeight();
+        }
+    }
+
+    /**
+     * Returns all cached responses, including the master data in the {@link ResponseCache#getSharedCache() shared cache}
+     *
+     * @return the cached responses
+     * @since 1.4
+     */
+    public List<Entry> getEntries() {
+        List<Entry> entries = ownEntries();
+        if (shared != null) {
+            entries.addAll(shared.ownEntries());
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the cached responses of this cache, without the shared cache
+     */
+    private List<Entry> ownEntries() {
+        List<Entry> entries = new ArrayList<>();
+        addEntries(responses, entries, true);
+        addEntries(versionedResponses, entries, false);
+        return entries;
+    }
+
+    /**
+     * Returns all cached responses which match {@code filter}, e.g. {@code getEntries(entry -> entry.getMethod().equals("getTimetable"))}
+     *
+     * @param filter the filter
+     * @return the matching cached responses
+     * @since 1.4
+     */
+    public List<Entry> getEntries(Predicate<Entry> filter) {
+        List<Entry> entries = getEntries();
+        entries.removeIf(filter.negate());
+        return entries;
+    }
+
+    private void addEntries(LoadingCache<RequestKey, Response> cache, List<Entry> entries, boolean expires) {
+        Optional<Policy.Eviction<RequestKey, Response>> eviction = cache.policy().eviction();
+        // iterating the map doesn't count as access, so it doesn't change which responses are evicted first
+        cache.asMap().forEach((request, response) -> entries.add(new Entry(request, response, eviction.map(e -> e.weightOf(request).orElse(0)).orElse(0),
+                expires && expiry.isExpired(request, response))));
+    }
+
+    /**
+     * Removes all cached responses (and cached errors) which match {@code filter}, in memory and in the persistent store.
+     * The next request for them is sent to the server. Matching master data is removed from the {@link ResponseCache#getSharedCache() shared cache},
+     * so for all users of the school.
+     * If the persistent store can't be written, the removed responses are still not returned, but a failure is counted
+     * (see {@link ResponseCacheStats#getStoreFailureCount()}) and they may be used again after a restart
+     *
+     * @param filter the filter
+     * @return the number of removed responses which were in memory
+     * @since 1.4
+     */
+    public int invalidate(Predicate<Entry> filter) {
+        int invalidated = shared != null ? shared.invalidate(filter) : 0;
+        for (Entry entry : ownEntries()) {
+            if (filter.test(entry)) {
+                responses.invalidate(entry.request);
+                versionedResponses.invalidate(entry.request);
+                invalidated++;
+            }
+        }
+        errors.asMap().keySet().removeIf(request -> filter.test(new Entry(request, null, 0, false)));
+        if (store != null) {
+            try {
+                store.removeIf(request -> filter.test(new Entry(request, null, 0, false)));
+            } catch (IOException e) {
+                storeFailures.increment();
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * Removes all cached responses of {@code method}
+     *
+     * @param method the POST method
+     * @return the number of removed responses which were in memory
+     * @see ResponseCache#invalidate(Predicate)
+     * @since 1.4
+     */
+    public int invalidateMethod(String method) {
+        return invalidate(entry -> entry.getMethod().equals(method));
+    }
+
+    /**
+     * Removes all cached responses which were requested for an element, e.g. the timetable of a class
+     *
+     * @param elementType the type of the element
+     * @param id          the id of the element
+     * @return the number of removed responses which were in memory
+     * @see ResponseCache#invalidate(Predicate)
+     * @since 1.4
+     */
+    public int invalidateElement(UntisUtils.ElementType elementType, int id) {
+        return invalidate(entry -> entry.getElementType() == elementType && entry.getElementId() != null && entry.getElementId() == id);
+    }
+
+    /**
+     * Removes all cached responses whose date range overlaps with {@code start} to {@code end}. Responses without a date range are kept
+     *
+     * @param start the first day of the range
+     * @param end   the last day of the range
+     * @return the number of removed responses which were in memory
+     * @see ResponseCache#invalidate(Predicate)
+     * @since 1.4
+     */
+    public int invalidateDateRange(LocalDate start, LocalDate end) {
+        return invalidate(entry -> entry.overlaps(start, end));
+    }
+
+    /**
+     * Removes all cached responses and errors, in memory and in the persistent store, including the master data in the shared cache
+     *
+     * @since 1.4
+     */
+    public void invalidateAll() {
+        invalidate(entry -> true);
+        responses.invalidateAll();
+        versionedResponses.invalidateAll();
+        if (shared != null) {
+            shared.responses.invalidateAll();
+            shared.versionedResponses.invalidateAll();
+        }
+    }
+
+    /**
+     * Counts an evicted response
+     */
+    private void evicted(RequestKey request, Response response, RemovalCause cause) {
+        counters(request).evictions.increment();
+    }
+
+    /**
+     * Returns the counters of the method of {@code request}
+     */
+    private MethodCounters counters(RequestKey request) {
+        return counters.computeIfAbsent(request.getMethod(), method -> new MethodCounters());
+    }
+
+    /**
+     * Returns the weight of a cached response, its estimated size in bytes
+     */
+    private static int weigh(RequestKey request, Response response) {
+        return (int) Math.min(Integer.MAX_VALUE, RetainedSize.of(request, response));
+    }
+
+    /**
+     * Moves the lessons of a timetable response off-heap, if an off-heap store is used
+     */
+    private Response offHeap(RequestKey request, Response response) {
+        if (timetableStore != null && UntisUtils.Method.GETTIMETABLE.getMethod().equals(request.getMethod())) {
+            return timetableStore.store(response);
+        }
+        return response;
+    }
+
+    /**
+     * Loads a response which isn't in memory, from the persistent store if it holds a valid one or else from the server
+     */
+    private Response load(RequestKey request) throws Exception {
+        counters(request).misses.increment();
+        if (store != null) {
+            Long latestImportTime = getLatestImportTime();
+            if (latestImportTime != null) {
+                try {
+                    Response stored = store.get(request, latestImportTime);
+                    if (stored != null) {
+                        return stored;
+                    }
+                } catch (IOException e) {
+                    // the response is requested from the server instead
+                    storeFailures.increment();
+                }
+            }
+        }
+        return fetch(request);
+    }
+
+    /**
+     * Requests a response from the server and writes it to the persistent store
+     */
+    private Response fetch(RequestKey request) throws Exception {
+        // the import time is checked before the request is sent, so a stored response can't be newer than its import time
+        Long latestImportTime = store != null ? getLatestImportTime() : null;
+        MethodCounters methodCounters = counters(request);
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = send(request);
+        } catch (Exception e) {
+            methodCounters.loadFailures.increment();
+            if (e instanceof RequestManager.JsonRpcException && ((RequestManager.JsonRpcException) e).isDeterministic()) {
+                errors.put(request, (RequestManager.JsonRpcException) e);
+            }
+            throw e;
+        } finally {
+            methodCounters.loadTime.add(System.nanoTime() - start);
+        }
+        methodCounters.loads.increment();
+        errors.invalidate(request);
+        if (latestImportTime != null && response != null) {
+            try {
+                store.put(request, response, latestImportTime);
+            } catch (IOException e) {
+                // the response is still returned and kept in memory
+                storeFailures.increment();
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Returns the latest import time of the server, as the cache directives {@code cacheControl} demand.
+     *
+     * <p>It is requested at most once per minute, or at once if {@link CacheControl#isForceRefresh()} is set.
+     * With {@link CacheControl#isOnlyIfCached()} or if the request fails, the last known import time is returned</p>
+     *
+     * @param cacheControl the cache directives
+     * @return the latest import time
+     * @throws IOException if the import time couldn't be requested and isn't known yet,
+     *                     or {@link CacheMissException} if it isn't known yet but {@link CacheControl#isOnlyIfCached()} is set
+     * @since 1.4
+     */
+    long getLatestImportTime(CacheControl cacheControl) throws IOException {
+        if (!cacheControl.isOnlyIfCached()) {
+            Long latestImportTime = getLatestImportTime(cacheControl.isForceRefresh());
+            if (latestImportTime != null) {
+                return latestImportTime;
+            }
+        }
+        Long known = lastKnownImportTime;
+        if (known != null) {
+            return known;
+        } else if (cacheControl.isOnlyIfCached()) {
+            throw new CacheMissException("The latest import time isn't known yet");
+        }
+        Exception failure = latestImportTimeFailure;
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        throw new IOException("The latest import time couldn't be requested", failure);
+    }
+
+    /**
+     * Returns the latest import time of the server. It is requested at most once per minute,
+     * threads which need it while it is requested wait for the running request instead of sending their own
+     *
+     * @return the latest import time, or null if it couldn't be requested
+     */
+    private Long getLatestImportTime() {
+        return getLatestImportTime(false);
+    }
+
+    /**
+     * @param force if the import time should be requested even if it was checked less than a minute ago
+     */
+    private Long getLatestImportTime(boolean force) {
+        CompletableFuture<Long> check;
+        boolean requesting = false;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (latestImportTime == null || (latestImportTime.isDone() && (force || now - latestImportTimeCheckedAt >= importTimeCheckInterval.toNanos()))) {
+                latestImportTime = new CompletableFuture<>();
+                latestImportTimeCheckedAt = now;
+                requesting = true;
+            }
+            check = latestImportTime;
+        }
+
+        if (requesting) {
+            // the request is sent without holding the lock, so other threads can still read the last import time
+            Long result = null;
+            Exception failure = null;
+            String method = UntisUtils.Method.GETLATESTIMPORTTIME.getMethod();
+            RequestKey request = new RequestKey(method, RequestEncoder.encode(method, new HashMap<>()));
+            MethodCounters methodCounters = counters(request);
+            long start = System.nanoTime();
+            try {
+                Response response = send(request);
+                if (response != null) {
+                    result = response.getJson().getLong("result");
+                }
+            } catch (Exception e) {
+                // without the import time the persistent store isn't used, the failure is counted below
+                failure = e;
+            } finally {
+                methodCounters.loadTime.add(System.nanoTime() - start);
+            }
+            if (result != null) {
+                methodCounters.loads.increment();
+                lastKnownImportTime = result;
+            } else {
+                methodCounters.loadFailures.increment();
+                latestImportTimeFailure = failure;
+            }
+            if (result == null) {
+                synchronized (this) {
+                    // a failed check isn't kept, the next call tries again
+                    if (latestImportTime == check) {
+                        latestImportTime = null;
+                    }
+                }
+            }
+            check.complete(result);
+        }
+        return check.join();
+    }
+
+    /**
+     * Sends a request to the server, with the newest loader whose request manager is still logged in
+     */
+    private Response send(RequestKey request) throws Exception {
+        LoginException notLoggedIn = null;
+        for (Iterator<WeakReference<CacheLoader<RequestKey, Response>>> iterator = loaders.iterator(); iterator.hasNext(); ) {
+            CacheLoader<RequestKey, Response> loader = iterator.next().get();
+            if (loader == null) {
+                iterator.remove();
+                continue;
+            }
+            try {
+                return loader.load(request);
+            } catch (LoginException e) {
+                // the request manager has logged out, another one has to send the request
+                iterator.remove();
+                notLoggedIn = e;
+            }
+        }
+        throw notLoggedIn != null ? notLoggedIn : new LoginException("No logged in session uses this cache");
+    }
+
+    /**
+     * Returns the cache of the user which is described by {@code infos} and adds {@code loader} to the loaders for new or expired responses.
+     * The cache is only kept as long as a {@link RequestManager} is using it, the loader only as long as the {@link RequestManager} is referenced.
+     * The loader has to throw a {@link LoginException} if its {@link RequestManager} isn't logged in anymore
+     *
+     * @param infos  infos of the user
+     * @param loader loader which sends the request if it isn't cached
+     * @return the cache of the user
+     * @since 1.4
+     */
+    static ResponseCache of(Infos infos, CacheLoader<RequestKey, Response> loader) {
+        ResponseCache shared = null;
+        if (sharedMasterData) {
+            // the role decides which master data a user is allowed to see
+            shared = of("shared|" + infos.getServer() + "|" + infos.getSchoolName() + "|" + infos.getPersonType(), null);
+            shared.loaders.addFirst(new WeakReference<>(loader));
+        }
+        ResponseCache responseCache = of(infos.getServer() + "|" + infos.getSchoolName() + "|" + infos.getUsername(), shared);
+        responseCache.loaders.addFirst(new WeakReference<>(loader));
+        return responseCache;
+    }
+
+    private static ResponseCache of(String key, ResponseCache shared) {
+        return caches.get(key, k -> {
+            Path directory = persistentDirectory;
+            if (directory == null) {
+                return new ResponseCache(null, offHeapStore, defaultMaximumWeight, defaultStaleIfError, defaultErrorTimeToLive, shared);
+            }
+            String file = Long.toHexString(ContentFingerprint.of(k.getBytes(StandardCharsets.UTF_8))) + ".cache";
+            return new ResponseCache(PersistentResponseStore.of(directory.resolve(file), persistentMaxAge), offHeapStore, defaultMaximumWeight, defaultStaleIfError, defaultErrorTimeToLive, shared);
+        });
+    }
+
+    /**
+     * Returns the cached response of the request or loads it if it isn't in the cache
+     *
+     * @param request the request
+     * @return the response
+     * @throws IOException if an IO Exception occurs while loading
+     * @since 1.4
+     */
+    Response get(RequestKey request) throws IOException {
+        throwCachedError(request);
+        Response response = get(responses, request);
+        if (OffHeapTimetableStore.isEvicted(response)) {
+            responses.invalidate(request);
+            response = get(responses, request);
+        }
+        if (expiry.isExpired(request, response)) {
+            // the response is only kept because of the grace period
+            return refreshOrStale(request, response);
+        }
+        return response;
+    }
+
+    /**
+     * Returns the response of the request, as the cache directives {@code cacheControl} demand
+     *
+     * @param request      the request
+     * @param cacheControl the cache directives. {@link CacheControl#isNoStore()} has to be handled by the caller
+     * @return the response
+     * @throws IOException if an IO Exception occurs while loading or the response isn't cached but {@link CacheControl#isOnlyIfCached()} is set
+     * @since 1.4
+     */
+    Response get(RequestKey request, CacheControl cacheControl) throws IOException {
+        if (shared != null && sharedMethods.contains(request.getMethod())) {
+            return shared.get(request, cacheControl);
+        }
+        counters(request).requests.increment();
+        if (cacheControl.isForceRefresh()) {
+            return refresh(request);
+        } else if (!cacheControl.isOnlyIfCached() && cacheControl.getMaxStale() == null) {
+            return get(request);
+        }
+        throwCachedError(request);
+
+        Response cached = responses.policy().getIfPresentQuietly(request);
+        if (cached != null && OffHeapTimetableStore.isEvicted(cached)) {
+            responses.invalidate(request);
+            cached = null;
+        }
+        Response overdueResponse = null;
+        if (cached != null && cacheControl.getMaxStale() != null) {
+            long overdue = System.nanoTime() - cached.getConfirmedAt() - expiry.refreshInterval(request, cached).toNanos();
+            if (overdue > cacheControl.getMaxStale().toNanos()) {
+                overdueResponse = cached;
+                cached = null;
+            }
+        }
+
+        if (cached != null) {
+            // a regular read, so the access is recorded and a due refresh is started in the background
+            Response response = responses.getIfPresent(request);
+            if (response == null) {
+                response = cached;
+            }
+            if (expiry.isExpired(request, response)) {
+                if (cacheControl.isOnlyIfCached()) {
+                    return response.asStale();
+                }
+                return refreshOrStale(request, response);
+            }
+            return response;
+        } else if (cacheControl.isOnlyIfCached()) {
+            counters(request).misses.increment();
+            throw new CacheMissException("No cached response for " + request.getMethod());
+        } else if (overdueResponse != null) {
+            return refreshOrStale(request, overdueResponse);
+        }
+        return refresh(request);
+    }
+
+    /**
+     * Refreshes a cached response. If the server can't be reached and a grace period is set, {@code cached} is returned as stale response
+     */
+    private Response refreshOrStale(RequestKey request, Response cached) throws IOException {
+        try {
+            return refresh(request);
+        } catch (RequestManager.JsonRpcException e) {
+            throw e;
+        } catch (IOException e) {
+            if (staleIfError.isZero()) {
+                throw e;
+            }
+            return cached.asStale();
+        }
+    }
+
+    /**
+     * Requests a response from the server and replaces the cached one with it. If it hasn't changed, the cached instance is kept
+     */
+    private Response refresh(RequestKey request) throws IOException {
+        counters(request).misses.increment();
+        Response response = fetchOrThrow(request);
+        return responses.asMap().compute(request, (key, cached) -> {
+            if (cached != null && cached.isUnchanged(response)) {
+                cached.confirmUnchanged();
+                return cached;
+            }
+            return offHeap(key, response);
+        });
+    }
+
+    /**
+     * Throws the error of the request again, if it has failed deterministically before
+     */
+    private void throwCachedError(RequestKey request) throws RequestManager.JsonRpcException {
+        RequestManager.JsonRpcException error = errors.getIfPresent(request);
+        if (error != null) {
+            // a new exception, so the stack trace shows the current caller
+            throw new RequestManager.JsonRpcException(error.getMessage(), error.getCode());
+        }
+    }
+
+    private Response fetchOrThrow(RequestKey request) throws IOException {
+        try {
+            return fetch(request);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the cached response of the versioned request or loads it if it isn't in the cache.
+     *
+     * <p>Versioned responses don't get refreshed, they are kept as long as they are used. A new version of the request is a new key</p>
+     *
+     * @param request the versioned request
+     * @return the response
+     * @throws IOException if an IO Exception occurs while loading
+     * @since 1.4
+     */
+    Response getVersioned(RequestKey request) throws IOException {
+        throwCachedError(request);
+        return get(versionedResponses, request);
+    }
+
+    /**
+     * Returns the response of the versioned request, as the cache directives {@code cacheControl} demand.
+     * Versioned responses are never stale, so {@link CacheControl#getMaxStale()} doesn't matter
+     *
+     * @param request      the versioned request
+     * @param cacheControl the cache directives. {@link CacheControl#isNoStore()} has to be handled by the caller
+     * @return the response
+     * @throws IOException if an IO Exception occurs while loading or the response isn't cached but {@link CacheControl#isOnlyIfCached()} is set
+     * @since 1.4
+     */
+    Response getVersioned(RequestKey request, CacheControl cacheControl) throws IOException {
+        if (shared != null && sharedMethods.contains(request.getMethod())) {
+            return shared.getVersioned(request, cacheControl);
+        }
+        counters(request).requests.increment();
+        if (cacheControl.isForceRefresh()) {
+            counters(request).misses.increment();
+            Response response = fetchOrThrow(request);
+            versionedResponses.put(request, response);
+            return response;
+        } else if (cacheControl.isOnlyIfCached()) {
+            throwCachedError(request);
+            Response response = versionedResponses.getIfPresent(request);
+            if (response == null) {
+                counters(request).misses.increment();
+                throw new CacheMissException("No cached response for " + request.getMethod());
+            }
+            return response;
+        }
+        return getVersioned(request);
+    }
+
+    private static Response get(LoadingCache<RequestKey, Response> cache, RequestKey request) throws IOException {
+        try {
+            return cache.get(request);
+        } catch (CompletionException | UncheckedIOException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A cached response, see {@link ResponseCache#getEntries()}
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    public static class Entry {
+
+        private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+        private final RequestKey request;
+        private final Response response;
+        private final int weight;
+        private final boolean stale;
+        private JsonObject params;
+
+        /**
+         * Initialize the {@link Entry} class
+         *
+         * @param request  the request
+         * @param response the cached response, null if only the request is known
+         * @param weight   the estimated size of the response in bytes
+         * @param stale    if the response is expired
+         * @since 1.4
+         */
+        private Entry(RequestKey request, Response response, int weight, boolean stale) {
+            this.request = request;
+            this.response = response;
+            this.weight = weight;
+            this.stale = stale;
+        }
+
+        /**
+         * Returns the POST method
+         *
+         * @return the POST method
+         * @since 1.4
+         */
+        public String getMethod() {
+            return request.getMethod();
+        }
+
+        /**
+         * Returns the params of the request
+         *
+         * @return the params of the request, read-only
+         * @since 1.4
+         */
+        public JsonObject getParams() {
+            return params();
+        }
+
+        /**
+         * Returns if the response belongs to a version of the server data, see {@link RequestManager#VersionedPOST(String, Map, long)}
+         *
+         * @return if the response is versioned
+         * @since 1.4
+         */
+        public boolean isVersioned() {
+            return request.getVersion() != 0;
+        }
+
+        /**
+         * Returns the estimated heap memory of the response
+         *
+         * @return the estimated size of the response in bytes
+         * @since 1.4
+         */
+        public int getWeight() {
+            return weight;
+        }
+
+        /**
+         * Returns the time since the server returned the content of the response the last time
+         *
+         * @return the age of the response, or null if only the request is known (e.g. while it's {@link ResponseCache#invalidate(Predicate) invalidated} in the persistent store)
+         * @since 1.4
+         */
+        public Duration getAge() {
+            return response != null ? Duration.ofNanos(System.nanoTime() - response.getConfirmedAt()) : null;
+        }
+
+        /**
+         * Returns if the response is expired, so it is only returned as stale response (see {@link Response#isStale()}) until it's refreshed
+         *
+         * @return if the response is stale
+         * @since 1.4
+         */
+        public boolean isStale() {
+            return stale;
+        }
+
+        /**
+         * Returns the type of the element the request was sent for
+         *
+         * @return the element type, or null if the request isn't for a single element
+         * @since 1.4
+         */
+        public UntisUtils.ElementType getElementType() {
+            JsonObject element = element();
+            if (element == null) {
+                return null;
+            }
+            try {
+                return UntisUtils.ElementType.of(element.getInt("type"));
+            } catch (JsonException | EnumConstantNotPresentException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Returns the id of the element the request was sent for
+         *
+         * @return the element id, or null if the request isn't for a single element
+         * @since 1.4
+         */
+        public Integer getElementId() {
+            JsonObject element = element();
+            if (element == null) {
+                return null;
+            }
+            try {
+                return element.getInt("id");
+            } catch (JsonException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Returns the first day of the date range of the request
+         *
+         * @return the first day, or null if the request has no date range
+         * @since 1.4
+         */
+        public LocalDate getStartDate() {
+            return date("startDate");
+        }
+
+        /**
+         * Returns the last day of the date range of the request
+         *
+         * @return the last day, or null if the request has no date range
+         * @since 1.4
+         */
+        public LocalDate getEndDate() {
+            return date("endDate");
+        }
+
+        /**
+         * Returns if the date range of the request overlaps with {@code start} to {@code end}
+         */
+        private boolean overlaps(LocalDate start, LocalDate end) {
+            LocalDate startDate = getStartDate();
+            LocalDate endDate = getEndDate();
+            if (startDate == null && endDate == null) {
+                return false;
+            }
+            return (startDate == null || !startDate.isAfter(end)) && (endDate == null || !endDate.isBefore(start));
+        }
+
+        /**
+         * Returns the params of the request, decoded once from the request body
+         */
+        private JsonObject params() {
+            if (params == null) {
+                JsonObject params = null;
+                try {
+                    params = object(new JsonObject(JsonCodecs.getDefault().decode(new ByteArrayInputStream(request.getRequest()))), "params");
+                } catch (IOException | JsonException ignore) {
+                    // the request was encoded by this library, so it's always valid json
+                }
+                this.params = params != null ? params : new JsonObject(new HashMap<>());
+            }
+            return params;
+        }
+
+        /**
+         * Returns the params which describe the requested data. Timetable requests wrap them in {@code options}
+         */
+        private JsonObject options() {
+            JsonObject options = object(params(), "options");
+            return options != null ? options : params();
+        }
+
+        private JsonObject element() {
+            JsonObject element = object(options(), "element");
+            if (element == null && options().has("type") && options().has("id")) {
+                element = options();
+            }
+            return element;
+        }
+
+        /**
+         * Returns the json object value of {@code key}, or null if there is none
+         */
+        private static JsonObject object(JsonObject json, String key) {
+            return json.get(key) instanceof Map ? json.getJsonObject(key) : null;
+        }
+
+        private LocalDate date(String param) {
+            Object date = options().get(param);
+            if (date == null) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(date.toString(), dateFormat);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Returns a json parsed string with all information
+         *
+         * @return a json parsed string with all information
+         * @since 1.4
+         */
+        @Override
+        public String toString() {
+            HashMap<String, Object> entryAsMap = new HashMap<>();
+
+            entryAsMap.put("method", getMethod());
+            entryAsMap.put("params", params().toMap());
+            entryAsMap.put("versioned", isVersioned());
+            entryAsMap.put("weight", weight);
+            entryAsMap.put("age", response != null ? getAge().toString() : null);
+            entryAsMap.put("stale", isStale());
+
+            return new JSONObject(entryAsMap).toString();
+        }
+    }
+
+    /**
+     * Counters of the requests of a single method
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private static class MethodCounters {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder loads = new LongAdder();
+        private final LongAdder loadFailures = new LongAdder();
+        private final LongAdder loadTime = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+    }
+}
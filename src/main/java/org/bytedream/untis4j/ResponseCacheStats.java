@@ -0,0 +1,376 @@
+package org.bytedream.untis4j;
+
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of the statistics of a {@link ResponseCache}, see {@link ResponseCache#getStats()}
+ *
+ * <p>A hit is a request which was answered without waiting for the server, a miss one which had to wait for it
+ * (because the response wasn't cached, was too old for the cache directives or was requested with {@link CacheControl#forceRefresh()}).
+ * Loads are all requests the cache sent to the server, including refreshes in the background.
+ * The totals are the sums of all methods. Reads and writes of the persistent store which failed are counted separately,
+ * the cache then falls back to the server or only keeps the response in memory</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class ResponseCacheStats {
+
+    private final Map<String, MethodStats> methods;
+    private final long maximumWeight;
+    private final long storeFailureCount;
+
+    /**
+     * Initialize the {@link ResponseCacheStats} class
+     *
+     * @param methods           the statistics of every method, mapped by the method name
+     * @param maximumWeight     the maximal estimated size of all cached responses in bytes
+     * @param storeFailureCount the number of failed reads and writes of the persistent store
+     * @since 1.4
+     */
+    ResponseCacheStats(Map<String, MethodStats> methods, long maximumWeight, long storeFailureCount) {
+        this.methods = Collections.unmodifiableMap(new TreeMap<>(methods));
+        this.maximumWeight = maximumWeight;
+        this.storeFailureCount = storeFailureCount;
+    }
+
+    /**
+     * Returns the statistics of every method which was requested or is cached
+     *
+     * @return the statistics of every method, mapped by the method name
+     * @since 1.4
+     */
+    public Map<String, MethodStats> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Returns the number of requests which were answered from the cache
+     *
+     * @return the number of hits
+     * @since 1.4
+     */
+    public long getHitCount() {
+        return methods.values().stream().mapToLong(MethodStats::getHitCount).sum();
+    }
+
+    /**
+     * Returns the number of requests which had to wait for the server
+     *
+     * @return the number of misses
+     * @since 1.4
+     */
+    public long getMissCount() {
+        return methods.values().stream().mapToLong(MethodStats::getMissCount).sum();
+    }
+
+    /**
+     * Returns the ratio of hits to all requests
+     *
+     * @return the hit rate, 1 if nothing was requested yet
+     * @since 1.4
+     */
+    public double getHitRate() {
+        return hitRate(getHitCount(), getMissCount());
+    }
+
+    /**
+     * Returns the number of requests the cache sent to the server successfully
+     *
+     * @return the number of successful loads
+     * @since 1.4
+     */
+    public long getLoadCount() {
+        return methods.values().stream().mapToLong(MethodStats::getLoadCount).sum();
+    }
+
+    /**
+     * Returns the number of requests the cache sent to the server which failed
+     *
+     * @return the number of failed loads
+     * @since 1.4
+     */
+    public long getLoadFailureCount() {
+        return methods.values().stream().mapToLong(MethodStats::getLoadFailureCount).sum();
+    }
+
+    /**
+     * Returns the time spent waiting for the server, of successful and failed loads
+     *
+     * @return the total load time
+     * @since 1.4
+     */
+    public Duration getTotalLoadTime() {
+        return Duration.ofNanos(methods.values().stream().mapToLong(methodStats -> methodStats.totalLoadTime).sum());
+    }
+
+    /**
+     * Returns the number of responses which were removed because the cache was full or they expired
+     *
+     * @return the number of evictions
+     * @since 1.4
+     */
+    public long getEvictionCount() {
+        return methods.values().stream().mapToLong(MethodStats::getEvictionCount).sum();
+    }
+
+    /**
+     * Returns the number of cached responses
+     *
+     * @return the number of cached responses
+     * @since 1.4
+     */
+    public long getEntryCount() {
+        return methods.values().stream().mapToLong(MethodStats::getEntryCount).sum();
+    }
+
+    /**
+     * Returns the estimated heap memory of all cached responses
+     *
+     * @return the estimated size of all cached responses in bytes
+     * @since 1.4
+     */
+    public long getWeight() {
+        return methods.values().stream().mapToLong(MethodStats::getWeight).sum();
+    }
+
+    /**
+     * Returns the maximal estimated heap memory of all cached responses
+     *
+     * @return the maximal estimated size of all cached responses in bytes
+     * @since 1.4
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the number of reads and writes of the persistent store which failed
+     *
+     * @return the number of store failures, 0 if no persistent store is used
+     * @see ResponseCache#setPersistentDirectory(java.nio.file.Path, Duration)
+     * @since 1.4
+     */
+    public long getStoreFailureCount() {
+        return storeFailureCount;
+    }
+
+    private static double hitRate(long hits, long misses) {
+        return hits + misses == 0 ? 1 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Returns a json parsed string with all information
+     *
+     * @return a json parsed string with all information
+     * @since 1.4
+     */
+    @Override
+    public String toString() {
+        HashMap<String, Object> responseCacheStatsAsMap = new HashMap<>();
+
+        responseCacheStatsAsMap.put("hitCount", getHitCount());
+        responseCacheStatsAsMap.put("missCount", getMissCount());
+        responseCacheStatsAsMap.put("hitRate", getHitRate());
+        responseCacheStatsAsMap.put("loadCount", getLoadCount());
+        responseCacheStatsAsMap.put("loadFailureCount", getLoadFailureCount());
+        responseCacheStatsAsMap.put("totalLoadTime", getTotalLoadTime().toString());
+        responseCacheStatsAsMap.put("evictionCount", getEvictionCount());
+        responseCacheStatsAsMap.put("entryCount", getEntryCount());
+        responseCacheStatsAsMap.put("weight", getWeight());
+        responseCacheStatsAsMap.put("maximumWeight", maximumWeight);
+        responseCacheStatsAsMap.put("storeFailureCount", storeFailureCount);
+        HashMap<String, Object> methodsAsMap = new HashMap<>();
+        methods.forEach((method, methodStats) -> methodsAsMap.put(method, new JSONObject(methodStats.toString())));
+        responseCacheStatsAsMap.put("methods", methodsAsMap);
+
+        return new JSONObject(responseCacheStatsAsMap).toString();
+    }
+
+    /**
+     * Snapshot of the statistics of a single method
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    public static class MethodStats {
+
+        private final String method;
+        private final long hitCount;
+        private final long missCount;
+        private final long loadCount;
+        private final long loadFailureCount;
+        private final long totalLoadTime;
+        private final long evictionCount;
+        private final long entryCount;
+        private final long weight;
+
+        /**
+         * Initialize the {@link MethodStats} class
+         *
+         * @param method           the POST method
+         * @param hitCount         the number of requests which were answered from the cache
+         * @param missCount        the number of requests which had to wait for the server
+         * @param loadCount        the number of successful requests to the server
+         * @param loadFailureCount the number of failed requests to the server
+         * @param totalLoadTime    the time spent waiting for the server in nanoseconds
+         * @param evictionCount    the number of evicted responses
+         * @param entryCount       the number of cached responses
+         * @param weight           the estimated size of the cached responses in bytes
+         * @since 1.4
+         */
+        MethodStats(String method, long hitCount, long missCount, long loadCount, long loadFailureCount, long totalLoadTime, long evictionCount, long entryCount, long weight) {
+            this.method = method;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadCount = loadCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTime = totalLoadTime;
+            this.evictionCount = evictionCount;
+            this.entryCount = entryCount;
+            this.weight = weight;
+        }
+
+        /**
+         * Returns the POST method
+         *
+         * @return the POST method
+         * @since 1.4
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Returns the number of requests which were answered from the cache
+         *
+         * @return the number of hits
+         * @since 1.4
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Returns the number of requests which had to wait for the server
+         *
+         * @return the number of misses
+         * @since 1.4
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * Returns the ratio of hits to all requests
+         *
+         * @return the hit rate, 1 if the method wasn't requested yet
+         * @since 1.4
+         */
+        public double getHitRate() {
+            return hitRate(hitCount, missCount);
+        }
+
+        /**
+         * Returns the number of requests the cache sent to the server successfully
+         *
+         * @return the number of successful loads
+         * @since 1.4
+         */
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        /**
+         * Returns the number of requests the cache sent to the server which failed
+         *
+         * @return the number of failed loads
+         * @since 1.4
+         */
+        public long getLoadFailureCount() {
+            return loadFailureCount;
+        }
+
+        /**
+         * Returns the time spent waiting for the server, of successful and failed loads
+         *
+         * @return the total load time
+         * @since 1.4
+         */
+        public Duration getTotalLoadTime() {
+            return Duration.ofNanos(totalLoadTime);
+        }
+
+        /**
+         * Returns the average time of a load
+         *
+         * @return the average load time, {@link Duration#ZERO} if nothing was loaded yet
+         * @since 1.4
+         */
+        public Duration getAverageLoadTime() {
+            long loads = loadCount + loadFailureCount;
+            return loads == 0 ? Duration.ZERO : Duration.ofNanos(totalLoadTime / loads);
+        }
+
+        /**
+         * Returns the number of responses which were removed because the cache was full or they expired
+         *
+         * @return the number of evictions
+         * @since 1.4
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /**
+         * Returns the number of cached responses
+         *
+         * @return the number of cached responses
+         * @since 1.4
+         */
+        public long getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * Returns the estimated heap memory of the cached responses
+         *
+         * @return the estimated size of the cached responses in bytes
+         * @since 1.4
+         */
+        public long getWeight() {
+            return weight;
+        }
+
+        /**
+         * Returns a json parsed string with all information
+         *
+         * @return a json parsed string with all information
+         * @since 1.4
+         */
+        @Override
+        public String toString() {
+            HashMap<String, Object> methodStatsAsMap = new HashMap<>();
+
+            methodStatsAsMap.put("method", method);
+            methodStatsAsMap.put("hitCount", hitCount);
+            methodStatsAsMap.put("missCount", missCount);
+            methodStatsAsMap.put("hitRate", getHitRate());
+            methodStatsAsMap.put("loadCount", loadCount);
+            methodStatsAsMap.put("loadFailureCount", loadFailureCount);
+            methodStatsAsMap.put("totalLoadTime", getTotalLoadTime().toString());
+            methodStatsAsMap.put("averageLoadTime", getAverageLoadTime().toString());
+            methodStatsAsMap.put("evictionCount", evictionCount);
+            methodStatsAsMap.put("entryCount", entryCount);
+            methodStatsAsMap.put("weight", weight);
+
+            return new JSONObject(methodStatsAsMap).toString();
+        }
+    }
+}
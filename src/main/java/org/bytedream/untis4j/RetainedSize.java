@@ -0,0 +1,244 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonArray;
+import org.bytedream.untis4j.json.JsonObject;
+import org.bytedream.untis4j.responseObjects.Timetable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the heap memory which is retained by cached responses and the objects they were decoded to.
+ *
+ * <p>The estimate assumes a 64 bit JVM with compressed references. It doesn't need to be exact, but it grows with the real size,
+ * so a cache which is bounded by it has a predictable memory budget. Objects which are shared between several responses
+ * (e.g. the teachers of a timetable, which are decoded from the cached teachers response) are counted for every response</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class RetainedSize {
+
+    private static final int objectHeader = 16;
+    private static final int reference = 4;
+    private static final ClassValue<Shape> shapes = new ClassValue<Shape>() {
+        @Override
+        protected Shape computeValue(Class<?> type) {
+            return new Shape(type);
+        }
+    };
+
+    private final Map<Object, Boolean> visited = new IdentityHashMap<>();
+    private final Deque<Object> pending = new ArrayDeque<>();
+    private long size = 0;
+
+    private RetainedSize() {
+    }
+
+    /**
+     * Returns the estimated size of a cached response in bytes
+     *
+     * @param request  the request of the response
+     * @param response the response
+     * @return the estimated size of {@code request} and {@code response}
+     * @since 1.4
+     */
+    static long of(RequestKey request, Response response) {
+        RetainedSize retainedSize = new RetainedSize();
+        retainedSize.size += objectHeader + 3 * reference + 8 + request.getRequest().length;
+        retainedSize.add(request.getMethod());
+        if (response == null) {
+            return retainedSize.size;
+        }
+        retainedSize.visited.put(response, Boolean.TRUE);
+        retainedSize.size += objectHeader + 5 * reference + 24;
+        if (OffHeapTimetableStore.isOffHeap(response)) {
+            // the lessons are outside of the heap and are never decoded into a cached object
+            return retainedSize.size + 256;
+        }
+
+        long before = retainedSize.size;
+        retainedSize.add(response.getJson());
+        long jsonSize = retainedSize.size - before;
+        Object decoded = response.getDecoded();
+        if (decoded != null) {
+            retainedSize.add(decoded);
+        } else {
+            // most responses get decoded right after they are cached, which doesn't change their weight until the next refresh.
+            // decoded objects share their strings with the json and need about half of its memory
+            retainedSize.size += jsonSize / 2;
+        }
+        return retainedSize.size;
+    }
+
+    /**
+     * Returns the estimated size of {@code value} and everything it references in bytes
+     *
+     * @param value the object
+     * @return the estimated size of {@code value}
+     * @since 1.4
+     */
+    static long of(Object value) {
+        RetainedSize retainedSize = new RetainedSize();
+        retainedSize.add(value);
+        return retainedSize.size;
+    }
+
+    /**
+     * Adds {@code root} and everything it references which wasn't added yet
+     */
+    private void add(Object root) {
+        queue(root);
+        while (!pending.isEmpty()) {
+            Object value = pending.pop();
+            if (visited.put(value, Boolean.TRUE) != null) {
+                continue;
+            }
+            size += shallow(value);
+        }
+    }
+
+    private void queue(Object value) {
+        if (value != null) {
+            pending.push(value);
+        }
+    }
+
+    /**
+     * Returns the size of {@code value} itself and queues the objects it references
+     */
+    private long shallow(Object value) {
+        if (value instanceof String) {
+            // compact strings need one byte per latin-1 char, which covers nearly every response
+            return objectHeader + 8 + objectHeader + ((String) value).length();
+        } else if (value instanceof Boolean || value instanceof Enum || value instanceof Class) {
+            // shared constants
+            return 0;
+        } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+            return 48;
+        } else if (value instanceof Number || value instanceof Character || value instanceof TemporalAccessor) {
+            return 24;
+        } else if (value instanceof JsonObject) {
+            // the map of the view is only reachable through an unmodifiable wrapper, which is created for every call
+            return objectHeader + reference + entries(((JsonObject) value).toMap());
+        } else if (value instanceof JsonArray) {
+            return objectHeader + reference + elements(((JsonArray) value).toList());
+        } else if (value instanceof Timetable && ((Timetable) value).isLazy()) {
+            // iterating a lazy timetable would decode it. Its lessons are decoded from the json, which is counted already
+            return objectHeader + 8 + objectHeader + (long) reference * ((Timetable) value).size() + fields(value);
+        } else if (value instanceof Map) {
+            return 48 + entries((Map<?, ?>) value) + fields(value);
+        } else if (value instanceof Collection) {
+            return objectHeader + 8 + elements((Collection<?>) value) + fields(value);
+        } else if (value.getClass().isArray()) {
+            return array(value);
+        }
+        return fields(value);
+    }
+
+    private long entries(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            queue(entry.getKey());
+            queue(entry.getValue());
+        }
+        // hash map node and table slot of every entry
+        return (long) map.size() * (32 + 2 * reference);
+    }
+
+    private long elements(Collection<?> collection) {
+        for (Object element : collection) {
+            queue(element);
+        }
+        return objectHeader + (long) reference * collection.size();
+    }
+
+    private long array(Object array) {
+        int length = Array.getLength(array);
+        Class<?> componentType = array.getClass().getComponentType();
+        if (!componentType.isPrimitive()) {
+            for (Object element : (Object[]) array) {
+                queue(element);
+            }
+            return objectHeader + (long) reference * length;
+        } else if (componentType == long.class || componentType == double.class) {
+            return objectHeader + 8L * length;
+        } else if (componentType == int.class || componentType == float.class) {
+            return objectHeader + 4L * length;
+        } else if (componentType == short.class || componentType == char.class) {
+            return objectHeader + 2L * length;
+        }
+        return objectHeader + length;
+    }
+
+    /**
+     * Returns the size of the fields of {@code value} and queues their values. Only fields of classes of this library are read,
+     * everything else is counted as an empty object
+     */
+    private long fields(Object value) {
+        Shape shape = shapes.get(value.getClass());
+        for (Field field : shape.references) {
+            try {
+                queue(field.get(value));
+            } catch (IllegalAccessException e) {
+                // the shape only contains accessible fields
+            }
+        }
+        return shape.size;
+    }
+
+    /**
+     * The size and the reference fields of a class
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private static class Shape {
+
+        private final long size;
+        private final Field[] references;
+
+        private Shape(Class<?> type) {
+            long size = objectHeader;
+            List<Field> references = new ArrayList<>();
+            for (Class<?> current = type; current != null && current.getName().startsWith("org.bytedream.untis4j"); current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    Class<?> fieldType = field.getType();
+                    if (fieldType == long.class || fieldType == double.class) {
+                        size += 8;
+                    } else if (fieldType == byte.class || fieldType == boolean.class) {
+                        size += 1;
+                    } else if (fieldType == short.class || fieldType == char.class) {
+                        size += 2;
+                    } else {
+                        size += 4;
+                    }
+                    if (!fieldType.isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            references.add(field);
+                        } catch (RuntimeException e) {
+                            // the referenced object is left out of the estimate
+                        }
+                    }
+                }
+            }
+            this.size = size;
+            this.references = references.toArray(new Field[0]);
+        }
+    }
+
+}
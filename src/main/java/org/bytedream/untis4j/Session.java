@@ -8,44 +8,68 @@ package org.bytedream.untis4j;
 import org.bytedream.untis4j.responseObjects.*;
 import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponse;
 import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponseLists;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.bytedream.untis4j.json.JsonArray;
+import org.bytedream.untis4j.json.JsonObject;
 
 import java.io.IOException;
 import java.time.DateTimeException;
+import java.time.Duration;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
- * Class to control the untis4j API
+ * Class to control the untis4j API.
  *
- * @version 1.1
+ * <p>A session is thread-safe and meant to be shared: one session per user can serve any number of threads at the same time.
+ * An expired session or a {@link Session#reconnect()} doesn't interrupt other threads, they continue with the new session.
+ * If the cache is used, a response is only decoded again if the response of the server has changed. Every call gets its own shallow copy
+ * of the decoded list, so sorting or filtering a returned list doesn't affect other calls, the elements in it are shared.
+ * How the cache is used can be changed per call with {@link Session#withCacheControl(CacheControl)}</p>
+ *
+ * @version 1.4
  * @since 1.0
  */
 public class Session {
 
-    private Infos infos;
-    private RequestManager requestManager;
+    private final RequestManager requestManager;
+    private final CacheControl cacheControl;
+    private final boolean sharedResults;
+    private volatile boolean lazyTimetables = false;
 
     /**
      * Class to do all the Untis stuff.
      *
      * <p>org.bytedream.untis4j.Main class to handle and get all Untis information<p/>
      *
-     * @param infos          infos about the user
      * @param requestManager manager that handles all requests
      * @since 1.0
      */
-    private Session(Infos infos, RequestManager requestManager) {
-        this.infos = infos;
+    private Session(RequestManager requestManager) {
+        this(requestManager, CacheControl.DEFAULT);
+    }
+
+    private Session(RequestManager requestManager, CacheControl cacheControl) {
+        this(requestManager, cacheControl, false);
+    }
+
+    /**
+     * @param sharedResults if the decoded lists should be returned instead of copies of them, only for internal requests which don't modify the lists
+     */
+    private Session(RequestManager requestManager, CacheControl cacheControl, boolean sharedResults) {
         this.requestManager = requestManager;
+        this.cacheControl = cacheControl;
+        this.sharedResults = sharedResults;
     }
 
     /**
@@ -123,14 +147,53 @@ public class Session {
      * @since 1.0
      */
     public static Session login(String username, String password, String server, String schoolName, String userAgent, boolean useCache) throws IOException {
+        return login(username, password, server, schoolName, userAgent, useCache, 0);
+    }
+
+    /**
+     * Logs in to the server.
+     *
+     * <p>Send an login request to the server and returns {@link Session} if the login was successful.
+     * If {@code warmUpConnections} is greater than 0, the server address gets resolved and {@code warmUpConnections} connections are opened in parallel before the login.
+     * These connections get pinged while the session is idle, so they stay open until {@link Session#logout()}.
+     * If the connections can't be opened, the login continues without them.
+     * Throws {@link IOException} if an IO Exception occurs or {@link LoginException} (which inherits from IOException) if login fails</p>
+     *
+     * @param server            the server from your school as URL
+     * @param schoolName        school name of the school you want to connect to
+     * @param username          the username used for the API
+     * @param password          the password used for the API
+     * @param userAgent         the user agent you want to send with
+     * @param useCache          sets if every request response should be saved in cache
+     * @param warmUpConnections number of connections which should be opened and kept alive, 0 to open connections only on demand
+     * @return a {@link Session} session
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    public static Session login(String username, String password, String server, String schoolName, String userAgent, boolean useCache, int warmUpConnections) throws IOException {
         if (!server.startsWith("http://") && !server.startsWith("https://")) {
             server = "https://" + server;
         }
+        ConnectionWarmer connectionWarmer = null;
+        if (warmUpConnections > 0) {
+            connectionWarmer = new ConnectionWarmer(RequestManager.url(server, schoolName), userAgent, warmUpConnections, UpstreamHealth.of(server));
+            try {
+                connectionWarmer.warmUp();
+            } catch (IOException e) {
+                // warming up is optional, the login opens its own connection and reports if the server can't be reached
+                connectionWarmer = null;
+            }
+        }
+
         Infos infos = RequestManager.generateUserInfosAndLogin(username, password, server, schoolName, userAgent);
 
         RequestManager requestManager = new RequestManager(infos, useCache);
+        if (connectionWarmer != null) {
+            // HttpURLConnection closes keep-alive connections which are idle for 5 seconds
+            requestManager.keepAlive(connectionWarmer, Duration.ofSeconds(3));
+        }
 
-        return new Session(infos, requestManager);
+        return new Session(requestManager);
     }
 
     /**
@@ -148,25 +211,19 @@ public class Session {
     /**
      * Reconnects the session.
      *
-     * <p>Logs out and then logs in again. If this works the {@link RequestManager} gets refreshed.
+     * <p>Logs out and then logs in again. If this works the session of the {@link RequestManager} gets replaced, the {@link ResponseCache} is kept.
+     * An expired session doesn't require a manual reconnect, the {@link RequestManager} logs in again by itself.
      * Throws {@link IOException} if an IO Exception occurs or {@link LoginException} (which extends from IOException) if login fails</p>
      *
      * @throws IOException if an IO Exception occurs
      * @since 1.0
      */
     public void reconnect() throws IOException {
-        boolean useCache = requestManager.isCacheUsed();
-        try {
-            logout();
-        } catch (IOException ignore) {
-        }
-
-        infos = RequestManager.generateUserInfosAndLogin(infos.getUsername(), infos.getPassword(), infos.getServer(), infos.getSchoolName(), infos.getUserAgent());
-        requestManager = new RequestManager(infos, useCache);
+        requestManager.reconnect();
     }
 
     /**
-     * Checks if the same request is still in the {@link com.github.benmanes.caffeine.cache.LoadingCache} and if not, the request is sent to the server.
+     * Checks if the same request is still in the {@link ResponseCache} and if not, the request is sent to the server.
      *
      * @see Session#requestSender(UntisUtils.Method, Map, ResponseConsumer)
      * @since 1.1
@@ -176,7 +233,7 @@ public class Session {
     }
 
     /**
-     * Checks if the same request is still in the {@link com.github.benmanes.caffeine.cache.LoadingCache} and if not, the request is sent to the server.
+     * Checks if the same request is still in the {@link ResponseCache} and if not, the request is sent to the server.
      *
      *
      * @param method the POST method
@@ -187,7 +244,34 @@ public class Session {
      * @since 1.1
      */
     private <T extends BaseResponse> T requestSender(UntisUtils.Method method, Map<String, ?> params, ResponseConsumer<? extends T> action) throws IOException {
-        return action.getResponse(requestManager.CachedPOST(method.getMethod(), params));
+        // a cached response is only replaced if its content has changed, until then the object it was decoded to is reused
+        Response response = requestManager.CachedPOST(method.getMethod(), params, cacheControl);
+        return copyOf(response.decode(action), response);
+    }
+
+    /**
+     * Returns a shallow copy of the list which was decoded from {@code response}, flagged as stale if the response is stale.
+     * The decoded list is shared by all calls with the same response (master data even by all users of the school), so it is never returned itself
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T copyOf(T decoded, Response response) {
+        if (sharedResults || !(decoded instanceof BaseResponseLists.ResponseList)) {
+            return decoded;
+        }
+        BaseResponseLists.ResponseList<?> list = (BaseResponseLists.ResponseList<?>) decoded;
+        return (T) (response.isStale() ? list.asStale() : list.clone());
+    }
+
+    /**
+     * Returns a stale copy of the list which was decoded from {@code response} if the response is stale.
+     * Only for lists which were decoded for this call, see {@link Session#copyOf(Object, Response)} for shared ones
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T withStaleFlag(T decoded, Response response) {
+        if (response.isStale() && decoded instanceof BaseResponseLists.ResponseList) {
+            return (T) ((BaseResponseLists.ResponseList<?>) decoded).asStale();
+        }
+        return decoded;
     }
 
     /**
@@ -333,17 +417,17 @@ public class Session {
      */
     public Departments getDepartments() throws IOException {
         return requestSender(UntisUtils.Method.GETDEPARTMENTS, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             Departments departments = new Departments();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject departmentInfo = jsonArray.getJSONObject(i);
+                JsonObject departmentInfo = jsonArray.getJsonObject(i);
                 departments.add(new Departments.DepartmentObject(departmentInfo.getString("name"),
                         departmentInfo.getInt("id"),
                         departmentInfo.getString("longName")));
@@ -396,17 +480,17 @@ public class Session {
      */
     public Holidays getHolidays() throws IOException {
         return requestSender(UntisUtils.Method.GETHOLIDAYS, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             Holidays holidays = new Holidays();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject holidayInfo = jsonArray.getJSONObject(i);
+                JsonObject holidayInfo = jsonArray.getJsonObject(i);
                 holidays.add(new Holidays.HolidaysObject(holidayInfo.getString("name"),
                         holidayInfo.getInt("id"),
                         holidayInfo.getString("longName"),
@@ -444,17 +528,17 @@ public class Session {
      */
     public Classes getClasses(Integer schoolYearId) throws IOException {
         ResponseConsumer<Classes> responseConsumer = response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             Classes classes = new Classes();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject classesInfo = jsonArray.getJSONObject(i);
+                JsonObject classesInfo = jsonArray.getJsonObject(i);
                 classes.add(new Classes.ClassObject(classesInfo.getString("name"),
                         classesInfo.getBoolean("active"),
                         classesInfo.getInt("id"),
@@ -479,13 +563,16 @@ public class Session {
      * <p>Returns {@link LatestImportTime} with all information about the time when the last change were made on the server</p>
      *
      * @return {@link LatestImportTime} with all information about the time when the last change were made
-     * @throws IOException if an IO Exception occurs
+     * @throws IOException if an IO Exception occurs or {@link CacheMissException} if the session only returns cached responses
      * @since 1.0
      */
     public LatestImportTime getLatestImportTime() throws IOException {
+        if (cacheControl.isOnlyIfCached()) {
+            throw new CacheMissException("The latest import time is always requested from the server");
+        }
         Response response = requestManager.POST(UntisUtils.Method.GETLATESTIMPORTTIME.getMethod(), new HashMap<>());
 
-        JSONObject jsonResponse = response.getResponse();
+        JsonObject jsonResponse = response.getJson();
 
         if (response.isError()) {
             throw new IOException(response.getErrorMessage());
@@ -505,17 +592,17 @@ public class Session {
      */
     public Rooms getRooms() throws IOException {
         return requestSender(UntisUtils.Method.GETROOMS, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             Rooms rooms = new Rooms();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject roomInfo = jsonArray.getJSONObject(i);
+                JsonObject roomInfo = jsonArray.getJsonObject(i);
                 rooms.add(new Rooms.RoomObject(roomInfo.getString("name"),
                         roomInfo.getBoolean("active"),
                         roomInfo.getInt("id"),
@@ -538,17 +625,17 @@ public class Session {
      */
     public SchoolYears getSchoolYears() throws IOException {
         return requestSender(UntisUtils.Method.GETSCHOOLYEARS, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             SchoolYears schoolYears = new SchoolYears();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject schoolYearInfo = jsonArray.getJSONObject(i);
+                JsonObject schoolYearInfo = jsonArray.getJsonObject(i);
                 schoolYears.add(new SchoolYears.SchoolYearObject(schoolYearInfo.getString("name"),
                         schoolYearInfo.getInt("id"),
                         LocalDate.parse(String.valueOf(schoolYearInfo.getInt("startDate")), DateTimeFormatter.ofPattern("yyyyMMdd")),
@@ -583,29 +670,20 @@ public class Session {
      */
     public Subjects getSubjects() throws IOException {
         return requestSender(UntisUtils.Method.GETSUBJECTS, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             Subjects subjects = new Subjects();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject subjectInfo = jsonArray.getJSONObject(i);
-
-                String backColor = "b1b3b4";
-                String foreColor = "b1b3b4";
+                JsonObject subjectInfo = jsonArray.getJsonObject(i);
 
-                try {
-                    backColor = subjectInfo.getString("backColor");
-                } catch (JSONException ignore) {
-                }
-                try {
-                    foreColor = subjectInfo.getString("foreColor");
-                } catch (JSONException ignore) {
-                }
+                String backColor = subjectInfo.optString("backColor", "b1b3b4");
+                String foreColor = subjectInfo.optString("foreColor", "b1b3b4");
 
                 subjects.add(new Subjects.SubjectObject(subjectInfo.getString("name"),
                         subjectInfo.getBoolean("active"),
@@ -620,6 +698,25 @@ public class Session {
         });
     }
 
+    /**
+     * Requests all substitutions for a specific time period.
+     *
+     * <p>Requests all substitutions (cancellations, substitutions, room changes, additional lessons, ...) of a department and give {@link Response} with all information about from the request back</p>
+     *
+     * @param start        the beginning of the time period
+     * @param end          the end of the time period
+     * @param departmentId id of the department, or 0 for all departments
+     * @return {@link Response} with the response from the request
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    public Response getSubstitutions(LocalDate start, LocalDate end, int departmentId) throws IOException {
+        Map<String, Object> params = new HashMap<>(UntisUtils.localDateToParams(start, end));
+        params.put("departmentId", departmentId);
+
+        return requestSender(UntisUtils.Method.GETSUBSTITUTIONS, params, response -> response);
+    }
+
     /**
      * Returns all registered teachers on the given server.
      *
@@ -631,17 +728,17 @@ public class Session {
      */
     public Teachers getTeachers() throws IOException {
         return requestSender(UntisUtils.Method.GETTEACHERS, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             Teachers teachers = new Teachers();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject teacherInfo = jsonArray.getJSONObject(i);
+                JsonObject teacherInfo = jsonArray.getJsonObject(i);
                 teachers.add(new Teachers.TeacherObject(teacherInfo.getString("name"),
                         teacherInfo.getBoolean("active"),
                         teacherInfo.getInt("id"),
@@ -665,18 +762,18 @@ public class Session {
      */
     public TimegridUnits getTimegridUnits() throws IOException {
         return requestSender(UntisUtils.Method.GETTIMEGRIDUNTIS, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
+            JsonArray jsonArray = jsonResponse.getJsonArray("result");
 
             TimegridUnits timegridUnits = new TimegridUnits();
 
             for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject timegridUnitInfo = jsonArray.getJSONObject(i);
-                JSONArray timegridUnitInfoArray = timegridUnitInfo.getJSONArray("timeUnits");
+                JsonObject timegridUnitInfo = jsonArray.getJsonObject(i);
+                JsonArray timegridUnitInfoArray = timegridUnitInfo.getJsonArray("timeUnits");
 
                 TimeUnits timeUnits = new TimeUnits();
 
@@ -684,7 +781,7 @@ public class Session {
                 LocalTime endTime;
 
                 for (int j = 0; j < timegridUnitInfoArray.length(); j++) {
-                    JSONObject timegridUntisObject = timegridUnitInfoArray.getJSONObject(j);
+                    JsonObject timegridUntisObject = timegridUnitInfoArray.getJsonObject(j);
 
                     try {
                         startTime = LocalTime.parse(String.valueOf(timegridUntisObject.getInt("startTime")), DateTimeFormatter.ofPattern("HHmm"));
@@ -719,12 +816,12 @@ public class Session {
      */
     public SchoolYears.SchoolYearObject getCurrentSchoolYear() throws IOException {
         return requestSender(UntisUtils.Method.GETCURRENTSCHOOLYEAR, response -> {
-            JSONObject jsonResponse = response.getResponse();
+            JsonObject jsonResponse = response.getJson();
 
             if (response.isError()) {
                 throw new IOException(response.getErrorMessage());
             }
-            JSONObject jsonObject = jsonResponse.getJSONObject("result");
+            JsonObject jsonObject = jsonResponse.getJsonObject("result");
 
             return new SchoolYears.SchoolYearObject(jsonObject.getString("name"),
                     jsonObject.getInt("id"),
@@ -747,220 +844,209 @@ public class Session {
      * @since 1.0
      */
     public Timetable getTimetable(LocalDate start, LocalDate end, UntisUtils.ElementType elementType, int id) throws IOException {
-        if (end.isBefore(start)) {
-            throw new DateTimeException("The end date must end after or on the same day as the start date");
+        return getTimetable(TimetableQuery.of(start, end, elementType, id));
+    }
+
+    /**
+     * Returns the lessons / timetable described by {@code query}.
+     *
+     * <p>Only the fields of {@link TimetableQuery#getFields()} are requested from the server and decoded.
+     * Classes, teachers, subjects, rooms and the timegrid are only requested if one of their fields is needed</p>
+     *
+     * @param query the timetable query
+     * @return {@link Timetable} with the requested information about the lessons
+     * @throws IOException if an IO Exception occurs
+     * @see TimetableQuery#fields(TimetableQuery.Field...)
+     * @since 1.4
+     */
+    public Timetable getTimetable(TimetableQuery query) throws IOException {
+        if (query.isOnlyBaseTimetable()) {
+            return decodeTimetable(query.getFields(), getBaseLessons(query));
         }
-        Map<String, ?> element = new HashMap<>(){{
-            put("type", elementType.getElementType());
-            put("id", id);
-        }};
-        Map<String, ?> options = new HashMap<>() {{
-            put("startDate", start.format(DateTimeFormatter.ofPattern("yyyyMMdd")));
-            put("endDate", end.format(DateTimeFormatter.ofPattern("yyyyMMdd")));
-            put("element", element);
-            put("onlyBaseTimetable", "False");
-            put("showInfo","True");
-            put("showSubstText", "True");
-            put("showLsText", "True");
-            put("showLsNumber", "True");
-            put("showStudentgroup", "True");
-        }};
-        Map<String, Map<String, ?>> params = new HashMap<>();
-        params.put("options", options);
 
-        return requestSender(UntisUtils.Method.GETTIMETABLE, params, response -> {
-            JSONObject jsonResponse = response.getResponse();
+        LessonDecoder lessonDecoder = lessonDecoder(query.getFields());
+        boolean lazy = lazyTimetables;
+        Map<String, Map<String, ?>> params = timetableParams(query, query.getStart(), query.getEnd(), false);
+        Response response = requestManager.CachedPOST(UntisUtils.Method.GETTIMETABLE.getMethod(), params, cacheControl);
 
-            if (response.isError()) {
-                throw new IOException(response.getErrorMessage());
+        if (OffHeapTimetableStore.isOffHeap(response)) {
+            // the timetable isn't kept, that would pull the off-heap lessons back on the heap. It's decoded eagerly,
+            // because the lessons may be evicted as soon as it's returned
+            try {
+                return withStaleFlag(decodeTimetable(response, lessonDecoder, false), response);
+            } catch (OffHeapTimetableStore.EvictedException e) {
+                response = requestManager.CachedPOST(UntisUtils.Method.GETTIMETABLE.getMethod(), params, cacheControl);
+                return withStaleFlag(decodeTimetable(response, lessonDecoder, false), response);
             }
+        }
 
-            JSONArray jsonArray = jsonResponse.getJSONArray("result");
-
-            Timetable timetable = new Timetable();
+        // as long as neither the response nor the master data has changed, the timetable doesn't have to be decoded again
+        return copyOf(response.decode(r -> decodeTimetable(r, lessonDecoder, lazy), lazy, lessonDecoder.getInputs()), response);
+    }
 
-            Classes c;
-            Teachers t;
-            Subjects s;
-            Rooms r;
+    /**
+     * Returns the lessons / timetable described by {@code query}, built from the base timetable and the substitutions.
+     *
+     * <p>The base timetable is cached per week until the {@link Session#getLatestImportTime() latest import time} changes
+     * and only the (usually small) substitutions of the time period are requested again and laid over it.
+     * The import time is checked at most once per minute, a session with {@link CacheControl#isOnlyIfCached()} uses the last known one.
+     * Timetables of persons and timetables of users which have no right to request substitutions are requested
+     * with {@link Session#getTimetable(TimetableQuery)} instead</p>
+     *
+     * @param query the timetable query
+     * @return {@link Timetable} with the requested information about the lessons
+     * @throws IOException if an IO Exception occurs
+     * @see TimetableQuery#onlyBaseTimetable()
+     * @since 1.4
+     */
+    public Timetable getLayeredTimetable(TimetableQuery query) throws IOException {
+        if (query.isOnlyBaseTimetable() || TimetableOverlay.elementKey(query.getElementType()) == null) {
+            return getTimetable(query);
+        }
 
-            try {
-                c = getClasses();
-            } catch (IOException e) {
-                e.printStackTrace();
-                c = null;
-            }
-            try {
-                t = getTeachers();
-            } catch (IOException e) {
-                e.printStackTrace();
-                t = null;
-            }
-            try {
-                s = getSubjects();
-            } catch (IOException e) {
-                e.printStackTrace();
-                s = null;
-            }
-            try {
-                r = getRooms();
-            } catch (IOException e) {
-                e.printStackTrace();
-                r = null;
+        Response substitutions;
+        try {
+            substitutions = getSubstitutions(query.getStart(), query.getEnd(), 0);
+        } catch (RequestManager.JsonRpcException e) {
+            if (!e.isDeterministic()) {
+                throw e;
             }
+            // the user has no right to request substitutions
+            return getTimetable(query);
+        }
 
+        JsonArray lessons = TimetableOverlay.overlay(getBaseLessons(query), substitutions.getJson().getJsonArray("result"), query.getElementType(), query.getId());
+        return decodeTimetable(query.getFields(), lessons);
+    }
 
+    /**
+     * Returns the params of a {@code getTimetable} request
+     */
+    private static Map<String, Map<String, ?>> timetableParams(TimetableQuery query, LocalDate start, LocalDate end, boolean onlyBaseTimetable) {
+        Map<String, Object> element = new HashMap<>();
+        element.put("type", query.getElementType().getElementType());
+        element.put("id", query.getId());
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("startDate", start.format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+        options.put("endDate", end.format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+        options.put("element", element);
+        options.put("onlyBaseTimetable", onlyBaseTimetable ? "True" : "False");
+        for (TimetableQuery.Field field : query.getFields()) {
+            if (field.getOption() != null) {
+                options.put(field.getOption(), "True");
+            }
+        }
+        if (onlyBaseTimetable) {
+            // the lesson number is needed to lay substitutions over the base timetable
+            options.put(TimetableQuery.Field.LS_NUMBER.getOption(), "True");
+        }
+        Map<String, Map<String, ?>> params = new HashMap<>();
+        params.put("options", options);
+        return params;
+    }
 
+    /**
+     * Returns the lessons of the base timetable of {@code query}.
+     *
+     * <p>The base timetable is requested week by week and cached until the latest import time changes,
+     * so every week is only downloaded once per import, regardless of the time periods that are requested.
+     * The import time itself is checked at most once per minute</p>
+     */
+    private JsonArray getBaseLessons(TimetableQuery query) throws IOException {
+        // checked at most once per minute, only cached responses use the last known import time
+        long latestImportTime = requestManager.getLatestImportTime(cacheControl);
+        int start = Integer.parseInt(query.getStart().format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+        int end = Integer.parseInt(query.getEnd().format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+
+        List<LocalDate> weeks = new ArrayList<>();
+        for (LocalDate monday = query.getStart().with(DayOfWeek.MONDAY); !monday.isAfter(query.getEnd()); monday = monday.plusWeeks(1)) {
+            weeks.add(monday);
+        }
 
-            TimeUnits timeUnits = getTimegridUnits().get(0).getTimeUnits();
+        Map<LocalDate, JsonArray> weekLessons = ConcurrentRequests.invokeAll(weeks, 4, monday -> {
+            Response response = requestManager.VersionedPOST(UntisUtils.Method.GETTIMETABLE.getMethod(), timetableParams(query, monday, monday.plusDays(6), true), latestImportTime, cacheControl);
+            if (response.isError()) {
+                throw new IOException(response.getErrorMessage());
+            }
+            return response.getJson().getJsonArray("result");
+        });
 
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject timetableInfos = jsonArray.getJSONObject(i);
-
-                Classes classes = new Classes();
-                Classes originalClasses = new Classes();
-                Teachers teachers = new Teachers();
-                Teachers originalTeachers = new Teachers();
-                Subjects subjects = new Subjects();
-                Subjects originalSubjects = new Subjects();
-                Rooms rooms = new Rooms();
-                Rooms originalRooms = new Rooms();
-
-                String[] arrayKeys = {"kl", "te", "su", "ro"};
-
-                for (String currentStringArray : arrayKeys) {
-                    if (timetableInfos.has(currentStringArray)) { // some schools haven't specified their rooms or teachers
-                        JSONArray arrayJSONArray = timetableInfos.getJSONArray(currentStringArray);
-
-                        for (int j = 0; j < arrayJSONArray.length(); j++) {
-                            JSONObject obj = (JSONObject) arrayJSONArray.get(j);
-                            int objId = obj.getInt("id");
-                            Integer orgId = obj.has("orgid") ? obj.getInt("orgid") : null;
-                            try {
-                                switch (currentStringArray) {
-                                    case "kl":
-                                        Classes.ClassObject classObject;
-                                        if ((classObject = c.findById(objId)) != null) classes.add(classObject);
-                                        if (orgId != null) originalClasses.add(c.findById(orgId));
-                                        break;
-                                    case "te":
-                                        Teachers.TeacherObject teacherObject;
-                                        if ((teacherObject = t.findById(objId)) != null) teachers.add(teacherObject);
-                                        if (orgId != null) originalTeachers.add(t.findById(orgId));
-                                        break;
-                                    case "su":
-                                        Subjects.SubjectObject subjectObject;
-                                        if ((subjectObject = s.findById(objId)) != null) subjects.add(subjectObject);
-                                        if (orgId != null) originalSubjects.add(s.findById(orgId));
-                                        break;
-                                    case "ro":
-                                        Rooms.RoomObject roomObject;
-                                        if ((roomObject = r.findById(objId)) != null) rooms.add(roomObject);
-                                        if (orgId != null) originalRooms.add(r.findById(orgId));
-                                        break;
-                                    default:
-                                        throw new IllegalStateException("Unexpected value: " + currentStringArray);
-                                }
-                            } catch (NullPointerException ignore) {}
-                        }
-                    }
+        List<Object> lessons = new ArrayList<>();
+        for (JsonArray week : weekLessons.values()) {
+            for (int i = 0; i < week.length(); i++) {
+                int date = week.getJsonObject(i).getInt("date");
+                if (start <= date && date <= end) {
+                    lessons.add(week.get(i));
                 }
+            }
+        }
+        return new JsonArray(lessons);
+    }
 
-                String startString = String.valueOf(timetableInfos.getInt("startTime"));
-                String endString = String.valueOf(timetableInfos.getInt("endTime"));
-
-                String startPattern;
-                String endPattern;
-
-                switch (startString.length()) {
-                    case 4:
-                        startPattern = "HHmm";
-                        break;
-                    case 3:
-                        startPattern = "Hmm";
-                        break;
-                    case 2:
-                        startString = "00" + startString;
-                        startPattern = "HHmm";
-                        break;
-                    case 1:
-                        startString = "000" + startString;
-                        startPattern = "HHmm";
-                        break;
-                    default:
-                        startPattern = null;
-                }
+    /**
+     * Decodes the lessons of a {@code getTimetable} response
+     */
+    private static Timetable decodeTimetable(Response response, LessonDecoder lessonDecoder, boolean lazy) throws IOException {
+        if (response.isError()) {
+            throw new IOException(response.getErrorMessage());
+        }
 
-                switch (endString.length()) {
-                    case 4:
-                        endPattern = "HHmm";
-                        break;
-                    case 3:
-                        endPattern = "Hmm";
-                        break;
-                    case 2:
-                        endString = "00" + endString;
-                        endPattern = "HHmm";
-                        break;
-                    case 1:
-                        endString = "000" + endString;
-                        endPattern = "HHmm";
-                        break;
-                    default:
-                        endPattern = null;
-                }
+        JsonArray lessons = response.getJson().getJsonArray("result");
+        return lazy ? lessonDecoder.decodeLazy(lessons) : lessonDecoder.decodeAll(lessons);
+    }
 
-                LocalTime startTime = LocalTime.parse(startString, DateTimeFormatter.ofPattern(Objects.requireNonNull(startPattern)));
-                LocalTime endTime = LocalTime.parse(endString, DateTimeFormatter.ofPattern(endPattern));
+    /**
+     * Decodes the lessons of a timetable
+     */
+    private Timetable decodeTimetable(Set<TimetableQuery.Field> fields, JsonArray lessons) throws IOException {
+        LessonDecoder lessonDecoder = lessonDecoder(fields);
+        return lazyTimetables ? lessonDecoder.decodeLazy(lessons) : lessonDecoder.decodeAll(lessons);
+    }
 
-                UntisUtils.LessonCode code = UntisUtils.LessonCode.REGULAR;
-                if (timetableInfos.has("code")) {
-                    code = UntisUtils.LessonCode.valueOf(timetableInfos.getString("code").toUpperCase());
-                }
+    /**
+     * Returns a decoder for the lessons of a timetable, only the master data which is needed for {@code fields} is requested
+     */
+    private LessonDecoder lessonDecoder(Set<TimetableQuery.Field> fields) throws IOException {
+        // the decoder only reads the master data, and the shared lists keep the inputs of the decoded timetable the same
+        Session session = new Session(requestManager, cacheControl.forDependencies(), true);
+        Classes c = null;
+        Teachers t = null;
+        Subjects s = null;
+        Rooms r = null;
 
-                String activityType = null;
-                if (timetableInfos.has("activityType")) activityType = timetableInfos.getString("activityType");
-
-                String info = null;
-                if (timetableInfos.has("info")) info = timetableInfos.getString("info");
-
-                String substText = null;
-                if (timetableInfos.has("substText")) substText = timetableInfos.getString("substText");
-
-                String lsText = null;
-                if (timetableInfos.has("lstext")) lsText = timetableInfos.getString("lstext");
-
-                Integer lsNumber = null;
-                if (timetableInfos.has("lsnumber")) lsNumber  = timetableInfos.getInt("lsnumber");
-
-                String studentGroup = null;
-                if (timetableInfos.has("sg")) studentGroup = timetableInfos.getString("sg");
-
-                timetable.add(new Timetable.Lesson(
-                        LocalDate.parse(String.valueOf(timetableInfos.getInt("date")), DateTimeFormatter.ofPattern("yyyyMMdd")),
-                        startTime,
-                        endTime,
-                        timeUnits.findByStartTime(startTime),
-                        classes,
-                        originalClasses,
-                        teachers,
-                        originalTeachers,
-                        rooms,
-                        originalRooms,
-                        subjects,
-                        originalSubjects,
-                        code,
-                        activityType,
-                        info,
-                        substText,
-                        lsText,
-                        lsNumber,
-                        studentGroup
-                ));
-            }
+        try {
+            if (fields.contains(TimetableQuery.Field.CLASSES) || fields.contains(TimetableQuery.Field.ORIGINAL_CLASSES)) c = session.getClasses();
+        } catch (CacheMissException e) {
+            throw e;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            if (fields.contains(TimetableQuery.Field.TEACHERS) || fields.contains(TimetableQuery.Field.ORIGINAL_TEACHERS)) t = session.getTeachers();
+        } catch (CacheMissException e) {
+            throw e;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            if (fields.contains(TimetableQuery.Field.SUBJECTS) || fields.contains(TimetableQuery.Field.ORIGINAL_SUBJECTS)) s = session.getSubjects();
+        } catch (CacheMissException e) {
+            throw e;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            if (fields.contains(TimetableQuery.Field.ROOMS) || fields.contains(TimetableQuery.Field.ORIGINAL_ROOMS)) r = session.getRooms();
+        } catch (CacheMissException e) {
+            throw e;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-            return timetable;
-        });
+        TimeUnits timeUnits = fields.contains(TimetableQuery.Field.TIME_UNIT) ? session.getTimegridUnits().get(0).getTimeUnits() : null;
+
+        return new LessonDecoder(fields, c, t, s, r, timeUnits);
     }
 
     /**
@@ -1038,6 +1124,44 @@ public class Session {
         return this.getTimetable(start, end, UntisUtils.ElementType.PERSON, personId);
     }
 
+    /**
+     * Returns the lessons / timetables of many elements for a specific time period.
+     *
+     * @param elements the elements to get the timetables from
+     * @param start    the beginning of the time period
+     * @param end      the end of the time period
+     * @return the {@link Timetable} of every element, in the order of {@code elements}
+     * @throws IOException if an IO Exception occurs
+     * @see Session#getTimetables(Collection, LocalDate, LocalDate, int)
+     * @since 1.4
+     */
+    public Map<ElementRef, Timetable> getTimetables(Collection<ElementRef> elements, LocalDate start, LocalDate end) throws IOException {
+        return getTimetables(elements, start, end, 16);
+    }
+
+    /**
+     * Returns the lessons / timetables of many elements for a specific time period.
+     *
+     * <p>The timetables are requested concurrently, on Java 21+ each on its own virtual thread. If one request fails, all other requests are cancelled
+     * and the exception is thrown. Before this method returns, it waits until no request is running anymore,
+     * at most for the connect and read timeout (see {@link RequestManager#setTimeouts(Duration, Duration)})</p>
+     *
+     * @param elements              the elements to get the timetables from
+     * @param start                 the beginning of the time period
+     * @param end                   the end of the time period
+     * @param maxConcurrentRequests maximal number of requests that are sent to the server at the same time
+     * @return the {@link Timetable} of every element, in the order of {@code elements}
+     * @throws IOException if an IO Exception occurs
+     * @since 1.4
+     */
+    public Map<ElementRef, Timetable> getTimetables(Collection<ElementRef> elements, LocalDate start, LocalDate end, int maxConcurrentRequests) throws IOException {
+        if (end.isBefore(start)) {
+            throw new DateTimeException("The end date must end after or on the same day as the start date");
+        }
+
+        return ConcurrentRequests.invokeAll(new LinkedHashSet<>(elements), maxConcurrentRequests, element -> getTimetable(start, end, element.getElementType(), element.getId()));
+    }
+
     /**
      * Requests timetable with absence for a specific time period
      *
@@ -1174,6 +1298,124 @@ public class Session {
         return requestManager.POST(method, Objects.requireNonNullElseGet(params, HashMap::new));
     }
 
+    /**
+     * Watches the timetable of an element and notifies {@code listener} about every change.
+     *
+     * <p>The timetable is polled in the background, week by week. Weeks which contain today or tomorrow are polled every minute,
+     * the next week every 10 minutes, later weeks every hour and past weeks every 6 hours. Every poll is compared with the previous one
+     * and only the changes are pushed to the listener. Watches of the same element and user share the polls of the weeks they have in common,
+     * and all polls of a server share a request budget (see {@link Session#setWatchRequestBudget(int)})</p>
+     *
+     * @param elementType type on which the timetable should be oriented
+     * @param id          id of the {@code elementType}
+     * @param start       the beginning of the time period
+     * @param end         the end of the time period
+     * @param listener    listener which gets all changes
+     * @return the watch, which must be cancelled if the changes aren't needed anymore
+     * @since 1.4
+     */
+    public TimetableWatch watch(UntisUtils.ElementType elementType, int id, LocalDate start, LocalDate end, TimetableListener listener) {
+        if (end.isBefore(start)) {
+            throw new DateTimeException("The end date must end after or on the same day as the start date");
+        }
+        return TimetableWatcher.of(getInfos().getServer()).watch(this, ElementRef.of(elementType, id), start, end, Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Sets the maximal number of requests per minute which all watches on the server of this session may send together.
+     * The default is 60 requests per minute
+     *
+     * @param requestsPerMinute the maximal number of requests per minute
+     * @see Session#watch(UntisUtils.ElementType, int, LocalDate, LocalDate, TimetableListener)
+     * @since 1.4
+     */
+    public void setWatchRequestBudget(int requestsPerMinute) {
+        TimetableWatcher.of(getInfos().getServer()).setRequestsPerMinute(requestsPerMinute);
+    }
+
+    /**
+     * Sets if timetables should be decoded lazy.
+     *
+     * <p>A lazy {@link Timetable} only decodes a lesson when it is accessed for the first time.
+     * This makes it cheap to request large time periods if only a few lessons or the lessons of a single day
+     * ({@link Timetable#searchByDate(LocalDate)}) are read</p>
+     *
+     * @param lazyTimetables if timetables should be decoded lazy
+     * @since 1.4
+     */
+    public void setLazyTimetables(boolean lazyTimetables) {
+        this.lazyTimetables = lazyTimetables;
+    }
+
+    /**
+     * Returns if timetables are decoded lazy
+     *
+     * @return if timetables are decoded lazy
+     * @see Session#setLazyTimetables(boolean)
+     * @since 1.4
+     */
+    public boolean isLazyTimetables() {
+        return lazyTimetables;
+    }
+
+    /**
+     * Returns a session which sends its requests with the cache directives {@code cacheControl}, e.g.
+     * {@code session.withCacheControl(CacheControl.forceRefresh()).getTimetable(...)} requests the timetable from the server even if it is cached.
+     *
+     * <p>The returned session shares the login and the cache with this session, creating it is cheap.
+     * It starts with the {@link Session#isLazyTimetables() lazy timetables} setting of this session</p>
+     *
+     * @param cacheControl the cache directives
+     * @return the session with the cache directives
+     * @since 1.4
+     */
+    public Session withCacheControl(CacheControl cacheControl) {
+        Session session = new Session(requestManager, Objects.requireNonNull(cacheControl));
+        session.lazyTimetables = lazyTimetables;
+        return session;
+    }
+
+    /**
+     * Returns the cache directives of this session
+     *
+     * @return the cache directives
+     * @see Session#withCacheControl(CacheControl)
+     * @since 1.4
+     */
+    public CacheControl getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * Returns the transferred bytes of every POST method which was sent through this session
+     *
+     * @return the transferred bytes of every POST method
+     * @since 1.4
+     */
+    public TransferMetrics getTransferMetrics() {
+        return requestManager.getTransferMetrics();
+    }
+
+    /**
+     * Returns the cache of the user, e.g. to read its {@link ResponseCache#getWeight() weight}
+     *
+     * @return the cache of the user, or null if the session doesn't use a cache
+     * @since 1.4
+     */
+    public ResponseCache getResponseCache() {
+        return requestManager.getResponseCache();
+    }
+
+    /**
+     * Returns the health of the server, e.g. to check if it's {@link UpstreamHealth#isAvailable() available}
+     *
+     * @return the health of the server
+     * @since 1.4
+     */
+    public UpstreamHealth getUpstreamHealth() {
+        return requestManager.getUpstreamHealth();
+    }
+
     /**
      * Returns the user infos
      *
@@ -1181,7 +1423,7 @@ public class Session {
      * @since 1.1
      */
     public Infos getInfos() {
-        return infos;
+        return requestManager.getInfos();
     }
 
 }
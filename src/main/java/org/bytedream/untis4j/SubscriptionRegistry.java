@@ -0,0 +1,173 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponseObjects.NILResponseObject;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of subscribers (identified by an int, e.g. the id of a student) and the elements (classes, teachers, rooms, ...) they are subscribed to.
+ *
+ * <p>The registry keeps an inverted index from every element to the sorted ids of its subscribers, so the subscribers affected
+ * by changed lessons are found in time proportional to the changes and the number of affected subscribers, regardless of the total
+ * number of subscriptions. It is meant to be used together with {@link Session#watch(UntisUtils.ElementType, int, java.time.LocalDate, java.time.LocalDate, TimetableListener)}:
+ * <pre>{@code
+ * session.watch(CLASS, classId, start, end, (element, diff) -> registry.getAffected(element, diff).stream().forEach(this::notify));
+ * }</pre>
+ * Lookups are lock-free and may run while subscriptions are changed</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class SubscriptionRegistry {
+
+    private static final int[] noSubscribers = new int[0];
+
+    private final Map<Long, int[]> subscribers = new ConcurrentHashMap<>();
+
+    private static long key(UntisUtils.ElementType elementType, int id) {
+        return ((long) elementType.getElementType() << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Subscribes {@code subscriber} to an element
+     *
+     * @param subscriber  id of the subscriber, must not be negative
+     * @param elementType type of the element
+     * @param id          id of the element
+     * @since 1.4
+     */
+    public void subscribe(int subscriber, UntisUtils.ElementType elementType, int id) {
+        if (subscriber < 0) {
+            throw new IllegalArgumentException("Subscriber ids must not be negative");
+        }
+        subscribers.compute(key(elementType, id), (key, current) -> {
+            if (current == null) {
+                return new int[]{subscriber};
+            }
+            int index = Arrays.binarySearch(current, subscriber);
+            if (index >= 0) {
+                return current;
+            }
+            // copy on write, readers always see a complete array
+            int insert = -index - 1;
+            int[] updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insert);
+            updated[insert] = subscriber;
+            System.arraycopy(current, insert, updated, insert + 1, current.length - insert);
+            return updated;
+        });
+    }
+
+    /**
+     * Unsubscribes {@code subscriber} from an element
+     *
+     * @param subscriber  id of the subscriber
+     * @param elementType type of the element
+     * @param id          id of the element
+     * @since 1.4
+     */
+    public void unsubscribe(int subscriber, UntisUtils.ElementType elementType, int id) {
+        subscribers.computeIfPresent(key(elementType, id), (key, current) -> {
+            int index = Arrays.binarySearch(current, subscriber);
+            if (index < 0) {
+                return current;
+            } else if (current.length == 1) {
+                return null;
+            }
+            int[] updated = new int[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            return updated;
+        });
+    }
+
+    /**
+     * Returns the ids of all subscribers of an element
+     *
+     * @param elementType type of the element
+     * @param id          id of the element
+     * @return the sorted ids of all subscribers
+     * @since 1.4
+     */
+    public int[] getSubscribers(UntisUtils.ElementType elementType, int id) {
+        return subscribers.getOrDefault(key(elementType, id), noSubscribers).clone();
+    }
+
+    /**
+     * Returns all subscribers which are affected by {@code diff}: the subscribers of {@code element} and of every class, teacher,
+     * room and subject (also the original ones) of all added, removed and changed lessons, before and after the change
+     *
+     * @param element the element whose timetable has changed, may be null
+     * @param diff    the changes
+     * @return the ids of all affected subscribers
+     * @since 1.4
+     */
+    public BitSet getAffected(ElementRef element, TimetableDiff diff) {
+        BitSet affected = new BitSet();
+        if (element != null) {
+            addSubscribers(affected, key(element.getElementType(), element.getId()));
+        }
+        for (TimetableDiff.Change change : diff.getChanges()) {
+            addSubscribers(affected, change.getOldLesson());
+            addSubscribers(affected, change.getNewLesson());
+        }
+        return affected;
+    }
+
+    /**
+     * Returns all subscribers of every class, teacher, room and subject (also the original ones) of {@code lessons}
+     *
+     * @param lessons the lessons
+     * @return the ids of all affected subscribers
+     * @since 1.4
+     */
+    public BitSet getAffected(Collection<Timetable.Lesson> lessons) {
+        BitSet affected = new BitSet();
+        for (Timetable.Lesson lesson : lessons) {
+            addSubscribers(affected, lesson);
+        }
+        return affected;
+    }
+
+    private void addSubscribers(BitSet affected, Timetable.Lesson lesson) {
+        if (lesson == null) {
+            return;
+        }
+        addSubscribers(affected, UntisUtils.ElementType.CLASS, lesson.getClasses());
+        addSubscribers(affected, UntisUtils.ElementType.CLASS, lesson.getOriginalClasses());
+        addSubscribers(affected, UntisUtils.ElementType.TEACHER, lesson.getTeachers());
+        addSubscribers(affected, UntisUtils.ElementType.TEACHER, lesson.getOriginalTeachers());
+        addSubscribers(affected, UntisUtils.ElementType.SUBJECT, lesson.getSubjects());
+        addSubscribers(affected, UntisUtils.ElementType.SUBJECT, lesson.getOriginalSubjects());
+        addSubscribers(affected, UntisUtils.ElementType.ROOM, lesson.getRooms());
+        addSubscribers(affected, UntisUtils.ElementType.ROOM, lesson.getOriginalRooms());
+    }
+
+    private void addSubscribers(BitSet affected, UntisUtils.ElementType elementType, List<? extends NILResponseObject> elements) {
+        if (elements == null) {
+            return;
+        }
+        for (NILResponseObject element : elements) {
+            // original elements which couldn't be found are null
+            if (element != null) {
+                addSubscribers(affected, key(elementType, element.getId()));
+            }
+        }
+    }
+
+    private void addSubscribers(BitSet affected, long key) {
+        int[] ids = subscribers.get(key);
+        if (ids != null) {
+            for (int id : ids) {
+                affected.set(id);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,530 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.responseObjects.TimeUnits;
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponseObjects.NILResponseObject;
+import org.json.JSONObject;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Class to get the changes between two snapshots of a {@link Timetable}
+ *
+ * <p>Lessons are matched by their identity (date, start time and lesson number) with a hash join, so a diff takes linear time.
+ * Lessons which share their identity are matched by a hash of their compared fields first, the remaining ones in their order.
+ * Matched lessons are compared field by field, without going through {@link Timetable.Lesson#toString()}</p>
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+public class TimetableDiff {
+
+    private static final TimetableDiff empty = new TimetableDiff(Collections.emptyList());
+
+    private final List<Change> changes;
+
+    private TimetableDiff(List<Change> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Returns the changes between {@code oldTimetable} and {@code newTimetable}
+     *
+     * @param oldTimetable the old snapshot
+     * @param newTimetable the new snapshot
+     * @return the changes
+     * @since 1.4
+     */
+    public static TimetableDiff of(Timetable oldTimetable, Timetable newTimetable) {
+        if (oldTimetable == newTimetable) {
+            return empty;
+        }
+
+        Map<LessonKey, Object> oldLessons = new HashMap<>(oldTimetable.size() * 4 / 3 + 1);
+        for (Timetable.Lesson lesson : oldTimetable) {
+            // most keys are unique, only duplicates are stored in a list
+            oldLessons.merge(new LessonKey(lesson), lesson, TimetableDiff::append);
+        }
+
+        // lessons with the same identity, e.g. lessons without lesson number, are matched per identity once all of them are known
+        Map<LessonKey, Bucket> buckets = new HashMap<>();
+        for (Timetable.Lesson lesson : newTimetable) {
+            LessonKey key = new LessonKey(lesson);
+            Object candidates = oldLessons.get(key);
+            if (candidates instanceof List) {
+                buckets.computeIfAbsent(key, k -> new Bucket(candidates)).newLessons.add(lesson);
+            }
+        }
+        Set<Timetable.Lesson> removedFromBuckets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Bucket bucket : buckets.values()) {
+            bucket.match(removedFromBuckets);
+        }
+
+        List<Change> changes = new ArrayList<>();
+        for (Timetable.Lesson lesson : newTimetable) {
+            LessonKey key = new LessonKey(lesson);
+            Object candidates = oldLessons.get(key);
+            if (candidates == null) {
+                changes.add(new Change(Change.Type.ADDED, null, lesson, EnumSet.noneOf(TimetableQuery.Field.class)));
+            } else if (candidates instanceof Timetable.Lesson) {
+                oldLessons.remove(key);
+                compare((Timetable.Lesson) candidates, lesson, changes);
+            } else {
+                Change change = buckets.get(key).nextChange();
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+        }
+
+        for (Timetable.Lesson lesson : oldTimetable) {
+            LessonKey key = new LessonKey(lesson);
+            Object candidates = oldLessons.get(key);
+            if (candidates == lesson || (candidates instanceof List && (!buckets.containsKey(key) || removedFromBuckets.contains(lesson)))) {
+                changes.add(new Change(Change.Type.REMOVED, lesson, null, EnumSet.noneOf(TimetableQuery.Field.class)));
+            }
+        }
+
+        return changes.isEmpty() ? empty : new TimetableDiff(Collections.unmodifiableList(changes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object append(Object existing, Object lesson) {
+        List<Object> list;
+        if (existing instanceof List) {
+            list = (List<Object>) existing;
+        } else {
+            list = new ArrayList<>(2);
+            list.add(existing);
+        }
+        list.add(lesson);
+        return list;
+    }
+
+    private static void compare(Timetable.Lesson oldLesson, Timetable.Lesson newLesson, List<Change> changes) {
+        Change change = compare(oldLesson, newLesson);
+        if (change != null) {
+            changes.add(change);
+        }
+    }
+
+    private static Change compare(Timetable.Lesson oldLesson, Timetable.Lesson newLesson) {
+        EnumSet<TimetableQuery.Field> changedFields = changedFields(oldLesson, newLesson);
+        return changedFields.isEmpty() ? null : new Change(Change.Type.CHANGED, oldLesson, newLesson, changedFields);
+    }
+
+    /**
+     * Returns all fields which differ between two lessons with the same identity
+     */
+    private static EnumSet<TimetableQuery.Field> changedFields(Timetable.Lesson oldLesson, Timetable.Lesson newLesson) {
+        EnumSet<TimetableQuery.Field> changedFields = EnumSet.noneOf(TimetableQuery.Field.class);
+
+        if (!Objects.equals(oldLesson.getEndTime(), newLesson.getEndTime())) changedFields.add(TimetableQuery.Field.END_TIME);
+        if (!sameTimeUnit(oldLesson.getTimeUnitObject(), newLesson.getTimeUnitObject())) changedFields.add(TimetableQuery.Field.TIME_UNIT);
+        if (!sameElements(oldLesson.getClasses(), newLesson.getClasses())) changedFields.add(TimetableQuery.Field.CLASSES);
+        if (!sameElements(oldLesson.getOriginalClasses(), newLesson.getOriginalClasses())) changedFields.add(TimetableQuery.Field.ORIGINAL_CLASSES);
+        if (!sameElements(oldLesson.getTeachers(), newLesson.getTeachers())) changedFields.add(TimetableQuery.Field.TEACHERS);
+        if (!sameElements(oldLesson.getOriginalTeachers(), newLesson.getOriginalTeachers())) changedFields.add(TimetableQuery.Field.ORIGINAL_TEACHERS);
+        if (!sameElements(oldLesson.getRooms(), newLesson.getRooms())) changedFields.add(TimetableQuery.Field.ROOMS);
+        if (!sameElements(oldLesson.getOriginalRooms(), newLesson.getOriginalRooms())) changedFields.add(TimetableQuery.Field.ORIGINAL_ROOMS);
+        if (!sameElements(oldLesson.getSubjects(), newLesson.getSubjects())) changedFields.add(TimetableQuery.Field.SUBJECTS);
+        if (!sameElements(oldLesson.getOriginalSubjects(), newLesson.getOriginalSubjects())) changedFields.add(TimetableQuery.Field.ORIGINAL_SUBJECTS);
+        if (oldLesson.getCode() != newLesson.getCode()) changedFields.add(TimetableQuery.Field.CODE);
+        if (!Objects.equals(oldLesson.getActivityType(), newLesson.getActivityType())) changedFields.add(TimetableQuery.Field.ACTIVITY_TYPE);
+        if (!Objects.equals(oldLesson.getInfo(), newLesson.getInfo())) changedFields.add(TimetableQuery.Field.INFO);
+        if (!Objects.equals(oldLesson.getSubstText(), newLesson.getSubstText())) changedFields.add(TimetableQuery.Field.SUBST_TEXT);
+        if (!Objects.equals(oldLesson.getLsText(), newLesson.getLsText())) changedFields.add(TimetableQuery.Field.LS_TEXT);
+        if (!Objects.equals(oldLesson.getStudentGroup(), newLesson.getStudentGroup())) changedFields.add(TimetableQuery.Field.STUDENT_GROUP);
+
+        return changedFields;
+    }
+
+    /**
+     * Returns a hash of all fields compared by {@link TimetableDiff#changedFields(Timetable.Lesson, Timetable.Lesson)},
+     * lessons without changed fields have the same hash
+     */
+    private static int contentHash(Timetable.Lesson lesson) {
+        TimeUnits.TimeUnitObject timeUnit = lesson.getTimeUnitObject();
+        int hash = Objects.hash(lesson.getEndTime(), lesson.getCode(), lesson.getActivityType(), lesson.getInfo(), lesson.getSubstText(),
+                lesson.getLsText(), lesson.getStudentGroup());
+        hash = 31 * hash + (timeUnit != null ? Objects.hash(timeUnit.getName(), timeUnit.getStartTime(), timeUnit.getEndTime()) : 0);
+        hash = elementsHash(hash, lesson.getClasses());
+        hash = elementsHash(hash, lesson.getOriginalClasses());
+        hash = elementsHash(hash, lesson.getTeachers());
+        hash = elementsHash(hash, lesson.getOriginalTeachers());
+        hash = elementsHash(hash, lesson.getRooms());
+        hash = elementsHash(hash, lesson.getOriginalRooms());
+        hash = elementsHash(hash, lesson.getSubjects());
+        hash = elementsHash(hash, lesson.getOriginalSubjects());
+        return hash;
+    }
+
+    /**
+     * Adds the ids of {@code elements} to {@code hash}, like {@link TimetableDiff#sameElements(List, List)} compares them
+     */
+    private static int elementsHash(int hash, List<? extends NILResponseObject> elements) {
+        if (elements == null) {
+            return 31 * hash - 1;
+        }
+        hash = 31 * hash + elements.size();
+        for (NILResponseObject element : elements) {
+            hash = 31 * hash + (element != null ? element.getId() : 0);
+        }
+        return hash;
+    }
+
+    private static boolean sameTimeUnit(TimeUnits.TimeUnitObject oldTimeUnit, TimeUnits.TimeUnitObject newTimeUnit) {
+        if (oldTimeUnit == newTimeUnit) {
+            return true;
+        } else if (oldTimeUnit == null || newTimeUnit == null) {
+            return false;
+        }
+        return Objects.equals(oldTimeUnit.getName(), newTimeUnit.getName())
+                && Objects.equals(oldTimeUnit.getStartTime(), newTimeUnit.getStartTime())
+                && Objects.equals(oldTimeUnit.getEndTime(), newTimeUnit.getEndTime());
+    }
+
+    /**
+     * Compares two element lists by the ids of their elements
+     */
+    private static boolean sameElements(List<? extends NILResponseObject> oldElements, List<? extends NILResponseObject> newElements) {
+        if (oldElements == newElements) {
+            return true;
+        } else if (oldElements == null || newElements == null || oldElements.size() != newElements.size()) {
+            return false;
+        }
+        Iterator<? extends NILResponseObject> newIterator = newElements.iterator();
+        for (NILResponseObject oldElement : oldElements) {
+            NILResponseObject newElement = newIterator.next();
+            // original elements which couldn't be found are null
+            if (oldElement == null || newElement == null ? oldElement != newElement : oldElement.getId() != newElement.getId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns all changes, first added and changed lessons in the order of the new timetable, then removed lessons in the order of the old timetable
+     *
+     * @return all changes
+     * @since 1.4
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns all changes of the given type
+     *
+     * @param type type of the changes
+     * @return all changes of the given type
+     * @since 1.4
+     */
+    public List<Change> getChanges(Change.Type type) {
+        List<Change> changesOfType = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.getType() == type) {
+                changesOfType.add(change);
+            }
+        }
+        return changesOfType;
+    }
+
+    /**
+     * Returns the changes of lessons between {@code start} and {@code end}
+     *
+     * @param start the first day
+     * @param end   the last day
+     * @return the changes in the time period
+     * @since 1.4
+     */
+    TimetableDiff between(LocalDate start, LocalDate end) {
+        List<Change> changesBetween = new ArrayList<>();
+        for (Change change : changes) {
+            LocalDate date = change.getLesson().getDate();
+            if (!date.isBefore(start) && !date.isAfter(end)) {
+                changesBetween.add(change);
+            }
+        }
+        return changesBetween.size() == changes.size() ? this : new TimetableDiff(changesBetween);
+    }
+
+    /**
+     * Returns if both timetables are equal
+     *
+     * @return if there are no changes
+     * @since 1.4
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return changes.toString();
+    }
+
+    /**
+     * Identity of a lesson
+     */
+    private static class LessonKey {
+
+        private final LocalDate date;
+        private final LocalTime startTime;
+        private final Integer lsNumber;
+        private final int hashCode;
+
+        private LessonKey(Timetable.Lesson lesson) {
+            this.date = lesson.getDate();
+            this.startTime = lesson.getStartTime();
+            this.lsNumber = lesson.getLsNumber();
+            this.hashCode = Objects.hash(date, startTime, lsNumber);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LessonKey)) {
+                return false;
+            }
+            LessonKey other = (LessonKey) obj;
+            return hashCode == other.hashCode && Objects.equals(date, other.date) && Objects.equals(startTime, other.startTime) && Objects.equals(lsNumber, other.lsNumber);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Lesson which is equal to all lessons with the same identity and no changed fields
+     */
+    private static class LessonContent {
+
+        private final Timetable.Lesson lesson;
+        private final int hashCode;
+
+        private LessonContent(Timetable.Lesson lesson) {
+            this.lesson = lesson;
+            this.hashCode = contentHash(lesson);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof LessonContent && hashCode == ((LessonContent) obj).hashCode && changedFields(lesson, ((LessonContent) obj).lesson).isEmpty();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * All old and new lessons with the same identity
+     */
+    private static class Bucket {
+
+        private final List<Timetable.Lesson> oldLessons;
+        private final List<Timetable.Lesson> newLessons = new ArrayList<>(2);
+        private Change[] changes;
+        private int next;
+
+        @SuppressWarnings("unchecked")
+        private Bucket(Object oldLessons) {
+            this.oldLessons = (List<Timetable.Lesson>) oldLessons;
+        }
+
+        /**
+         * Pairs unchanged lessons by their content first and the remaining ones in their order.
+         * Old lessons which are left over are added to {@code removed}
+         */
+        private void match(Set<Timetable.Lesson> removed) {
+            Map<LessonContent, ArrayDeque<Integer>> byContent = new HashMap<>();
+            for (int i = 0; i < oldLessons.size(); i++) {
+                byContent.computeIfAbsent(new LessonContent(oldLessons.get(i)), content -> new ArrayDeque<>(1)).add(i);
+            }
+
+            boolean[] oldMatched = new boolean[oldLessons.size()];
+            boolean[] newMatched = new boolean[newLessons.size()];
+            for (int i = 0; i < newLessons.size(); i++) {
+                ArrayDeque<Integer> unchanged = byContent.get(new LessonContent(newLessons.get(i)));
+                if (unchanged != null && !unchanged.isEmpty()) {
+                    oldMatched[unchanged.poll()] = true;
+                    newMatched[i] = true;
+                }
+            }
+
+            changes = new Change[newLessons.size()];
+            int oldIndex = 0;
+            for (int i = 0; i < newLessons.size(); i++) {
+                if (newMatched[i]) {
+                    continue;
+                }
+                while (oldIndex < oldMatched.length && oldMatched[oldIndex]) {
+                    oldIndex++;
+                }
+                if (oldIndex < oldMatched.length) {
+                    changes[i] = compare(oldLessons.get(oldIndex), newLessons.get(i));
+                    oldMatched[oldIndex] = true;
+                } else {
+                    changes[i] = new Change(Change.Type.ADDED, null, newLessons.get(i), EnumSet.noneOf(TimetableQuery.Field.class));
+                }
+            }
+
+            for (int i = 0; i < oldMatched.length; i++) {
+                if (!oldMatched[i]) {
+                    removed.add(oldLessons.get(i));
+                }
+            }
+        }
+
+        /**
+         * Returns the change of the next new lesson of this bucket, in the order of the new timetable
+         *
+         * @return the change, or null if the lesson is unchanged
+         */
+        private Change nextChange() {
+            return changes[next++];
+        }
+    }
+
+    /**
+     * Class to get information about a single change of a lesson
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    public static class Change {
+
+        private final Type type;
+        private final Timetable.Lesson oldLesson;
+        private final Timetable.Lesson newLesson;
+        private final Set<TimetableQuery.Field> changedFields;
+
+        /**
+         * Initialize the {@link Change} class
+         *
+         * @param type          type of the change
+         * @param oldLesson     the lesson of the old timetable, null if the lesson was added
+         * @param newLesson     the lesson of the new timetable, null if the lesson was removed
+         * @param changedFields fields which have changed
+         * @since 1.4
+         */
+        public Change(Type type, Timetable.Lesson oldLesson, Timetable.Lesson newLesson, Set<TimetableQuery.Field> changedFields) {
+            this.type = type;
+            this.oldLesson = oldLesson;
+            this.newLesson = newLesson;
+            this.changedFields = Collections.unmodifiableSet(changedFields);
+        }
+
+        /**
+         * Returns the type of the change
+         *
+         * @return the type of the change
+         * @since 1.4
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the lesson of the old timetable
+         *
+         * @return the lesson of the old timetable, null if the lesson was added
+         * @since 1.4
+         */
+        public Timetable.Lesson getOldLesson() {
+            return oldLesson;
+        }
+
+        /**
+         * Returns the lesson of the new timetable
+         *
+         * @return the lesson of the new timetable, null if the lesson was removed
+         * @since 1.4
+         */
+        public Timetable.Lesson getNewLesson() {
+            return newLesson;
+        }
+
+        /**
+         * Returns the current state of the lesson
+         *
+         * @return the new lesson, or the old lesson if the lesson was removed
+         * @since 1.4
+         */
+        public Timetable.Lesson getLesson() {
+            return newLesson != null ? newLesson : oldLesson;
+        }
+
+        /**
+         * Returns the fields which have changed. Only set for {@link Type#CHANGED} changes
+         *
+         * @return the fields which have changed
+         * @since 1.4
+         */
+        public Set<TimetableQuery.Field> getChangedFields() {
+            return changedFields;
+        }
+
+        /**
+         * Returns if {@code field} has changed
+         *
+         * @param field the field
+         * @return if the field has changed
+         * @since 1.4
+         */
+        public boolean hasChanged(TimetableQuery.Field field) {
+            return changedFields.contains(field);
+        }
+
+        /**
+         * Returns if the lesson got cancelled with this change
+         *
+         * @return if the lesson got cancelled
+         * @since 1.4
+         */
+        public boolean isCancellation() {
+            return type == Type.CHANGED && changedFields.contains(TimetableQuery.Field.CODE) && newLesson.getCode() == UntisUtils.LessonCode.CANCELLED;
+        }
+
+        @Override
+        public String toString() {
+            HashMap<String, Object> changeAsMap = new HashMap<>();
+
+            changeAsMap.put("type", type);
+            changeAsMap.put("oldLesson", oldLesson);
+            changeAsMap.put("newLesson", newLesson);
+            changeAsMap.put("changedFields", changedFields);
+
+            return new JSONObject(changeAsMap).toString();
+        }
+
+        /**
+         * Types of changes
+         *
+         * @version 1.0
+         * @since 1.4
+         */
+        public enum Type {
+            ADDED,
+            REMOVED,
+            CHANGED
+        }
+    }
+
+}
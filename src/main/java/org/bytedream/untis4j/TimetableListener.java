@@ -0,0 +1,33 @@
+package org.bytedream.untis4j;
+
+import java.io.IOException;
+
+/**
+ * Listener for changes of a watched timetable, see {@link Session#watch(UntisUtils.ElementType, int, java.time.LocalDate, java.time.LocalDate, TimetableListener)}.
+ * An exception thrown by a listener is passed to the uncaught exception handler of the poll thread, the timetable is still watched
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public interface TimetableListener {
+
+    /**
+     * Gets called when the timetable of {@code element} has changed
+     *
+     * @param element the element whose timetable has changed
+     * @param diff    the changes
+     * @since 1.4
+     */
+    void onChange(ElementRef element, TimetableDiff diff);
+
+    /**
+     * Gets called when the timetable of {@code element} couldn't be requested. The timetable is requested again with the next poll
+     *
+     * @param element the element whose timetable couldn't be requested
+     * @param e       the exception
+     * @since 1.4
+     */
+    default void onError(ElementRef element, IOException e) {
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonArray;
+import org.bytedream.untis4j.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lays the substitutions of a {@code getSubstitutions} response over the lessons of a base timetable
+ * ({@code getTimetable} with {@code onlyBaseTimetable}), so that the result looks like a normal {@code getTimetable} response
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class TimetableOverlay {
+
+    private static final String[] elementKeys = {"kl", "te", "su", "ro"};
+
+    /**
+     * Returns the key of the element array of {@code elementType} in lessons and substitutions
+     *
+     * @param elementType the element type
+     * @return the key, or null if lessons and substitutions have no array for the element type
+     * @since 1.4
+     */
+    static String elementKey(UntisUtils.ElementType elementType) {
+        switch (elementType) {
+            case CLASS:
+                return "kl";
+            case TEACHER:
+                return "te";
+            case SUBJECT:
+                return "su";
+            case ROOM:
+                return "ro";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Lays {@code substitutions} over {@code baseLessons}. Only substitutions which affect the element are used
+     *
+     * @param baseLessons   the lessons of the base timetable, they are not modified
+     * @param substitutions all substitutions of the time period
+     * @param elementType   type of the element the base timetable belongs to
+     * @param id            id of the element
+     * @return the lessons with all substitutions
+     * @since 1.4
+     */
+    static JsonArray overlay(JsonArray baseLessons, JsonArray substitutions, UntisUtils.ElementType elementType, int id) {
+        String elementKey = elementKey(elementType);
+
+        List<Object> lessons = new ArrayList<>(baseLessons.toList());
+        Map<Long, List<Integer>> slots = new HashMap<>();
+        for (int i = 0; i < baseLessons.length(); i++) {
+            slots.computeIfAbsent(slot(baseLessons.getJsonObject(i)), key -> new ArrayList<>(1)).add(i);
+        }
+
+        for (int i = 0; i < substitutions.length(); i++) {
+            JsonObject substitution = substitutions.getJsonObject(i);
+            if (!affects(substitution, elementKey, id)) {
+                continue;
+            }
+
+            Integer index = find(baseLessons, slots.get(slot(substitution)), substitution);
+            String type = substitution.optString("type", "");
+            Map<String, Object> lesson;
+
+            if (index != null) {
+                // copy the lesson, it may be already overlaid by another substitution
+                lesson = new HashMap<>(new JsonArray(lessons).getJsonObject(index).toMap());
+            } else if (!type.equals("cancel")) {
+                // additional lesson or a lesson which isn't part of the base timetable
+                lesson = new HashMap<>();
+                lesson.put("date", substitution.get("date"));
+                lesson.put("startTime", substitution.get("startTime"));
+                lesson.put("endTime", substitution.get("endTime"));
+                if (substitution.has("lsid")) lesson.put("lsnumber", substitution.get("lsid"));
+            } else {
+                continue;
+            }
+
+            switch (type) {
+                case "cancel":
+                    lesson.put("code", "cancelled");
+                    break;
+                case "stxt":
+                    // only a text was added to the lesson
+                    break;
+                default:
+                    lesson.put("code", "irregular");
+                    for (String key : elementKeys) {
+                        if (substitution.has(key)) lesson.put(key, substitution.getJsonArray(key).toList());
+                    }
+            }
+            if (substitution.has("txt")) lesson.put("substText", substitution.get("txt"));
+
+            if (index != null) {
+                lessons.set(index, lesson);
+            } else {
+                lessons.add(lesson);
+            }
+        }
+
+        return new JsonArray(lessons);
+    }
+
+    /**
+     * Returns if {@code substitution} affects the element with {@code id}, as new or as original element
+     */
+    private static boolean affects(JsonObject substitution, String elementKey, int id) {
+        if (!substitution.has(elementKey)) {
+            return false;
+        }
+        JsonArray elements = substitution.getJsonArray(elementKey);
+        for (int i = 0; i < elements.length(); i++) {
+            JsonObject element = elements.getJsonObject(i);
+            if (element.getInt("id") == id || (element.has("orgid") && element.getInt("orgid") == id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index of the base lesson which is replaced by {@code substitution}.
+     * If multiple lessons take place in the same slot, the lesson number has to match
+     */
+    private static Integer find(JsonArray baseLessons, List<Integer> candidates, JsonObject substitution) {
+        if (candidates == null) {
+            return null;
+        }
+        if (substitution.has("lsid")) {
+            for (int candidate : candidates) {
+                JsonObject lesson = baseLessons.getJsonObject(candidate);
+                if (lesson.has("lsnumber") && lesson.getInt("lsnumber") == substitution.getInt("lsid")) {
+                    return candidate;
+                }
+            }
+        }
+        return candidates.size() == 1 ? candidates.get(0) : null;
+    }
+
+    /**
+     * Returns date and start time of a lesson or substitution as a single number
+     */
+    private static long slot(JsonObject lesson) {
+        return lesson.getLong("date") * 10000 + lesson.getInt("startTime");
+    }
+
+}
@@ -0,0 +1,223 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.json.JSONObject;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Class to describe a timetable request, see {@link Session#getTimetable(TimetableQuery)}
+ *
+ * <p>With {@link TimetableQuery#fields(Field...)} the request can be limited to the lesson fields which are actually needed.
+ * Only the options for these fields are sent to the server and only these fields are decoded</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class TimetableQuery {
+
+    private final LocalDate start;
+    private final LocalDate end;
+    private final UntisUtils.ElementType elementType;
+    private final int id;
+    private final Set<Field> fields;
+    private final boolean onlyBaseTimetable;
+
+    private TimetableQuery(LocalDate start, LocalDate end, UntisUtils.ElementType elementType, int id, Set<Field> fields, boolean onlyBaseTimetable) {
+        this.start = start;
+        this.end = end;
+        this.elementType = elementType;
+        this.id = id;
+        this.fields = fields;
+        this.onlyBaseTimetable = onlyBaseTimetable;
+    }
+
+    /**
+     * Returns a new {@link TimetableQuery} which requests all fields
+     *
+     * @param start       the beginning of the time period
+     * @param end         the end of the time period
+     * @param elementType type on which the timetable should be oriented
+     * @param id          id of the {@code elementType}
+     * @return the timetable query
+     * @since 1.4
+     */
+    public static TimetableQuery of(LocalDate start, LocalDate end, UntisUtils.ElementType elementType, int id) {
+        if (end.isBefore(start)) {
+            throw new DateTimeException("The end date must end after or on the same day as the start date");
+        }
+        return new TimetableQuery(start, end, Objects.requireNonNull(elementType), id, Collections.unmodifiableSet(EnumSet.allOf(Field.class)), false);
+    }
+
+    /**
+     * Returns a copy of this query which only requests and decodes {@code fields}.
+     *
+     * <p>Fields which aren't requested are {@code null} in the returned lessons, element lists (classes, teachers, ...) are empty</p>
+     *
+     * @param fields the lesson fields that are needed
+     * @return the projected timetable query
+     * @since 1.4
+     */
+    public TimetableQuery fields(Field... fields) {
+        EnumSet<Field> projection = EnumSet.noneOf(Field.class);
+        projection.addAll(Arrays.asList(fields));
+        return new TimetableQuery(start, end, elementType, id, Collections.unmodifiableSet(projection), onlyBaseTimetable);
+    }
+
+    /**
+     * Returns a copy of this query which only requests the base timetable, without any substitutions, cancellations, etc.
+     *
+     * <p>The base timetable only changes when the school imports new data, so it is cached per week until the
+     * {@link Session#getLatestImportTime() latest import time} changes</p>
+     *
+     * @return the query for the base timetable
+     * @see Session#getLayeredTimetable(TimetableQuery)
+     * @since 1.4
+     */
+    public TimetableQuery onlyBaseTimetable() {
+        return new TimetableQuery(start, end, elementType, id, fields, true);
+    }
+
+    /**
+     * Returns the beginning of the time period
+     *
+     * @return the beginning of the time period
+     * @since 1.4
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the end of the time period
+     *
+     * @return the end of the time period
+     * @since 1.4
+     */
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the type on which the timetable is oriented
+     *
+     * @return the type on which the timetable is oriented
+     * @since 1.4
+     */
+    public UntisUtils.ElementType getElementType() {
+        return elementType;
+    }
+
+    /**
+     * Returns the id of the element
+     *
+     * @return the id of the element
+     * @since 1.4
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the lesson fields which are requested
+     *
+     * @return the requested lesson fields
+     * @since 1.4
+     */
+    public Set<Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns if only the base timetable is requested
+     *
+     * @return if only the base timetable is requested
+     * @since 1.4
+     */
+    public boolean isOnlyBaseTimetable() {
+        return onlyBaseTimetable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimetableQuery that = (TimetableQuery) o;
+        return id == that.id && start.equals(that.start) && end.equals(that.end) && elementType == that.elementType && fields.equals(that.fields) && onlyBaseTimetable == that.onlyBaseTimetable;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end, elementType, id, fields, onlyBaseTimetable);
+    }
+
+    @Override
+    public String toString() {
+        HashMap<String, Object> timetableQueryAsMap = new HashMap<>();
+
+        timetableQueryAsMap.put("start", start);
+        timetableQueryAsMap.put("end", end);
+        timetableQueryAsMap.put("elementType", elementType);
+        timetableQueryAsMap.put("id", id);
+        timetableQueryAsMap.put("fields", fields);
+        timetableQueryAsMap.put("onlyBaseTimetable", onlyBaseTimetable);
+
+        return new JSONObject(timetableQueryAsMap).toString();
+    }
+
+    /**
+     * All fields of a {@link Timetable.Lesson}
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    public enum Field {
+        DATE,
+        START_TIME,
+        END_TIME,
+        TIME_UNIT,
+        CLASSES,
+        ORIGINAL_CLASSES,
+        TEACHERS,
+        ORIGINAL_TEACHERS,
+        ROOMS,
+        ORIGINAL_ROOMS,
+        SUBJECTS,
+        ORIGINAL_SUBJECTS,
+        CODE,
+        ACTIVITY_TYPE,
+        INFO("showInfo"),
+        SUBST_TEXT("showSubstText"),
+        LS_TEXT("showLsText"),
+        LS_NUMBER("showLsNumber"),
+        STUDENT_GROUP("showStudentgroup");
+
+        private final String option;
+
+        Field() {
+            this(null);
+        }
+
+        Field(String option) {
+            this.option = option;
+        }
+
+        /**
+         * Returns the {@code getTimetable} option the server needs to send this field
+         *
+         * @return the option, or null if the field is always sent
+         * @since 1.4
+         */
+        public String getOption() {
+            return option;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.bytedream.untis4j;
+
+import java.time.LocalDate;
+
+/**
+ * A watch on a timetable, see {@link Session#watch(UntisUtils.ElementType, int, LocalDate, LocalDate, TimetableListener)}
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class TimetableWatch {
+
+    private final TimetableWatcher watcher;
+    private final Session session;
+    private final ElementRef element;
+    private final LocalDate start;
+    private final LocalDate end;
+    private final TimetableListener listener;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Initialize the {@link TimetableWatch} class
+     *
+     * @param watcher  the watcher which polls the timetable
+     * @param session  the session which requests the timetable
+     * @param element  the watched element
+     * @param start    the beginning of the watched time period
+     * @param end      the end of the watched time period
+     * @param listener the listener which gets the changes
+     * @since 1.4
+     */
+    TimetableWatch(TimetableWatcher watcher, Session session, ElementRef element, LocalDate start, LocalDate end, TimetableListener listener) {
+        this.watcher = watcher;
+        this.session = session;
+        this.element = element;
+        this.start = start;
+        this.end = end;
+        this.listener = listener;
+    }
+
+    /**
+     * Stops watching. The listener doesn't get any changes afterwards
+     *
+     * @since 1.4
+     */
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            watcher.cancel(this);
+        }
+    }
+
+    /**
+     * Returns if the watch is cancelled
+     *
+     * @return if the watch is cancelled
+     * @since 1.4
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the watched element
+     *
+     * @return the watched element
+     * @since 1.4
+     */
+    public ElementRef getElement() {
+        return element;
+    }
+
+    /**
+     * Returns the beginning of the watched time period
+     *
+     * @return the beginning of the watched time period
+     * @since 1.4
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the end of the watched time period
+     *
+     * @return the end of the watched time period
+     * @since 1.4
+     */
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the session which requests the timetable
+     *
+     * @return the session which requests the timetable
+     * @since 1.4
+     */
+    Session getSession() {
+        return session;
+    }
+
+    /**
+     * Returns the listener which gets the changes
+     *
+     * @return the listener which gets the changes
+     * @since 1.4
+     */
+    TimetableListener getListener() {
+        return listener;
+    }
+
+}
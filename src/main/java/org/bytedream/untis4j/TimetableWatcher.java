@@ -0,0 +1,315 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.responseObjects.Timetable;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls watched timetables of a server and pushes their changes to the listeners.
+ *
+ * <p>Every watched time period is split into weeks, which are polled independently. A week which contains today or tomorrow is polled
+ * every minute, the next week every 10 minutes, weeks further in the future every hour and past weeks every 6 hours.
+ * Watches of the same element and user share the polls of the weeks they have in common, every watch only gets the changes of its own time period.
+ * Watches of different users never share a poll, a timetable requested with the rights of one user must not reach the listener of another.
+ * All polls of a server share a budget of requests per minute, if it is exhausted the polls which are due the longest are sent first.
+ * Every poll is sent to the server, independent of how long the cache would keep the timetable, and updates the cache</p>
+ *
+ * @version 1.3
+ * @since 1.4
+ */
+class TimetableWatcher {
+
+    // a watcher holds the request budget of its server, so it is kept even while nothing is watched
+    private static final Map<String, TimetableWatcher> watchers = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "untis4j-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Duration soonInterval = Duration.ofMinutes(1);
+    private static final Duration nextWeekInterval = Duration.ofMinutes(10);
+    private static final Duration futureInterval = Duration.ofHours(1);
+    private static final Duration pastInterval = Duration.ofHours(6);
+
+    private final Map<String, Watched> watched = new HashMap<>();
+    private final PriorityQueue<Segment> due = new PriorityQueue<>(Comparator.comparingLong(segment -> segment.nextPoll));
+    private volatile int requestsPerMinute = 60;
+    private double tokens = 1;
+    private long lastRefill = System.nanoTime();
+    private ScheduledFuture<?> dispatcher;
+    private ExecutorService executor;
+
+    /**
+     * Returns the watcher of {@code server}
+     *
+     * @param server the server
+     * @return the watcher of the server
+     * @since 1.4
+     */
+    static TimetableWatcher of(String server) {
+        return watchers.computeIfAbsent(server, key -> new TimetableWatcher());
+    }
+
+    /**
+     * Sets the maximal number of requests per minute all polls of the server may send together
+     *
+     * @param requestsPerMinute the maximal number of requests per minute
+     * @since 1.4
+     */
+    void setRequestsPerMinute(int requestsPerMinute) {
+        if (requestsPerMinute < 1) {
+            throw new IllegalArgumentException("At least one request per minute is required");
+        }
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    /**
+     * Starts watching the timetable of {@code element}
+     *
+     * @param session  the session which requests the timetable
+     * @param element  the element to watch
+     * @param start    the beginning of the time period
+     * @param end      the end of the time period
+     * @param listener the listener which gets the changes
+     * @return the watch
+     * @since 1.4
+     */
+    TimetableWatch watch(Session session, ElementRef element, LocalDate start, LocalDate end, TimetableListener listener) {
+        TimetableWatch watch = new TimetableWatch(this, session, element, start, end, listener);
+
+        synchronized (this) {
+            Watched existing = watched.computeIfAbsent(key(watch), k -> new Watched(element));
+            for (LocalDate monday = start.with(DayOfWeek.MONDAY); !monday.isAfter(end); monday = monday.plusWeeks(1)) {
+                Segment segment = existing.segments.get(monday);
+                if (segment == null) {
+                    segment = new Segment(existing, monday, monday.plusDays(6));
+                    existing.segments.put(monday, segment);
+                    // new segments are polled right away, their first timetable is the base for all following changes
+                    due.add(segment);
+                }
+                segment.watches.add(watch);
+            }
+
+            if (dispatcher == null) {
+                executor = ConcurrentRequests.newExecutor(4);
+                dispatcher = scheduler.scheduleWithFixedDelay(this::dispatch, 0, 1, TimeUnit.SECONDS);
+            }
+        }
+        return watch;
+    }
+
+    /**
+     * Stops {@code watch}. Weeks which aren't watched by any other watch aren't polled anymore
+     *
+     * @param watch the watch to stop
+     * @since 1.4
+     */
+    synchronized void cancel(TimetableWatch watch) {
+        String key = key(watch);
+        Watched existing = watched.get(key);
+        if (existing == null) {
+            return;
+        }
+        for (LocalDate monday = watch.getStart().with(DayOfWeek.MONDAY); !monday.isAfter(watch.getEnd()); monday = monday.plusWeeks(1)) {
+            Segment segment = existing.segments.get(monday);
+            if (segment != null && segment.watches.remove(watch) && segment.watches.isEmpty()) {
+                segment.cancelled = true;
+                existing.segments.remove(monday);
+            }
+        }
+        if (existing.segments.isEmpty()) {
+            watched.remove(key);
+        }
+
+        due.removeIf(segment -> segment.cancelled);
+        if (watched.isEmpty() && dispatcher != null) {
+            dispatcher.cancel(false);
+            dispatcher = null;
+            // polls which are running are finished, but the threads are released afterwards
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns the key of the timetable of {@code watch}. Watches with the same key share the polls of their common weeks,
+     * so the key contains the user whose session requests the timetable
+     */
+    private static String key(TimetableWatch watch) {
+        Infos infos = watch.getSession().getInfos();
+        return infos.getSchoolName() + "|" + infos.getUsername() + "|" + watch.getElement().getElementType() + "|" + watch.getElement().getId();
+    }
+
+    /**
+     * Sends the polls which are due, as far as the request budget allows it
+     */
+    private synchronized void dispatch() {
+        long now = System.nanoTime();
+        int perMinute = requestsPerMinute;
+        // allow bursts of 10 seconds
+        tokens = Math.min(Math.max(1, perMinute / 6.0), tokens + (now - lastRefill) * perMinute / (double) TimeUnit.MINUTES.toNanos(1));
+        lastRefill = now;
+
+        if (executor == null) {
+            // the last watch was cancelled after this run was already started
+            return;
+        }
+
+        Segment segment;
+        while (tokens >= 1 && (segment = due.peek()) != null && segment.nextPoll - now <= 0) {
+            due.poll();
+            if (segment.cancelled) {
+                continue;
+            }
+            tokens--;
+            Segment polled = segment;
+            executor.execute(() -> poll(polled));
+        }
+    }
+
+    /**
+     * Requests the timetable of {@code segment}, notifies the listeners of all changes and schedules the next poll.
+     * An exception of a listener doesn't keep the other listeners from being notified, it is thrown afterwards
+     * to the uncaught exception handler of the poll thread
+     */
+    private void poll(Segment segment) {
+        Watched owner = segment.owner;
+        List<TimetableWatch> watches = segment.watches;
+        RuntimeException listenerException = null;
+        try {
+            // all watches belong to the same user, the session of the newest watch is used
+            Session session = null;
+            for (TimetableWatch watch : watches) {
+                session = watch.getSession();
+            }
+            if (session == null) {
+                return;
+            }
+            // the poll interval is the refresh interval of the watched weeks, so the cached timetable must not be returned
+            Timetable timetable = session.withCacheControl(CacheControl.forceRefresh())
+                    .getTimetable(segment.start, segment.end, owner.element.getElementType(), owner.element.getId());
+
+            Timetable last = segment.last;
+            segment.last = timetable;
+            // an unchanged response yields the same timetable instance, so there is nothing to compare
+            if (last != null && last != timetable) {
+                TimetableDiff diff = TimetableDiff.of(last, timetable);
+                if (!diff.isEmpty()) {
+                    for (TimetableWatch watch : watches) {
+                        // the week may be only partly watched
+                        TimetableDiff watchedDiff = diff.between(watch.getStart(), watch.getEnd());
+                        if (watchedDiff.isEmpty()) {
+                            continue;
+                        }
+                        try {
+                            watch.getListener().onChange(owner.element, watchedDiff);
+                        } catch (RuntimeException e) {
+                            listenerException = collect(listenerException, e);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            for (TimetableWatch watch : watches) {
+                try {
+                    watch.getListener().onError(owner.element, e);
+                } catch (RuntimeException re) {
+                    listenerException = collect(listenerException, re);
+                }
+            }
+        } finally {
+            // the segment is polled again, even if the poll failed
+            synchronized (this) {
+                if (!segment.cancelled) {
+                    segment.nextPoll = System.nanoTime() + interval(segment.start, segment.end, LocalDate.now()).toNanos();
+                    due.add(segment);
+                }
+            }
+        }
+        if (listenerException != null) {
+            throw listenerException;
+        }
+    }
+
+    /**
+     * Returns the first exception, with {@code exception} added as suppressed exception, or {@code exception} if it's the first one
+     */
+    private static RuntimeException collect(RuntimeException first, RuntimeException exception) {
+        if (first == null) {
+            return exception;
+        }
+        first.addSuppressed(exception);
+        return first;
+    }
+
+    /**
+     * Returns the time between two polls of a time period, the nearer it is to today, the shorter the interval
+     *
+     * @param start the beginning of the time period
+     * @param end   the end of the time period
+     * @param today the current date
+     * @return the poll interval
+     * @since 1.4
+     */
+    static Duration interval(LocalDate start, LocalDate end, LocalDate today) {
+        if (end.isBefore(today)) {
+            return pastInterval;
+        } else if (!start.isAfter(today.plusDays(1))) {
+            return soonInterval;
+        } else if (!start.isAfter(today.plusWeeks(1))) {
+            return nextWeekInterval;
+        } else {
+            return futureInterval;
+        }
+    }
+
+    /**
+     * A watched timetable with all of its watched weeks
+     */
+    private static class Watched {
+
+        private final ElementRef element;
+        private final Map<LocalDate, Segment> segments = new HashMap<>();
+
+        private Watched(ElementRef element) {
+            this.element = element;
+        }
+    }
+
+    /**
+     * A week of a watched timetable with all watches which contain it, which is polled on its own
+     */
+    private static class Segment {
+
+        private final Watched owner;
+        private final LocalDate start;
+        private final LocalDate end;
+        private final List<TimetableWatch> watches = new CopyOnWriteArrayList<>();
+        private volatile Timetable last;
+        private volatile boolean cancelled = false;
+        private long nextPoll = System.nanoTime();
+
+        private Segment(Watched owner, LocalDate start, LocalDate end) {
+            this.owner = owner;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+}
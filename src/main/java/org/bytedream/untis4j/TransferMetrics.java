@@ -0,0 +1,212 @@
+package org.bytedream.untis4j;
+
+import org.json.JSONObject;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class to count the transferred bytes of every POST method
+ *
+ * <p>Wire bytes are the bytes received from the server (compressed, if the server compressed the response), decoded bytes are the bytes after decompression</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class TransferMetrics {
+
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the metrics of a method, they are created if they don't exist yet
+     *
+     * @param method the POST method
+     * @return the metrics of the method
+     * @since 1.4
+     */
+    MethodMetrics of(String method) {
+        return methods.computeIfAbsent(method, MethodMetrics::new);
+    }
+
+    /**
+     * Returns the metrics of every method that was requested
+     *
+     * @return the metrics of every method, mapped by the method name
+     * @since 1.4
+     */
+    public Map<String, MethodMetrics> getMethods() {
+        return Collections.unmodifiableMap(methods);
+    }
+
+    /**
+     * Returns the bytes received from the server by all methods
+     *
+     * @return the bytes received from the server
+     * @since 1.4
+     */
+    public long getWireBytes() {
+        return methods.values().stream().mapToLong(MethodMetrics::getWireBytes).sum();
+    }
+
+    /**
+     * Returns the decoded bytes of all methods
+     *
+     * @return the decoded bytes
+     * @since 1.4
+     */
+    public long getDecodedBytes() {
+        return methods.values().stream().mapToLong(MethodMetrics::getDecodedBytes).sum();
+    }
+
+    /**
+     * Class to count the transferred bytes of a single method
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    public static class MethodMetrics {
+
+        private final String method;
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder wireBytes = new LongAdder();
+        private final LongAdder decodedBytes = new LongAdder();
+
+        /**
+         * Initialize the {@link MethodMetrics} class
+         *
+         * @param method the POST method
+         * @since 1.4
+         */
+        private MethodMetrics(String method) {
+            this.method = method;
+        }
+
+        /**
+         * Returns the POST method
+         *
+         * @return the POST method
+         * @since 1.4
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Returns the number of responses received from the server
+         *
+         * @return the number of responses
+         * @since 1.4
+         */
+        public long getResponses() {
+            return responses.sum();
+        }
+
+        /**
+         * Returns the bytes received from the server
+         *
+         * @return the bytes received from the server
+         * @since 1.4
+         */
+        public long getWireBytes() {
+            return wireBytes.sum();
+        }
+
+        /**
+         * Returns the bytes after decompression
+         *
+         * @return the bytes after decompression
+         * @since 1.4
+         */
+        public long getDecodedBytes() {
+            return decodedBytes.sum();
+        }
+
+        /**
+         * Wraps the raw response stream to count the received bytes
+         *
+         * @param input the raw response stream
+         * @return the counting stream
+         * @since 1.4
+         */
+        InputStream countWire(InputStream input) {
+            responses.increment();
+            return new CountingInputStream(input, wireBytes);
+        }
+
+        /**
+         * Wraps the decompressed response stream to count the decoded bytes
+         *
+         * @param input the decompressed response stream
+         * @return the counting stream
+         * @since 1.4
+         */
+        InputStream countDecoded(InputStream input) {
+            return new CountingInputStream(input, decodedBytes);
+        }
+
+        /**
+         * Returns a json parsed string with all information
+         *
+         * @return a json parsed string with all information
+         * @since 1.4
+         */
+        @Override
+        public String toString() {
+            HashMap<String, Object> methodMetricsAsMap = new HashMap<>();
+
+            methodMetricsAsMap.put("method", method);
+            methodMetricsAsMap.put("responses", getResponses());
+            methodMetricsAsMap.put("wireBytes", getWireBytes());
+            methodMetricsAsMap.put("decodedBytes", getDecodedBytes());
+
+            return new JSONObject(methodMetricsAsMap).toString();
+        }
+    }
+
+    /**
+     * Input stream which adds the number of read bytes to a counter
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final LongAdder counter;
+
+        private CountingInputStream(InputStream input, LongAdder counter) {
+            super(input);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                counter.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            counter.add(skipped);
+            return skipped;
+        }
+    }
+}
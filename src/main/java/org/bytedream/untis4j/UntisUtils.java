@@ -1,7 +1,6 @@
 package org.bytedream.untis4j;
 
-import org.json.JSONObject;
-
+import java.nio.charset.StandardCharsets;
 import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -39,8 +38,7 @@ public class UntisUtils {
      * @since 1.0
      */
     public static String processParams(String method, Map<String, ?> optionalParams) {
-        JSONObject paramsJSONObject = new JSONObject(optionalParams);
-        return "{\"id\":\"ID\",\"method\":\"" + method + "\",\"jsonrpc\":\"2.0\",\"params\":" + paramsJSONObject + "}";
+        return new String(RequestEncoder.encode(method, optionalParams), StandardCharsets.UTF_8);
     }
 
     /**
@@ -176,6 +174,7 @@ public class UntisUtils {
         GETSCHOOLYEARS("getSchoolyears"),
         GETSTATUSDATA("getStatusData"),
         GETSUBJECTS("getSubjects"),
+        GETSUBSTITUTIONS("getSubstitutions"),
         GETTEACHERS("getTeachers"),
         GETTIMEGRIDUNTIS("getTimegridUnits"),
         GETTIMETABLE("getTimetable"),
@@ -0,0 +1,140 @@
+package org.bytedream.untis4j;
+
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Health of a WebUntis server, shared by all sessions of the server.
+ *
+ * <p>After {@link UpstreamHealth#failureThreshold} requests in a row have failed because the server couldn't be reached, timed out or answered with
+ * an http error, the server is considered unavailable. Requests to an unavailable server fail immediately with an
+ * {@link UpstreamUnavailableException} instead of piling up on it. After a backoff (starting at 5 seconds and doubling with every
+ * further failure, up to 2 minutes) a single request is let through to probe the server, if it succeeds the server is available again.
+ * Error responses of the JSON-RPC api (e.g. missing rights) count as success, the server is alive</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class UpstreamHealth {
+
+    /**
+     * The number of failed requests in a row after which a server is considered unavailable
+     */
+    public static final int failureThreshold = 3;
+
+    private static final Map<String, UpstreamHealth> servers = new ConcurrentHashMap<>();
+    private static final Duration initialBackoff = Duration.ofSeconds(5);
+    private static final Duration maxBackoff = Duration.ofMinutes(2);
+
+    private final String server;
+    private int consecutiveFailures = 0;
+    private long unavailableUntil = 0;
+    private boolean probing = false;
+
+    private UpstreamHealth(String server) {
+        this.server = server;
+    }
+
+    /**
+     * Returns the health of {@code server}
+     *
+     * @param server the server
+     * @return the health of the server
+     * @since 1.4
+     */
+    static UpstreamHealth of(String server) {
+        return servers.computeIfAbsent(server, UpstreamHealth::new);
+    }
+
+    /**
+     * Checks if a request may be sent to the server. If the backoff of an unavailable server is over, the calling request becomes the probe
+     *
+     * @throws UpstreamUnavailableException if the server is unavailable
+     * @since 1.4
+     */
+    synchronized void acquire() throws UpstreamUnavailableException {
+        if (consecutiveFailures < failureThreshold) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (probing || now - unavailableUntil < 0) {
+            throw new UpstreamUnavailableException(server + " is unavailable after " + consecutiveFailures + " failed requests");
+        }
+        probing = true;
+    }
+
+    /**
+     * Records a request which reached the server
+     *
+     * @since 1.4
+     */
+    synchronized void success() {
+        consecutiveFailures = 0;
+        probing = false;
+    }
+
+    /**
+     * Records a request which failed because of the server or the connection to it
+     *
+     * @since 1.4
+     */
+    synchronized void failure() {
+        consecutiveFailures++;
+        probing = false;
+        if (consecutiveFailures >= failureThreshold) {
+            int doublings = Math.min(consecutiveFailures - failureThreshold, 5);
+            Duration backoff = initialBackoff.multipliedBy(1L << doublings);
+            unavailableUntil = System.nanoTime() + Math.min(backoff.toNanos(), maxBackoff.toNanos());
+        }
+    }
+
+    /**
+     * Returns if requests are sent to the server. An unavailable server gets a probe request when its backoff is over
+     *
+     * @return if the server is available
+     * @since 1.4
+     */
+    public synchronized boolean isAvailable() {
+        return consecutiveFailures < failureThreshold;
+    }
+
+    /**
+     * Returns the number of requests in a row which failed
+     *
+     * @return the number of failed requests in a row
+     * @since 1.4
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Returns the time until the next request is sent to an unavailable server
+     *
+     * @return the time until the next probe, or {@link Duration#ZERO} if the server is available or can be probed now
+     * @since 1.4
+     */
+    public synchronized Duration getRetryIn() {
+        if (consecutiveFailures < failureThreshold) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, unavailableUntil - System.nanoTime()));
+    }
+
+    @Override
+    public String toString() {
+        HashMap<String, Object> upstreamHealthAsMap = new HashMap<>();
+
+        upstreamHealthAsMap.put("server", server);
+        upstreamHealthAsMap.put("available", isAvailable());
+        upstreamHealthAsMap.put("consecutiveFailures", getConsecutiveFailures());
+        upstreamHealthAsMap.put("retryIn", getRetryIn().toString());
+
+        return new JSONObject(upstreamHealthAsMap).toString();
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.bytedream.untis4j;
+
+import java.net.ConnectException;
+
+/**
+ * Exception if a request isn't sent because the server is considered unavailable, see {@link UpstreamHealth}
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class UpstreamUnavailableException extends ConnectException {
+
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+
+}
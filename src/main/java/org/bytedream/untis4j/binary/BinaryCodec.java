@@ -0,0 +1,785 @@
+package org.bytedream.untis4j.binary;
+
+import org.bytedream.untis4j.UntisUtils;
+import org.bytedream.untis4j.responseObjects.Classes;
+import org.bytedream.untis4j.responseObjects.Holidays;
+import org.bytedream.untis4j.responseObjects.Rooms;
+import org.bytedream.untis4j.responseObjects.SchoolYears;
+import org.bytedream.untis4j.responseObjects.Subjects;
+import org.bytedream.untis4j.responseObjects.Teachers;
+import org.bytedream.untis4j.responseObjects.TimeUnits;
+import org.bytedream.untis4j.responseObjects.TimegridUnits;
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Compact, versioned binary format for timetables and master data.
+ *
+ * <p>Supported are {@link Timetable}, {@link Teachers}, {@link Rooms}, {@link Classes}, {@link Subjects}, {@link Holidays},
+ * {@link SchoolYears} and {@link TimegridUnits}. Every written object starts with a header (magic number, format version and type),
+ * so it can be read without knowing its type and data written by an older format version is recognized.
+ * Numbers are written as varints, ids, dates and times as difference to the previous value and every distinct string
+ * (and every distinct element of a timetable) only once, all further occurrences are references to the first one.
+ * Objects are streamed over {@link DataOutput} / {@link DataInput}, a {@link ByteBuffer} can be used via
+ * {@link BinaryCodec#toByteArray(BaseResponse)} and {@link BinaryCodec#read(ByteBuffer)}</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class BinaryCodec {
+
+    /**
+     * The current version of the format
+     */
+    public static final int formatVersion = 1;
+
+    private static final int magic = 0x55344A42; // U4JB
+
+    private static final int timetableType = 1;
+    private static final int teachersType = 2;
+    private static final int roomsType = 3;
+    private static final int classesType = 4;
+    private static final int subjectsType = 5;
+    private static final int holidaysType = 6;
+    private static final int schoolYearsType = 7;
+    private static final int timegridUnitsType = 8;
+
+    private static final int hasDate = 1;
+    private static final int hasStartTime = 1 << 1;
+    private static final int hasEndTime = 1 << 2;
+    private static final int hasLsNumber = 1 << 3;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Writes {@code response} to {@code output}
+     *
+     * @param response the response to write. Must be one of the supported types
+     * @param output   the output to write to
+     * @throws IOException              if the output couldn't be written
+     * @throws IllegalArgumentException if the type of {@code response} isn't supported
+     * @since 1.4
+     */
+    public static void write(BaseResponse response, DataOutput output) throws IOException {
+        int type;
+        if (response instanceof Timetable) {
+            type = timetableType;
+        } else if (response instanceof Teachers) {
+            type = teachersType;
+        } else if (response instanceof Rooms) {
+            type = roomsType;
+        } else if (response instanceof Classes) {
+            type = classesType;
+        } else if (response instanceof Subjects) {
+            type = subjectsType;
+        } else if (response instanceof Holidays) {
+            type = holidaysType;
+        } else if (response instanceof SchoolYears) {
+            type = schoolYearsType;
+        } else if (response instanceof TimegridUnits) {
+            type = timegridUnitsType;
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + (response == null ? null : response.getClass().getName()));
+        }
+
+        output.writeInt(magic);
+        output.writeByte(formatVersion);
+        output.writeByte(type);
+
+        BinaryOutput binaryOutput = new BinaryOutput(output);
+        switch (type) {
+            case timetableType:
+                writeTimetable(binaryOutput, (Timetable) response);
+                break;
+            case teachersType:
+                writeTeachers(binaryOutput, (Teachers) response);
+                break;
+            case roomsType:
+                writeRooms(binaryOutput, (Rooms) response);
+                break;
+            case classesType:
+                writeClasses(binaryOutput, (Classes) response);
+                break;
+            case subjectsType:
+                writeSubjects(binaryOutput, (Subjects) response);
+                break;
+            case holidaysType:
+                writeHolidays(binaryOutput, (Holidays) response);
+                break;
+            case schoolYearsType:
+                writeSchoolYears(binaryOutput, (SchoolYears) response);
+                break;
+            case timegridUnitsType:
+                writeTimegridUnits(binaryOutput, (TimegridUnits) response);
+                break;
+        }
+    }
+
+    /**
+     * Returns {@code response} in the binary format
+     *
+     * @param response the response. Must be one of the supported types
+     * @return the binary representation of {@code response}
+     * @throws IllegalArgumentException if the type of {@code response} isn't supported
+     * @since 1.4
+     */
+    public static byte[] toByteArray(BaseResponse response) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(response, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            // a ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a response which was written by {@link BinaryCodec#write(BaseResponse, DataOutput)}
+     *
+     * @param input the input to read from
+     * @return the read response
+     * @throws IOException if the input couldn't be read, is malformed or was written by an unknown format version
+     * @since 1.4
+     */
+    public static BaseResponse read(DataInput input) throws IOException {
+        if (input.readInt() != magic) {
+            throw new IOException("Input isn't in the untis4j binary format");
+        }
+        int version = input.readUnsignedByte();
+        if (version != formatVersion) {
+            throw new IOException("Unsupported format version " + version);
+        }
+        int type = input.readUnsignedByte();
+
+        BinaryInput binaryInput = new BinaryInput(input);
+        try {
+            switch (type) {
+                case timetableType:
+                    return readTimetable(binaryInput);
+                case teachersType:
+                    return readTeachers(binaryInput);
+                case roomsType:
+                    return readRooms(binaryInput);
+                case classesType:
+                    return readClasses(binaryInput);
+                case subjectsType:
+                    return readSubjects(binaryInput);
+                case holidaysType:
+                    return readHolidays(binaryInput);
+                case schoolYearsType:
+                    return readSchoolYears(binaryInput);
+                case timegridUnitsType:
+                    return readTimegridUnits(binaryInput);
+                default:
+                    throw new IOException("Unknown type " + type);
+            }
+        } catch (DateTimeException | ClassCastException e) {
+            throw new IOException("Malformed input", e);
+        }
+    }
+
+    /**
+     * Reads a response of the given type which was written by {@link BinaryCodec#write(BaseResponse, DataOutput)}
+     *
+     * @param input the input to read from
+     * @param type  the expected type of the response
+     * @param <T>   the expected type of the response
+     * @return the read response
+     * @throws IOException if the input couldn't be read, is malformed, was written by an unknown format version or isn't of type {@code type}
+     * @since 1.4
+     */
+    public static <T extends BaseResponse> T read(DataInput input, Class<T> type) throws IOException {
+        BaseResponse response = read(input);
+        if (!type.isInstance(response)) {
+            throw new IOException("Expected " + type.getName() + " but read " + response.getClass().getName());
+        }
+        return type.cast(response);
+    }
+
+    /**
+     * Reads a response from the remaining bytes of {@code buffer}. The position of the buffer is moved behind the read response
+     *
+     * @param buffer the buffer to read from
+     * @return the read response
+     * @throws IOException if the buffer is malformed or was written by an unknown format version
+     * @since 1.4
+     */
+    public static BaseResponse read(ByteBuffer buffer) throws IOException {
+        return read(new DataInputStream(new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                } else if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, buffer.remaining());
+                buffer.get(b, off, count);
+                return count;
+            }
+        }));
+    }
+
+    private static void writeTimetable(BinaryOutput output, Timetable timetable) throws IOException {
+        output.writeVarInt(timetable.size());
+        LocalDate previousDate = null;
+        LocalTime previousStartTime = null;
+        for (Timetable.Lesson lesson : timetable) {
+            int flags = 0;
+            if (lesson.getDate() != null) {
+                flags |= hasDate;
+            }
+            if (lesson.getStartTime() != null) {
+                flags |= hasStartTime;
+            }
+            if (lesson.getEndTime() != null) {
+                flags |= hasEndTime;
+            }
+            if (lesson.getLsNumber() != null) {
+                flags |= hasLsNumber;
+            }
+            output.writeByte(flags);
+
+            if (lesson.getDate() != null) {
+                output.writeDate(lesson.getDate(), previousDate);
+                previousDate = lesson.getDate();
+            }
+            if (lesson.getStartTime() != null) {
+                output.writeTime(lesson.getStartTime(), previousStartTime);
+                previousStartTime = lesson.getStartTime();
+            }
+            if (lesson.getEndTime() != null) {
+                // the end time is written relative to the start time, which is mostly the same number of seconds
+                output.writeTime(lesson.getEndTime(), lesson.getStartTime());
+            }
+            if (!output.writeReference(lesson.getTimeUnitObject())) {
+                writeTimeUnit(output, lesson.getTimeUnitObject(), null);
+            }
+
+            writeClassElements(output, lesson.getClasses());
+            writeClassElements(output, lesson.getOriginalClasses());
+            writeTeacherElements(output, lesson.getTeachers());
+            writeTeacherElements(output, lesson.getOriginalTeachers());
+            writeRoomElements(output, lesson.getRooms());
+            writeRoomElements(output, lesson.getOriginalRooms());
+            writeSubjectElements(output, lesson.getSubjects());
+            writeSubjectElements(output, lesson.getOriginalSubjects());
+
+            output.writeVarInt(lesson.getCode() == null ? 0 : lesson.getCode().ordinal() + 1);
+            output.writeString(lesson.getActivityType());
+            output.writeString(lesson.getInfo());
+            output.writeString(lesson.getSubstText());
+            output.writeString(lesson.getLsText());
+            if (lesson.getLsNumber() != null) {
+                output.writeVarInt(lesson.getLsNumber());
+            }
+            output.writeString(lesson.getStudentGroup());
+        }
+    }
+
+    private static Timetable readTimetable(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        Timetable timetable = new Timetable();
+        LocalDate previousDate = null;
+        LocalTime previousStartTime = null;
+        for (int i = 0; i < size; i++) {
+            int flags = input.readByte();
+
+            LocalDate date = null;
+            if ((flags & hasDate) != 0) {
+                date = previousDate = input.readDate(previousDate);
+            }
+            LocalTime startTime = null;
+            if ((flags & hasStartTime) != 0) {
+                startTime = previousStartTime = input.readTime(previousStartTime);
+            }
+            LocalTime endTime = null;
+            if ((flags & hasEndTime) != 0) {
+                endTime = input.readTime(startTime);
+            }
+            Object timeUnitObject = input.readReference();
+            if (timeUnitObject == BinaryInput.inline) {
+                timeUnitObject = input.register(readTimeUnit(input, null));
+            }
+
+            Classes classes = readClassElements(input);
+            Classes originalClasses = readClassElements(input);
+            Teachers teachers = readTeacherElements(input);
+            Teachers originalTeachers = readTeacherElements(input);
+            Rooms rooms = readRoomElements(input);
+            Rooms originalRooms = readRoomElements(input);
+            Subjects subjects = readSubjectElements(input);
+            Subjects originalSubjects = readSubjectElements(input);
+
+            int code = input.readCount();
+            UntisUtils.LessonCode[] codes = UntisUtils.LessonCode.values();
+            if (code > codes.length) {
+                throw new IOException("Unknown lesson code " + code);
+            }
+            String activityType = input.readString();
+            String info = input.readString();
+            String substText = input.readString();
+            String lsText = input.readString();
+            Integer lsNumber = (flags & hasLsNumber) != 0 ? input.readVarInt() : null;
+            String studentGroup = input.readString();
+
+            timetable.add(new Timetable.Lesson(date, startTime, endTime, (TimeUnits.TimeUnitObject) timeUnitObject,
+                    classes, originalClasses, teachers, originalTeachers, rooms, originalRooms, subjects, originalSubjects,
+                    code == 0 ? null : codes[code - 1], activityType, info, substText, lsText, lsNumber, studentGroup));
+        }
+        return timetable;
+    }
+
+    private static void writeClassElements(BinaryOutput output, Classes classes) throws IOException {
+        if (!writeElementCount(output, classes)) {
+            return;
+        }
+        for (Classes.ClassObject classObject : classes) {
+            if (!output.writeReference(classObject)) {
+                writeClass(output, classObject, 0);
+            }
+        }
+    }
+
+    private static Classes readClassElements(BinaryInput input) throws IOException {
+        int count = input.readCount();
+        if (count == 0) {
+            return null;
+        }
+        Classes classes = new Classes();
+        for (int i = 1; i < count; i++) {
+            Object classObject = input.readReference();
+            if (classObject == BinaryInput.inline) {
+                classObject = input.register(readClass(input, 0));
+            }
+            classes.add((Classes.ClassObject) classObject);
+        }
+        return classes;
+    }
+
+    private static void writeTeacherElements(BinaryOutput output, Teachers teachers) throws IOException {
+        if (!writeElementCount(output, teachers)) {
+            return;
+        }
+        for (Teachers.TeacherObject teacherObject : teachers) {
+            if (!output.writeReference(teacherObject)) {
+                writeTeacher(output, teacherObject, 0);
+            }
+        }
+    }
+
+    private static Teachers readTeacherElements(BinaryInput input) throws IOException {
+        int count = input.readCount();
+        if (count == 0) {
+            return null;
+        }
+        Teachers teachers = new Teachers();
+        for (int i = 1; i < count; i++) {
+            Object teacherObject = input.readReference();
+            if (teacherObject == BinaryInput.inline) {
+                teacherObject = input.register(readTeacher(input, 0));
+            }
+            teachers.add((Teachers.TeacherObject) teacherObject);
+        }
+        return teachers;
+    }
+
+    private static void writeRoomElements(BinaryOutput output, Rooms rooms) throws IOException {
+        if (!writeElementCount(output, rooms)) {
+            return;
+        }
+        for (Rooms.RoomObject roomObject : rooms) {
+            if (!output.writeReference(roomObject)) {
+                writeRoom(output, roomObject, 0);
+            }
+        }
+    }
+
+    private static Rooms readRoomElements(BinaryInput input) throws IOException {
+        int count = input.readCount();
+        if (count == 0) {
+            return null;
+        }
+        Rooms rooms = new Rooms();
+        for (int i = 1; i < count; i++) {
+            Object roomObject = input.readReference();
+            if (roomObject == BinaryInput.inline) {
+                roomObject = input.register(readRoom(input, 0));
+            }
+            rooms.add((Rooms.RoomObject) roomObject);
+        }
+        return rooms;
+    }
+
+    private static void writeSubjectElements(BinaryOutput output, Subjects subjects) throws IOException {
+        if (!writeElementCount(output, subjects)) {
+            return;
+        }
+        for (Subjects.SubjectObject subjectObject : subjects) {
+            if (!output.writeReference(subjectObject)) {
+                writeSubject(output, subjectObject, 0);
+            }
+        }
+    }
+
+    private static Subjects readSubjectElements(BinaryInput input) throws IOException {
+        int count = input.readCount();
+        if (count == 0) {
+            return null;
+        }
+        Subjects subjects = new Subjects();
+        for (int i = 1; i < count; i++) {
+            Object subjectObject = input.readReference();
+            if (subjectObject == BinaryInput.inline) {
+                subjectObject = input.register(readSubject(input, 0));
+            }
+            subjects.add((Subjects.SubjectObject) subjectObject);
+        }
+        return subjects;
+    }
+
+    /**
+     * Writes the number of elements of a lesson plus one, or 0 if {@code elements} is null
+     *
+     * @return false if {@code elements} is null
+     */
+    private static boolean writeElementCount(BinaryOutput output, List<?> elements) throws IOException {
+        if (elements == null) {
+            output.writeVarInt(0);
+            return false;
+        }
+        output.writeVarInt(elements.size() + 1);
+        return true;
+    }
+
+    private static void writeTeachers(BinaryOutput output, Teachers teachers) throws IOException {
+        output.writeVarInt(teachers.size());
+        int previousId = 0;
+        for (Teachers.TeacherObject teacherObject : teachers) {
+            writeTeacher(output, teacherObject, previousId);
+            previousId = teacherObject.getId();
+        }
+    }
+
+    private static Teachers readTeachers(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        Teachers teachers = new Teachers();
+        int previousId = 0;
+        for (int i = 0; i < size; i++) {
+            Teachers.TeacherObject teacherObject = readTeacher(input, previousId);
+            teachers.add(teacherObject);
+            previousId = teacherObject.getId();
+        }
+        return teachers;
+    }
+
+    private static void writeTeacher(BinaryOutput output, Teachers.TeacherObject teacherObject, int previousId) throws IOException {
+        output.writeVarInt(teacherObject.getId() - previousId);
+        output.writeString(teacherObject.getName());
+        output.writeString(teacherObject.getLongName());
+        output.writeBoolean(teacherObject.isActive());
+        output.writeString(teacherObject.getTitle());
+        output.writeString(teacherObject.getForename());
+    }
+
+    private static Teachers.TeacherObject readTeacher(BinaryInput input, int previousId) throws IOException {
+        int id = input.readVarInt() + previousId;
+        String name = input.readString();
+        String longName = input.readString();
+        boolean active = input.readBoolean();
+        String title = input.readString();
+        String foreName = input.readString();
+        return new Teachers.TeacherObject(name, active, id, longName, title, foreName);
+    }
+
+    private static void writeRooms(BinaryOutput output, Rooms rooms) throws IOException {
+        output.writeVarInt(rooms.size());
+        int previousId = 0;
+        for (Rooms.RoomObject roomObject : rooms) {
+            writeRoom(output, roomObject, previousId);
+            previousId = roomObject.getId();
+        }
+    }
+
+    private static Rooms readRooms(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        Rooms rooms = new Rooms();
+        int previousId = 0;
+        for (int i = 0; i < size; i++) {
+            Rooms.RoomObject roomObject = readRoom(input, previousId);
+            rooms.add(roomObject);
+            previousId = roomObject.getId();
+        }
+        return rooms;
+    }
+
+    private static void writeRoom(BinaryOutput output, Rooms.RoomObject roomObject, int previousId) throws IOException {
+        output.writeVarInt(roomObject.getId() - previousId);
+        output.writeString(roomObject.getName());
+        output.writeString(roomObject.getLongName());
+        output.writeBoolean(roomObject.isActive());
+        output.writeString(roomObject.getBuilding());
+    }
+
+    private static Rooms.RoomObject readRoom(BinaryInput input, int previousId) throws IOException {
+        int id = input.readVarInt() + previousId;
+        String name = input.readString();
+        String longName = input.readString();
+        boolean active = input.readBoolean();
+        String building = input.readString();
+        return new Rooms.RoomObject(name, active, id, longName, building);
+    }
+
+    private static void writeClasses(BinaryOutput output, Classes classes) throws IOException {
+        output.writeVarInt(classes.size());
+        int previousId = 0;
+        for (Classes.ClassObject classObject : classes) {
+            writeClass(output, classObject, previousId);
+            previousId = classObject.getId();
+        }
+    }
+
+    private static Classes readClasses(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        Classes classes = new Classes();
+        int previousId = 0;
+        for (int i = 0; i < size; i++) {
+            Classes.ClassObject classObject = readClass(input, previousId);
+            classes.add(classObject);
+            previousId = classObject.getId();
+        }
+        return classes;
+    }
+
+    private static void writeClass(BinaryOutput output, Classes.ClassObject classObject, int previousId) throws IOException {
+        output.writeVarInt(classObject.getId() - previousId);
+        output.writeString(classObject.getName());
+        output.writeString(classObject.getLongName());
+        output.writeBoolean(classObject.isActive());
+    }
+
+    private static Classes.ClassObject readClass(BinaryInput input, int previousId) throws IOException {
+        int id = input.readVarInt() + previousId;
+        String name = input.readString();
+        String longName = input.readString();
+        boolean active = input.readBoolean();
+        return new Classes.ClassObject(name, active, id, longName);
+    }
+
+    private static void writeSubjects(BinaryOutput output, Subjects subjects) throws IOException {
+        output.writeVarInt(subjects.size());
+        int previousId = 0;
+        for (Subjects.SubjectObject subjectObject : subjects) {
+            writeSubject(output, subjectObject, previousId);
+            previousId = subjectObject.getId();
+        }
+    }
+
+    private static Subjects readSubjects(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        Subjects subjects = new Subjects();
+        int previousId = 0;
+        for (int i = 0; i < size; i++) {
+            Subjects.SubjectObject subjectObject = readSubject(input, previousId);
+            subjects.add(subjectObject);
+            previousId = subjectObject.getId();
+        }
+        return subjects;
+    }
+
+    private static void writeSubject(BinaryOutput output, Subjects.SubjectObject subjectObject, int previousId) throws IOException {
+        output.writeVarInt(subjectObject.getId() - previousId);
+        output.writeString(subjectObject.getName());
+        output.writeString(subjectObject.getLongName());
+        output.writeBoolean(subjectObject.isActive());
+        output.writeString(subjectObject.getAlternateName());
+        output.writeString(withoutHash(subjectObject.getBackColorHex()));
+        output.writeString(withoutHash(subjectObject.getForeColorHex()));
+    }
+
+    private static Subjects.SubjectObject readSubject(BinaryInput input, int previousId) throws IOException {
+        int id = input.readVarInt() + previousId;
+        String name = input.readString();
+        String longName = input.readString();
+        boolean active = input.readBoolean();
+        String alternateName = input.readString();
+        String backColorHex = input.readString();
+        String foreColorHex = input.readString();
+        return new Subjects.SubjectObject(name, active, id, longName, alternateName, backColorHex, foreColorHex);
+    }
+
+    /**
+     * Removes the '#' that the {@link Subjects.SubjectObject} constructor puts in front of the colors
+     */
+    private static String withoutHash(String color) {
+        return color != null && color.startsWith("#") ? color.substring(1) : color;
+    }
+
+    private static void writeHolidays(BinaryOutput output, Holidays holidays) throws IOException {
+        output.writeVarInt(holidays.size());
+        int previousId = 0;
+        LocalDate previousDate = null;
+        for (Holidays.HolidaysObject holidaysObject : holidays) {
+            output.writeVarInt(holidaysObject.getId() - previousId);
+            output.writeString(holidaysObject.getName());
+            output.writeString(holidaysObject.getLongName());
+            previousDate = writeDateRange(output, holidaysObject.getStartDate(), holidaysObject.getEndDate(), previousDate);
+            previousId = holidaysObject.getId();
+        }
+    }
+
+    private static Holidays readHolidays(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        Holidays holidays = new Holidays();
+        int previousId = 0;
+        LocalDate previousDate = null;
+        for (int i = 0; i < size; i++) {
+            int id = input.readVarInt() + previousId;
+            String name = input.readString();
+            String longName = input.readString();
+            LocalDate[] range = readDateRange(input, previousDate);
+            holidays.add(new Holidays.HolidaysObject(name, id, longName, range[0], range[1]));
+            previousId = id;
+            if (range[0] != null) {
+                previousDate = range[0];
+            }
+        }
+        return holidays;
+    }
+
+    private static void writeSchoolYears(BinaryOutput output, SchoolYears schoolYears) throws IOException {
+        output.writeVarInt(schoolYears.size());
+        int previousId = 0;
+        LocalDate previousDate = null;
+        for (SchoolYears.SchoolYearObject schoolYearObject : schoolYears) {
+            output.writeVarInt(schoolYearObject.getId() - previousId);
+            output.writeString(schoolYearObject.getName());
+            previousDate = writeDateRange(output, schoolYearObject.getStartDate(), schoolYearObject.getEndDate(), previousDate);
+            previousId = schoolYearObject.getId();
+        }
+    }
+
+    private static SchoolYears readSchoolYears(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        SchoolYears schoolYears = new SchoolYears();
+        int previousId = 0;
+        LocalDate previousDate = null;
+        for (int i = 0; i < size; i++) {
+            int id = input.readVarInt() + previousId;
+            String name = input.readString();
+            LocalDate[] range = readDateRange(input, previousDate);
+            schoolYears.add(new SchoolYears.SchoolYearObject(name, id, range[0], range[1]));
+            previousId = id;
+            if (range[0] != null) {
+                previousDate = range[0];
+            }
+        }
+        return schoolYears;
+    }
+
+    /**
+     * Writes a start date relative to {@code previousDate} and an end date relative to the start date, each of them may be null
+     *
+     * @return the date the next start date is relative to
+     */
+    private static LocalDate writeDateRange(BinaryOutput output, LocalDate startDate, LocalDate endDate, LocalDate previousDate) throws IOException {
+        output.writeByte((startDate != null ? hasDate : 0) | (endDate != null ? hasEndTime : 0));
+        if (startDate != null) {
+            output.writeDate(startDate, previousDate);
+        }
+        if (endDate != null) {
+            output.writeDate(endDate, startDate);
+        }
+        return startDate != null ? startDate : previousDate;
+    }
+
+    private static LocalDate[] readDateRange(BinaryInput input, LocalDate previousDate) throws IOException {
+        int flags = input.readByte();
+        LocalDate startDate = (flags & hasDate) != 0 ? input.readDate(previousDate) : null;
+        LocalDate endDate = (flags & hasEndTime) != 0 ? input.readDate(startDate) : null;
+        return new LocalDate[]{startDate, endDate};
+    }
+
+    private static void writeTimegridUnits(BinaryOutput output, TimegridUnits timegridUnits) throws IOException {
+        output.writeVarInt(timegridUnits.size());
+        for (TimegridUnits.TimegridUnitObject timegridUnitObject : timegridUnits) {
+            output.writeVarInt(timegridUnitObject.getDay());
+            TimeUnits timeUnits = timegridUnitObject.getTimeUnits();
+            if (!writeElementCount(output, timeUnits)) {
+                continue;
+            }
+            LocalTime previousStartTime = null;
+            for (TimeUnits.TimeUnitObject timeUnitObject : timeUnits) {
+                writeTimeUnit(output, timeUnitObject, previousStartTime);
+                if (timeUnitObject.getStartTime() != null) {
+                    previousStartTime = timeUnitObject.getStartTime();
+                }
+            }
+        }
+    }
+
+    private static TimegridUnits readTimegridUnits(BinaryInput input) throws IOException {
+        int size = input.readCount();
+        TimegridUnits timegridUnits = new TimegridUnits();
+        for (int i = 0; i < size; i++) {
+            int day = input.readVarInt();
+            int count = input.readCount();
+            TimeUnits timeUnits = null;
+            if (count > 0) {
+                timeUnits = new TimeUnits();
+                LocalTime previousStartTime = null;
+                for (int j = 1; j < count; j++) {
+                    TimeUnits.TimeUnitObject timeUnitObject = readTimeUnit(input, previousStartTime);
+                    timeUnits.add(timeUnitObject);
+                    if (timeUnitObject.getStartTime() != null) {
+                        previousStartTime = timeUnitObject.getStartTime();
+                    }
+                }
+            }
+            timegridUnits.add(new TimegridUnits.TimegridUnitObject(day, timeUnits));
+        }
+        return timegridUnits;
+    }
+
+    private static void writeTimeUnit(BinaryOutput output, TimeUnits.TimeUnitObject timeUnitObject, LocalTime previousStartTime) throws IOException {
+        LocalTime startTime = timeUnitObject.getStartTime();
+        LocalTime endTime = timeUnitObject.getEndTime();
+        output.writeByte((startTime != null ? hasStartTime : 0) | (endTime != null ? hasEndTime : 0));
+        output.writeString(timeUnitObject.getName());
+        if (startTime != null) {
+            output.writeTime(startTime, previousStartTime);
+        }
+        if (endTime != null) {
+            output.writeTime(endTime, startTime);
+        }
+    }
+
+    private static TimeUnits.TimeUnitObject readTimeUnit(BinaryInput input, LocalTime previousStartTime) throws IOException {
+        int flags = input.readByte();
+        String name = input.readString();
+        LocalTime startTime = (flags & hasStartTime) != 0 ? input.readTime(previousStartTime) : null;
+        LocalTime endTime = (flags & hasEndTime) != 0 ? input.readTime(startTime) : null;
+        return new TimeUnits.TimeUnitObject(name, startTime, endTime);
+    }
+
+}
@@ -0,0 +1,154 @@
+package org.bytedream.untis4j.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the primitives which were written by {@link BinaryOutput}
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class BinaryInput {
+
+    private final DataInput input;
+    private final List<String> strings = new ArrayList<>();
+    private final List<Object> references = new ArrayList<>();
+
+    /**
+     * Initialize the {@link BinaryInput} class
+     *
+     * @param input the input to read from
+     * @since 1.4
+     */
+    BinaryInput(DataInput input) {
+        this.input = input;
+    }
+
+    int readByte() throws IOException {
+        return input.readUnsignedByte();
+    }
+
+    boolean readBoolean() throws IOException {
+        return input.readBoolean();
+    }
+
+    long readVarLong() throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 63) {
+                throw new IOException("Malformed varint");
+            }
+            byte b = input.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value != (int) value) {
+            throw new IOException("Varint " + value + " is out of the int range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a count, which must not be negative
+     */
+    int readCount() throws IOException {
+        int count = readVarInt();
+        if (count < 0) {
+            throw new IOException("Negative count " + count);
+        }
+        return count;
+    }
+
+    String readString() throws IOException {
+        int tag = readVarInt();
+        if (tag == 0) {
+            return null;
+        } else if (tag == 1) {
+            String value = new String(readBytes(readCount()), StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        } else if (tag - 2 < strings.size() && tag > 1) {
+            return strings.get(tag - 2);
+        }
+        throw new IOException("Unknown string reference " + tag);
+    }
+
+    /**
+     * Reads {@code length} bytes. Long inputs are read in chunks, so a malformed length fails with an end of input instead of a huge allocation
+     */
+    private byte[] readBytes(int length) throws IOException {
+        if (length <= 8192) {
+            byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return bytes;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        for (int remaining = length; remaining > 0; remaining -= chunk.length) {
+            int count = Math.min(remaining, chunk.length);
+            input.readFully(chunk, 0, count);
+            bytes.write(chunk, 0, count);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a reference. Returns the referenced object, {@link BinaryInput#inline} if the object follows inline or {@code null}
+     */
+    Object readReference() throws IOException {
+        int tag = readVarInt();
+        if (tag == 0) {
+            return null;
+        } else if (tag == 1) {
+            return inline;
+        } else if (tag - 2 < references.size() && tag > 1) {
+            return references.get(tag - 2);
+        }
+        throw new IOException("Unknown reference " + tag);
+    }
+
+    /**
+     * Registers an object which was read inline, so later references can point to it.
+     * Objects have to be registered in the order their references were read
+     */
+    <T> T register(T value) {
+        references.add(value);
+        return value;
+    }
+
+    /**
+     * Marker for an object that follows inline
+     */
+    static final Object inline = new Object();
+
+    LocalDate readDate(LocalDate previous) throws IOException {
+        long epochDay = readVarLong() + (previous != null ? previous.toEpochDay() : 0);
+        if (epochDay < LocalDate.MIN.toEpochDay() || epochDay > LocalDate.MAX.toEpochDay()) {
+            throw new IOException("Date " + epochDay + " is out of range");
+        }
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    LocalTime readTime(LocalTime previous) throws IOException {
+        long secondOfDay = (long) readVarInt() + (previous != null ? previous.toSecondOfDay() : 0);
+        if (secondOfDay < 0 || secondOfDay >= 24 * 60 * 60) {
+            throw new IOException("Time " + secondOfDay + " is out of range");
+        }
+        return LocalTime.ofSecondOfDay(secondOfDay);
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.bytedream.untis4j.binary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes the primitives of the binary format: zigzag varints, dictionary strings and dictionary references.
+ *
+ * <p>Dictionaries are built while writing: the first occurrence of a value is written inline, every later one as reference to it.
+ * The dictionaries belong to a single top level object, so every object can be read on its own</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+class BinaryOutput {
+
+    private final DataOutput output;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+
+    /**
+     * Initialize the {@link BinaryOutput} class
+     *
+     * @param output the output to write to
+     * @since 1.4
+     */
+    BinaryOutput(DataOutput output) {
+        this.output = output;
+    }
+
+    void writeByte(int value) throws IOException {
+        output.writeByte(value);
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+        output.writeBoolean(value);
+    }
+
+    /**
+     * Writes {@code value} as zigzag varint, so small positive and negative numbers take only one byte
+     */
+    void writeVarLong(long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.writeByte((int) zigzag);
+    }
+
+    void writeVarInt(int value) throws IOException {
+        writeVarLong(value);
+    }
+
+    /**
+     * Writes a string which may be {@code null}. Every distinct string is only written once, all further occurrences are references
+     */
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(index + 2);
+        } else {
+            strings.put(value, strings.size());
+            writeVarInt(1);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Writes the reference to an object which was written before and returns true, or returns false if the object has to be written inline.
+     * {@code null} is written as reference too
+     */
+    boolean writeReference(Object value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return true;
+        }
+        Integer index = references.get(value);
+        if (index != null) {
+            writeVarInt(index + 2);
+            return true;
+        }
+        references.put(value, references.size());
+        writeVarInt(1);
+        return false;
+    }
+
+    /**
+     * Writes a date as difference to {@code previous} in days. If {@code previous} is {@code null} the difference to the epoch day is written
+     */
+    void writeDate(LocalDate value, LocalDate previous) throws IOException {
+        writeVarLong(value.toEpochDay() - (previous != null ? previous.toEpochDay() : 0));
+    }
+
+    /**
+     * Writes a time as difference to {@code previous} in seconds. If {@code previous} is {@code null} the second of the day is written
+     */
+    void writeTime(LocalTime value, LocalTime previous) throws IOException {
+        writeVarInt(value.toSecondOfDay() - (previous != null ? previous.toSecondOfDay() : 0));
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.bytedream.untis4j.json;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of a json array decoded by a {@link JsonCodec}
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class JsonArray {
+
+    private final List<Object> list;
+
+    /**
+     * Initialize the {@link JsonArray} class
+     *
+     * @param list the decoded json array
+     * @since 1.4
+     */
+    public JsonArray(List<Object> list) {
+        this.list = list;
+    }
+
+    /**
+     * Returns the number of elements
+     *
+     * @return the number of elements
+     * @since 1.4
+     */
+    public int length() {
+        return list.size();
+    }
+
+    /**
+     * Returns the raw value at {@code index}
+     *
+     * @param index the index
+     * @return the value
+     * @since 1.4
+     */
+    public Object get(int index) {
+        return list.get(index);
+    }
+
+    /**
+     * Returns the int value at {@code index}
+     *
+     * @param index the index
+     * @return the int value
+     * @throws JsonException if the value is no number
+     * @since 1.4
+     */
+    public int getInt(int index) {
+        return JsonObject.toNumber(index, list.get(index)).intValue();
+    }
+
+    /**
+     * Returns the string value at {@code index}
+     *
+     * @param index the index
+     * @return the string value
+     * @throws JsonException if the value is no string
+     * @since 1.4
+     */
+    public String getString(int index) {
+        Object value = list.get(index);
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw JsonObject.typeMismatch(index, "string", value);
+    }
+
+    /**
+     * Returns the json object at {@code index}
+     *
+     * @param index the index
+     * @return the json object
+     * @throws JsonException if the value is no json object
+     * @since 1.4
+     */
+    @SuppressWarnings("unchecked")
+    public JsonObject getJsonObject(int index) {
+        Object value = list.get(index);
+        if (value instanceof Map) {
+            return new JsonObject((Map<String, Object>) value);
+        }
+        throw JsonObject.typeMismatch(index, "object", value);
+    }
+
+    /**
+     * Returns the json array at {@code index}
+     *
+     * @param index the index
+     * @return the json array
+     * @throws JsonException if the value is no json array
+     * @since 1.4
+     */
+    @SuppressWarnings("unchecked")
+    public JsonArray getJsonArray(int index) {
+        Object value = list.get(index);
+        if (value instanceof List) {
+            return new JsonArray((List<Object>) value);
+        }
+        throw JsonObject.typeMismatch(index, "array", value);
+    }
+
+    /**
+     * Returns the decoded json array
+     *
+     * @return the decoded json array
+     * @since 1.4
+     */
+    public List<Object> toList() {
+        return Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof JsonArray && list.equals(((JsonArray) obj).list);
+    }
+
+    @Override
+    public int hashCode() {
+        return list.hashCode();
+    }
+
+    /**
+     * Returns the json array as string
+     *
+     * @return the json array as string
+     * @since 1.4
+     */
+    @Override
+    public String toString() {
+        return StreamingJsonCodec.encode(list);
+    }
+}
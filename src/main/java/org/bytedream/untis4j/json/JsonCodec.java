@@ -0,0 +1,30 @@
+package org.bytedream.untis4j.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Decoder for json responses.
+ *
+ * <p>Implementations can be registered as service ({@code META-INF/services/org.bytedream.untis4j.json.JsonCodec}) or set with {@link JsonCodecs#setDefault(JsonCodec)}.
+ * A decoded json object is a {@link Map} with {@link String} keys. Its values are maps for json objects, {@link java.util.List}s for json arrays,
+ * {@link String}s, {@link Number}s, {@link Boolean}s or {@code null}</p>
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+public interface JsonCodec {
+
+    /**
+     * Decodes a json object from a UTF-8 encoded stream
+     *
+     * @param input the UTF-8 encoded json
+     * @return the decoded json object
+     * @throws IOException   if an IO Exception occurs
+     * @throws JsonException if the input is no valid json object
+     * @since 1.4
+     */
+    Map<String, Object> decode(InputStream input) throws IOException;
+
+}
@@ -0,0 +1,52 @@
+package org.bytedream.untis4j.json;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.ServiceLoader;
+
+/**
+ * Class to manage the {@link JsonCodec} that is used to decode all responses
+ *
+ * <p>If a {@link JsonCodec} is registered as service, the first one found is the default, otherwise {@link StreamingJsonCodec}</p>
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class JsonCodecs {
+
+    private static volatile JsonCodec defaultCodec = load();
+
+    /**
+     * Returns the codec that is used to decode all responses
+     *
+     * @return the codec that is used to decode all responses
+     * @since 1.4
+     */
+    public static JsonCodec getDefault() {
+        return defaultCodec;
+    }
+
+    /**
+     * Sets the codec that is used to decode all responses
+     *
+     * @param codec the codec that should be used to decode all responses
+     * @since 1.4
+     */
+    public static void setDefault(JsonCodec codec) {
+        defaultCodec = Objects.requireNonNull(codec);
+    }
+
+    /**
+     * Returns the first registered codec service or a {@link StreamingJsonCodec} if there is none
+     *
+     * @return the codec
+     * @since 1.4
+     */
+    private static JsonCodec load() {
+        Iterator<JsonCodec> codecs = ServiceLoader.load(JsonCodec.class, JsonCodecs.class.getClassLoader()).iterator();
+        if (codecs.hasNext()) {
+            return codecs.next();
+        }
+        return new StreamingJsonCodec();
+    }
+}
@@ -0,0 +1,20 @@
+package org.bytedream.untis4j.json;
+
+/**
+ * Exception if a value of a {@link JsonObject} or {@link JsonArray} is missing or has an unexpected type,
+ * or if a {@link JsonCodec} gets invalid json
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+public class JsonException extends RuntimeException {
+
+    public JsonException(String message) {
+        super(message);
+    }
+
+    public JsonException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
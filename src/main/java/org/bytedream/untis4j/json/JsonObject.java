@@ -0,0 +1,234 @@
+package org.bytedream.untis4j.json;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of a json object decoded by a {@link JsonCodec}
+ *
+ * @version 1.0
+ * @since 1.4
+ */
+public class JsonObject {
+
+    private final Map<String, Object> map;
+
+    /**
+     * Initialize the {@link JsonObject} class
+     *
+     * @param map the decoded json object
+     * @since 1.4
+     */
+    public JsonObject(Map<String, Object> map) {
+        this.map = map;
+    }
+
+    /**
+     * Returns if the json object contains {@code key}
+     *
+     * @param key the key
+     * @return if the json object contains {@code key}
+     * @since 1.4
+     */
+    public boolean has(String key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * Returns if {@code key} is missing or {@code null}
+     *
+     * @param key the key
+     * @return if {@code key} is missing or {@code null}
+     * @since 1.4
+     */
+    public boolean isNull(String key) {
+        return map.get(key) == null;
+    }
+
+    /**
+     * Returns the raw value of {@code key}
+     *
+     * @param key the key
+     * @return the value or {@code null} if there is none
+     * @since 1.4
+     */
+    public Object get(String key) {
+        return map.get(key);
+    }
+
+    /**
+     * Returns the string value of {@code key}
+     *
+     * @param key the key
+     * @return the string value
+     * @throws JsonException if the value is missing or no string
+     * @since 1.4
+     */
+    public String getString(String key) {
+        Object value = map.get(key);
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw typeMismatch(key, "string", value);
+    }
+
+    /**
+     * Returns the string value of {@code key} or {@code defaultValue} if there is no string value
+     *
+     * @param key          the key
+     * @param defaultValue value to return if there is no string value
+     * @return the string value or {@code defaultValue}
+     * @since 1.4
+     */
+    public String optString(String key, String defaultValue) {
+        Object value = map.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    /**
+     * Returns the int value of {@code key}
+     *
+     * @param key the key
+     * @return the int value
+     * @throws JsonException if the value is missing or no number
+     * @since 1.4
+     */
+    public int getInt(String key) {
+        return toNumber(key, map.get(key)).intValue();
+    }
+
+    /**
+     * Returns the long value of {@code key}
+     *
+     * @param key the key
+     * @return the long value
+     * @throws JsonException if the value is missing or no number
+     * @since 1.4
+     */
+    public long getLong(String key) {
+        return toNumber(key, map.get(key)).longValue();
+    }
+
+    /**
+     * Returns the boolean value of {@code key}
+     *
+     * @param key the key
+     * @return the boolean value
+     * @throws JsonException if the value is missing or no boolean
+     * @since 1.4
+     */
+    public boolean getBoolean(String key) {
+        Object value = map.get(key);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if ("true".equalsIgnoreCase(String.valueOf(value))) {
+            return true;
+        } else if ("false".equalsIgnoreCase(String.valueOf(value))) {
+            return false;
+        }
+        throw typeMismatch(key, "boolean", value);
+    }
+
+    /**
+     * Returns the json object value of {@code key}
+     *
+     * @param key the key
+     * @return the json object value
+     * @throws JsonException if the value is missing or no json object
+     * @since 1.4
+     */
+    @SuppressWarnings("unchecked")
+    public JsonObject getJsonObject(String key) {
+        Object value = map.get(key);
+        if (value instanceof Map) {
+            return new JsonObject((Map<String, Object>) value);
+        }
+        throw typeMismatch(key, "object", value);
+    }
+
+    /**
+     * Returns the json array value of {@code key}
+     *
+     * @param key the key
+     * @return the json array value
+     * @throws JsonException if the value is missing or no json array
+     * @since 1.4
+     */
+    @SuppressWarnings("unchecked")
+    public JsonArray getJsonArray(String key) {
+        Object value = map.get(key);
+        if (value instanceof List) {
+            return new JsonArray((List<Object>) value);
+        }
+        throw typeMismatch(key, "array", value);
+    }
+
+    /**
+     * Returns all keys of the json object
+     *
+     * @return all keys
+     * @since 1.4
+     */
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Returns the number of keys
+     *
+     * @return the number of keys
+     * @since 1.4
+     */
+    public int length() {
+        return map.size();
+    }
+
+    /**
+     * Returns the decoded json object
+     *
+     * @return the decoded json object
+     * @since 1.4
+     */
+    public Map<String, Object> toMap() {
+        return Collections.unmodifiableMap(map);
+    }
+
+    static Number toNumber(Object key, Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        } else if (value instanceof String) {
+            try {
+                return Double.valueOf((String) value);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        throw typeMismatch(key, "number", value);
+    }
+
+    static JsonException typeMismatch(Object key, String type, Object value) {
+        return new JsonException("Value of " + key + " is not a " + type + ": " + value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof JsonObject && map.equals(((JsonObject) obj).map);
+    }
+
+    @Override
+    public int hashCode() {
+        return map.hashCode();
+    }
+
+    /**
+     * Returns the json object as string
+     *
+     * @return the json object as string
+     * @since 1.4
+     */
+    @Override
+    public String toString() {
+        return StreamingJsonCodec.encode(map);
+    }
+}
@@ -0,0 +1,29 @@
+package org.bytedream.untis4j.json;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * {@link JsonCodec} which decodes with {@code org.json}, like untis4j did before 1.4
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+public class OrgJsonCodec implements JsonCodec {
+
+    @Override
+    public Map<String, Object> decode(InputStream input) throws IOException {
+        try {
+            return new JSONObject(new JSONTokener(new InputStreamReader(input, StandardCharsets.UTF_8))).toMap();
+        } catch (JSONException e) {
+            throw new JsonException("Invalid json: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package org.bytedream.untis4j.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default {@link JsonCodec}.
+ *
+ * <p>Decodes UTF-8 directly from the stream in a single pass, without reading the whole response into a {@link String} first.
+ * Object keys, which repeat in every element of a response, are only created once per response.
+ * {@link JsonObject#toString()} and {@link JsonArray#toString()} are encoded by it as well, keys with {@code null} values are kept</p>
+ *
+ * @version 1.1
+ * @since 1.4
+ */
+public class StreamingJsonCodec implements JsonCodec {
+
+    @Override
+    public Map<String, Object> decode(InputStream input) throws IOException {
+        Parser parser = new Parser(input);
+        if (parser.nextToken() != '{') {
+            throw parser.error("Expected a json object");
+        }
+        return parser.readObject();
+    }
+
+    /**
+     * Encodes {@code value} as json. Maps are encoded as json objects, iterables as json arrays, non-finite numbers as {@code null}
+     * and every other value which is no {@link String}, {@link Number} or {@link Boolean} as the string of its {@link Object#toString()}
+     *
+     * @param value the value to encode
+     * @return the encoded json
+     * @since 1.4
+     */
+    static String encode(Object value) {
+        StringBuilder json = new StringBuilder();
+        write(json, value);
+        return json.toString();
+    }
+
+    private static void write(StringBuilder json, Object value) {
+        if (value instanceof JsonObject) {
+            value = ((JsonObject) value).toMap();
+        } else if (value instanceof JsonArray) {
+            value = ((JsonArray) value).toList();
+        }
+
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Map) {
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) json.append(',');
+                first = false;
+                writeString(json, String.valueOf(entry.getKey()));
+                json.append(':');
+                write(json, entry.getValue());
+            }
+            json.append('}');
+        } else if (value instanceof Iterable) {
+            json.append('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if (!first) json.append(',');
+                first = false;
+                write(json, element);
+            }
+            json.append(']');
+        } else if (value instanceof Number) {
+            if ((value instanceof Double && !Double.isFinite((Double) value)) || (value instanceof Float && !Float.isFinite((Float) value))) {
+                json.append("null");
+            } else {
+                json.append(value);
+            }
+        } else if (value instanceof Boolean) {
+            json.append(value);
+        } else {
+            writeString(json, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder json, String string) {
+        json.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\b':
+                    json.append("\\b");
+                    break;
+                case '\f':
+                    json.append("\\f");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Maximal nesting depth of objects and arrays, deeper json is rejected instead of overflowing the stack
+     */
+    private static final int maxDepth = 512;
+
+    /**
+     * Parser for a single json document
+     *
+     * @version 1.1
+     * @since 1.4
+     */
+    private static class Parser {
+
+        private final InputStream input;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private long offset;
+
+        private int depth;
+        private char[] chars = new char[64];
+        private final String[] keys = new String[256];
+
+        private Parser(InputStream input) {
+            this.input = input;
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position] & 0xFF;
+        }
+
+        private boolean fill() throws IOException {
+            offset += limit;
+            position = 0;
+            limit = input.read(buffer, 0, buffer.length);
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        private int nextToken() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            return c;
+        }
+
+        private Object readValue(int first) throws IOException {
+            switch (first) {
+                case '{':
+                case '[':
+                    if (++depth > maxDepth) {
+                        throw error("Nesting deeper than " + maxDepth);
+                    }
+                    Object container = first == '{' ? readObject() : readArray();
+                    depth--;
+                    return container;
+                case '"':
+                    // readChars() may grow the buffer, so it has to be read after the call
+                    int length = readChars();
+                    return new String(chars, 0, length);
+                case 't':
+                    expect("rue");
+                    return Boolean.TRUE;
+                case 'f':
+                    expect("alse");
+                    return Boolean.FALSE;
+                case 'n':
+                    expect("ull");
+                    return null;
+                default:
+                    if (first == '-' || (first >= '0' && first <= '9')) {
+                        return readNumber(first);
+                    }
+                    throw error("Unexpected character '" + (char) first + "'");
+            }
+        }
+
+        private Map<String, Object> readObject() throws IOException {
+            Map<String, Object> map = new HashMap<>();
+            int c = nextToken();
+            if (c == '}') {
+                return map;
+            }
+            while (true) {
+                if (c != '"') {
+                    throw error("Expected a key");
+                }
+                String key = readKey();
+                if (nextToken() != ':') {
+                    throw error("Expected ':'");
+                }
+                map.put(key, readValue(nextToken()));
+
+                c = nextToken();
+                if (c == '}') {
+                    return map;
+                } else if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+                c = nextToken();
+            }
+        }
+
+        private List<Object> readArray() throws IOException {
+            List<Object> list = new ArrayList<>();
+            int c = nextToken();
+            if (c == ']') {
+                return list;
+            }
+            while (true) {
+                list.add(readValue(c));
+
+                c = nextToken();
+                if (c == ']') {
+                    return list;
+                } else if (c != ',') {
+                    throw error("Expected ',' or ']'");
+                }
+                c = nextToken();
+            }
+        }
+
+        private String readKey() throws IOException {
+            int length = readChars();
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (keys.length - 1);
+
+            String key = keys[slot];
+            if (key != null && key.length() == length) {
+                boolean equal = true;
+                for (int i = 0; i < length && equal; i++) {
+                    equal = key.charAt(i) == chars[i];
+                }
+                if (equal) {
+                    return key;
+                }
+            }
+            key = new String(chars, 0, length);
+            keys[slot] = key;
+            return key;
+        }
+
+        /**
+         * Reads a string (the opening quote is already consumed) into {@link Parser#chars}
+         *
+         * @return the length of the string
+         * @throws IOException   if an IO Exception occurs
+         * @throws JsonException if the string is invalid
+         * @since 1.4
+         */
+        private int readChars() throws IOException {
+            int length = 0;
+            while (true) {
+                int c = read();
+                if (c == '"') {
+                    return length;
+                } else if (c == -1) {
+                    throw error("Unterminated string");
+                }
+
+                if (length + 2 > chars.length) {
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+                }
+
+                if (c == '\\') {
+                    chars[length++] = readEscape();
+                } else if (c < 0x80) {
+                    chars[length++] = (char) c;
+                } else if ((c & 0xE0) == 0xC0) {
+                    chars[length++] = (char) (((c & 0x1F) << 6) | continuation());
+                } else if ((c & 0xF0) == 0xE0) {
+                    chars[length++] = (char) (((c & 0x0F) << 12) | (continuation() << 6) | continuation());
+                } else if ((c & 0xF8) == 0xF0) {
+                    int codePoint = ((c & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+                    chars[length++] = Character.highSurrogate(codePoint);
+                    chars[length++] = Character.lowSurrogate(codePoint);
+                } else {
+                    throw error("Invalid UTF-8");
+                }
+            }
+        }
+
+        private int continuation() throws IOException {
+            int c = read();
+            if ((c & 0xC0) != 0x80) {
+                throw error("Invalid UTF-8");
+            }
+            return c & 0x3F;
+        }
+
+        private char readEscape() throws IOException {
+            int c = read();
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    return (char) c;
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit == -1) {
+                            throw error("Invalid unicode escape");
+                        }
+                        value = (value << 4) | digit;
+                    }
+                    return (char) value;
+                default:
+                    throw error("Invalid escape");
+            }
+        }
+
+        private Number readNumber(int first) throws IOException {
+            boolean negative = first == '-';
+            long value = negative ? 0 : first - '0';
+            int digits = negative ? 0 : 1;
+            boolean integer = true;
+
+            StringBuilder number = null;
+            int c;
+            while (true) {
+                c = peek();
+                if (c >= '0' && c <= '9' && integer && digits < 18) {
+                    value = value * 10 + (c - '0');
+                    digits++;
+                } else if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                    if (number == null) {
+                        number = new StringBuilder(negative ? "-" : "");
+                        if (digits > 0) number.append(value);
+                    }
+                    integer &= c >= '0' && c <= '9';
+                    number.append((char) c);
+                } else {
+                    break;
+                }
+                position++;
+            }
+
+            if (number != null) {
+                try {
+                    return integer ? (Number) new java.math.BigInteger(number.toString()) : (Number) Double.parseDouble(number.toString());
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number " + number);
+                }
+            } else if (digits == 0) {
+                throw error("Invalid number");
+            }
+
+            value = negative ? -value : value;
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            return value;
+        }
+
+        private void expect(String rest) throws IOException {
+            for (int i = 0; i < rest.length(); i++) {
+                if (read() != rest.charAt(i)) {
+                    throw error("Invalid literal");
+                }
+            }
+        }
+
+        private JsonException error(String message) {
+            return new JsonException(message + " at byte " + (offset + position));
+        }
+    }
+}
@@ -9,18 +9,65 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * Class to manage {@link Lesson} objects
  *
- * @version 1.1
+ * <p>A timetable can be lazy (see {@link Timetable#lazy(LessonSource)}): every lesson is decoded on its first access
+ * and then kept. Reading by index, iterator or stream and copying ({@link Timetable#clone()}) only decode the lessons that are actually read,
+ * any other operation (modifying, sorting, comparing, ...) decodes all remaining lessons first</p>
+ *
+ * @version 1.2
  * @since 1.0
  */
 public class Timetable extends ResponseList<Timetable.Lesson> {
 
+    private volatile LessonSource lessonSource;
+    private int undecodedLessons;
+
+    /**
+     * Creates a new, empty timetable
+     *
+     * @since 1.0
+     */
+    public Timetable() {
+    }
+
+    private Timetable(LessonSource lessonSource) {
+        int size = lessonSource.size();
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            // placeholders for the not yet decoded lessons
+            super.add(null);
+        }
+        this.undecodedLessons = size;
+        this.lessonSource = undecodedLessons > 0 ? lessonSource : null;
+    }
+
+    /**
+     * Creates a timetable which decodes its lessons from {@code lessonSource} on first access
+     *
+     * @param lessonSource source of the undecoded lessons
+     * @return the lazy timetable
+     * @since 1.4
+     */
+    public static Timetable lazy(LessonSource lessonSource) {
+        return new Timetable(lessonSource);
+    }
+
     /**
      * Sorts the given timetable by all dates and returns the sorted timetable
      *
@@ -273,6 +320,17 @@ public class Timetable extends ResponseList<Timetable.Lesson> {
     public Timetable searchByDate(LocalDate date) {
         Timetable timetable = new Timetable();
 
+        LessonSource source = lessonSource;
+        if (source != null) {
+            // only decode the lessons of the given date
+            for (int i = 0; i < size(); i++) {
+                if (source.getDate(i).equals(date)) {
+                    timetable.add(lesson(i));
+                }
+            }
+            return timetable;
+        }
+
         this.stream().filter(lesson -> lesson.getDate().format(DateTimeFormatter.ofPattern("yyyyMMdd")).contains(date.format(DateTimeFormatter.ofPattern("yyyyMMdd")))).forEach(timetable::add);
 
         return timetable;
@@ -758,6 +816,366 @@ public class Timetable extends ResponseList<Timetable.Lesson> {
         return studentGroups;
     }
 
+    /**
+     * Returns if lessons of this timetable are still waiting to be decoded
+     *
+     * @return if the timetable is lazy and not every lesson is decoded yet
+     * @since 1.4
+     */
+    public boolean isLazy() {
+        return lessonSource != null;
+    }
+
+    /**
+     * Returns the lesson at {@code index} and decodes it, if it isn't decoded yet
+     */
+    private Lesson lesson(int index) {
+        Lesson lesson = super.get(index);
+        if (lesson != null || lessonSource == null) {
+            return lesson;
+        }
+        synchronized (this) {
+            LessonSource source = lessonSource;
+            if ((lesson = super.get(index)) == null && source != null) {
+                lesson = source.decode(index);
+                super.set(index, lesson);
+                if (--undecodedLessons == 0) {
+                    // the source (and with it the whole raw response) isn't needed anymore
+                    lessonSource = null;
+                }
+            }
+            return lesson;
+        }
+    }
+
+    /**
+     * Decodes all lessons which aren't decoded yet
+     */
+    private void decodeAll() {
+        if (lessonSource != null) {
+            for (int i = 0; i < super.size(); i++) {
+                lesson(i);
+            }
+        }
+    }
+
+    @Override
+    public Lesson get(int index) {
+        return lesson(index);
+    }
+
+    @Override
+    public Lesson set(int index, Lesson element) {
+        decodeAll();
+        return super.set(index, element);
+    }
+
+    @Override
+    public boolean add(Lesson lesson) {
+        decodeAll();
+        return super.add(lesson);
+    }
+
+    @Override
+    public void add(int index, Lesson element) {
+        decodeAll();
+        super.add(index, element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Lesson> c) {
+        decodeAll();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Lesson> c) {
+        decodeAll();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public Lesson remove(int index) {
+        decodeAll();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        decodeAll();
+        return super.remove(o);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        decodeAll();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        decodeAll();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Lesson> filter) {
+        decodeAll();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        decodeAll();
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Lesson> operator) {
+        decodeAll();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super Lesson> c) {
+        decodeAll();
+        super.sort(c);
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this) {
+            lessonSource = null;
+            undecodedLessons = 0;
+        }
+        super.clear();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        decodeAll();
+        return super.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        decodeAll();
+        return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        decodeAll();
+        return super.lastIndexOf(o);
+    }
+
+    @Override
+    public Object[] toArray() {
+        decodeAll();
+        return super.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        decodeAll();
+        return super.toArray(a);
+    }
+
+    @Override
+    public List<Lesson> subList(int fromIndex, int toIndex) {
+        decodeAll();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public ListIterator<Lesson> listIterator(int index) {
+        return lessonSource == null ? super.listIterator(index) : new LazyIterator(index);
+    }
+
+    @Override
+    public ListIterator<Lesson> listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public Iterator<Lesson> iterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public Spliterator<Lesson> spliterator() {
+        return lessonSource == null ? super.spliterator() : Spliterators.spliterator(this, Spliterator.ORDERED);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Lesson> action) {
+        if (lessonSource == null) {
+            super.forEach(action);
+        } else {
+            for (int i = 0; i < super.size(); i++) {
+                action.accept(lesson(i));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        decodeAll();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        decodeAll();
+        return super.hashCode();
+    }
+
+    /**
+     * Returns a shallow copy of this timetable. The copy of a lazy timetable is lazy too and decodes its lessons through this timetable,
+     * so every lesson is still only decoded once
+     *
+     * @return the copy
+     */
+    @Override
+    public Object clone() {
+        synchronized (this) {
+            Timetable copy = (Timetable) super.clone();
+            LessonSource source = lessonSource;
+            if (source != null) {
+                copy.lessonSource = new LessonSource() {
+                    @Override
+                    public int size() {
+                        return source.size();
+                    }
+
+                    @Override
+                    public LocalDate getDate(int index) {
+                        return source.getDate(index);
+                    }
+
+                    @Override
+                    public Lesson decode(int index) {
+                        return lesson(index);
+                    }
+                };
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Source of the lessons of a lazy {@link Timetable}
+     *
+     * @version 1.0
+     * @since 1.4
+     */
+    public interface LessonSource {
+
+        /**
+         * Returns the number of lessons
+         *
+         * @return the number of lessons
+         * @since 1.4
+         */
+        int size();
+
+        /**
+         * Returns the date of the lesson at {@code index} without decoding the whole lesson
+         *
+         * @param index index of the lesson
+         * @return the date of the lesson
+         * @since 1.4
+         */
+        LocalDate getDate(int index);
+
+        /**
+         * Decodes the lesson at {@code index}
+         *
+         * @param index index of the lesson
+         * @return the decoded lesson
+         * @since 1.4
+         */
+        Lesson decode(int index);
+    }
+
+    /**
+     * Iterator which decodes every lesson when it is reached
+     */
+    private class LazyIterator implements ListIterator<Lesson> {
+
+        private int cursor;
+        private int lastReturned = -1;
+
+        private LazyIterator(int index) {
+            if (index < 0 || index > size()) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            cursor = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        @Override
+        public Lesson next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor++;
+            return lesson(lastReturned);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public Lesson previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = --cursor;
+            return lesson(lastReturned);
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            Timetable.this.remove(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+        }
+
+        @Override
+        public void set(Lesson lesson) {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            Timetable.this.set(lastReturned, lesson);
+        }
+
+        @Override
+        public void add(Lesson lesson) {
+            Timetable.this.add(cursor++, lesson);
+            lastReturned = -1;
+        }
+    }
+
     /**
      * Class to get information about a lesson
      *
@@ -1025,8 +1443,9 @@ public class Timetable extends ResponseList<Timetable.Lesson> {
             classAsMap.put("subjects", subjects);
             classAsMap.put("originalSubjects", originalSubjects);
             classAsMap.put("code", code);
-            classAsMap.put("startTime", startTime.format(DateTimeFormatter.ofPattern("HHmm")));
-            classAsMap.put("endTime", endTime.format(DateTimeFormatter.ofPattern("HHmm")));
+            // start and end time are null if they weren't requested (see TimetableQuery#fields)
+            classAsMap.put("startTime", startTime != null ? startTime.format(DateTimeFormatter.ofPattern("HHmm")) : null);
+            classAsMap.put("endTime", endTime != null ? endTime.format(DateTimeFormatter.ofPattern("HHmm")) : null);
             classAsMap.put("activityType", activityType);
             classAsMap.put("info", info);
             classAsMap.put("substText", substText);
@@ -10,18 +10,44 @@ import java.util.Comparator;
 /**
  * Contains all base response list classes
  *
- * @version 1.1
+ * @version 1.2
  * @since 1.0
  */
 public class BaseResponseLists {
 
     /**
-     * Base class for all response lists. Has no real use
+     * Base class for all response lists
      *
-     * @version 1.1
+     * @version 1.2
      * @since 1.0
      */
     public static class ResponseList<E extends ResponseObject> extends ArrayList<E> implements BaseResponse {
+
+        private boolean stale;
+
+        /**
+         * Returns if this list was decoded from an expired response, which was returned from the cache because the server couldn't be reached
+         *
+         * @return if the list is stale
+         * @since 1.4
+         */
+        public boolean isStale() {
+            return stale;
+        }
+
+        /**
+         * Returns a shallow copy of this list which is flagged as {@link ResponseList#isStale() stale}. This list isn't changed
+         *
+         * @return the stale copy
+         * @since 1.4
+         */
+        @SuppressWarnings("unchecked")
+        public ResponseList<E> asStale() {
+            ResponseList<E> copy = (ResponseList<E>) clone();
+            copy.stale = true;
+            return copy;
+        }
+
     }
 
     /**
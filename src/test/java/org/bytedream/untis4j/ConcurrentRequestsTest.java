@@ -0,0 +1,69 @@
+package org.bytedream.untis4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentRequestsTest {
+
+    @Test
+    void returnsResultsInKeyOrderAndBoundsConcurrency() throws IOException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Map<Integer, String> results = ConcurrentRequests.invokeAll(List.of(5, 3, 8, 1, 9, 2), 2, key -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return "result " + key;
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        assertEquals(List.of(5, 3, 8, 1, 9, 2), List.copyOf(results.keySet()));
+        assertEquals("result 8", results.get(8));
+        assertTrue(maxRunning.get() <= 2, "at most 2 requests at once, but were " + maxRunning.get());
+    }
+
+    @Test
+    void noRequestIsRunningAfterAFailure() {
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(3);
+
+        IOException failure = assertThrows(IOException.class, () -> ConcurrentRequests.invokeAll(List.of(1, 2, 3), 3, key -> {
+            running.incrementAndGet();
+            started.countDown();
+            try {
+                if (key == 1) {
+                    started.await(5, TimeUnit.SECONDS);
+                    throw new IOException("request " + key + " failed");
+                }
+                // like blocking socket io, the request doesn't react to the interrupt
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+                return key;
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }));
+
+        assertEquals("request 1 failed", failure.getMessage());
+        assertEquals(0, running.get());
+    }
+}
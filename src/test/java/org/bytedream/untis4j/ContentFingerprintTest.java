@@ -0,0 +1,55 @@
+package org.bytedream.untis4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContentFingerprintTest {
+
+    private static long fingerprint(String text) {
+        return ContentFingerprint.of(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void knownVectors() {
+        // reference values of xxHash64 with seed 0
+        assertEquals(0xEF46DB3751D8E999L, fingerprint(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, fingerprint("a"));
+        assertEquals(0x44BC2CF5AD770999L, fingerprint("abc"));
+        assertEquals(0xFBCEA83C8A378BF1L, fingerprint("Nobody inspects the spammish repetition"));
+        assertEquals(0x0B242D361FDA71BCL, fingerprint("The quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    void incrementalUpdatesMatchSinglePass() {
+        byte[] bytes = new byte[1000];
+        new Random(42).nextBytes(bytes);
+        long expected = ContentFingerprint.of(bytes);
+
+        for (int chunk : new int[]{1, 3, 7, 31, 32, 33, 100}) {
+            ContentFingerprint fingerprint = new ContentFingerprint();
+            for (int offset = 0; offset < bytes.length; offset += chunk) {
+                fingerprint.update(bytes, offset, Math.min(chunk, bytes.length - offset));
+            }
+            assertEquals(expected, fingerprint.getValue(), "chunk size " + chunk);
+        }
+    }
+
+    @Test
+    void inputStreamFingerprintsReadAndSkippedBytes() throws IOException {
+        byte[] bytes = new byte[200];
+        new Random(7).nextBytes(bytes);
+
+        ContentFingerprint.FingerprintInputStream input = new ContentFingerprint.FingerprintInputStream(new ByteArrayInputStream(bytes));
+        input.read();
+        input.read(new byte[50], 0, 50);
+        input.skip(100);
+        input.readAllBytes();
+        assertEquals(ContentFingerprint.of(bytes), input.getFingerprint());
+    }
+}
@@ -0,0 +1,107 @@
+package org.bytedream.untis4j;
+
+import com.sun.net.httpserver.HttpServer;
+import org.bytedream.untis4j.json.JsonCodecs;
+import org.bytedream.untis4j.json.JsonObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Minimal WebUntis JSON-RPC server on localhost, every test gets its own server (and with it its own caches)
+ */
+class FakeUntisServer implements AutoCloseable {
+
+    private static final AtomicInteger schools = new AtomicInteger();
+
+    private final HttpServer server;
+    // caches are kept per server and school for the whole jvm, ports may be reused
+    private final String school = "school" + schools.incrementAndGet();
+    private final Map<String, Function<JsonObject, Object>> results = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    FakeUntisServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/WebUntis/jsonrpc.do", exchange -> {
+            JsonObject request;
+            try (InputStream input = exchange.getRequestBody()) {
+                request = new JsonObject(JsonCodecs.getDefault().decode(input));
+            }
+            String method = request.getString("method");
+            requests.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("jsonrpc", "2.0");
+            response.put("id", request.get("id"));
+            Function<JsonObject, Object> result = results.get(method);
+            if (result != null) {
+                response.put("result", result.apply(request.has("params") ? request.getJsonObject("params") : null));
+            } else {
+                Map<String, Object> error = new HashMap<>();
+                error.put("code", -32601);
+                error.put("message", "Method not found: " + method);
+                response.put("error", error);
+            }
+
+            byte[] body = new JsonObject(response).toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+
+        on("authenticate", params -> {
+            Map<String, Object> login = new HashMap<>();
+            login.put("sessionId", "session");
+            login.put("personType", 5);
+            login.put("personId", 1);
+            login.put("klasseId", 1);
+            return login;
+        });
+        on("logout", params -> new HashMap<>());
+    }
+
+    /**
+     * Answers every request of {@code method} with the result of {@code result}, which gets the params of the request
+     */
+    FakeUntisServer on(String method, Function<JsonObject, Object> result) {
+        results.put(method, result);
+        return this;
+    }
+
+    /**
+     * Returns how often {@code method} was requested
+     */
+    int requests(String method) {
+        AtomicInteger count = requests.get(method);
+        return count != null ? count.get() : 0;
+    }
+
+    String getServer() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    Session login() throws IOException {
+        return login("user");
+    }
+
+    Session login(String user) throws IOException {
+        return Session.login(user, "password", getServer(), school);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
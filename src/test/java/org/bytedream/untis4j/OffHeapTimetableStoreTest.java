@@ -0,0 +1,139 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapTimetableStoreTest {
+
+    // 4 slabs of 4 KiB each
+    private static final long capacity = 4 * 4096;
+
+    private static Map<String, Object> lesson(int id, String text) {
+        Map<String, Object> lesson = new HashMap<>();
+        lesson.put("id", id);
+        lesson.put("date", 20231002);
+        lesson.put("startTime", 800);
+        lesson.put("endTime", 845);
+        lesson.put("lstext", text);
+        lesson.put("code", null);
+        lesson.put("kl", List.of(Map.of("id", 7), Map.of("id", 8)));
+        lesson.put("te", List.of(Map.of("id", 12, "orgid", 4)));
+        lesson.put("su", List.of());
+        return lesson;
+    }
+
+    private static Response timetable(int id, int lessons, String text) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int i = 0; i < lessons; i++) {
+            result.add(lesson(id * 1000 + i, text));
+        }
+        Map<String, Object> json = new HashMap<>();
+        json.put("id", "2.0");
+        json.put("result", result);
+        return new Response(200, new JsonObject(json));
+    }
+
+    @Test
+    void storedLessonsMatchTheOriginal() {
+        OffHeapTimetableStore store = new OffHeapTimetableStore(capacity);
+
+        Map<String, Object> lesson = lesson(1, "Unterricht");
+        lesson.put("substText", "");
+        lesson.put("negative", -42);
+        lesson.put("large", 5_000_000_000L);
+        lesson.put("double", 0.25);
+        lesson.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        lesson.put("flags", Arrays.asList(true, false, null));
+        lesson.put("umlauts", "Größe ß 😀");
+        Map<String, Object> json = new HashMap<>();
+        json.put("result", List.of(lesson, lesson(2, "Vertretung")));
+        Response response = new Response(200, new JsonObject(json));
+
+        Response stored = store.store(response);
+        assertTrue(OffHeapTimetableStore.isOffHeap(stored));
+        assertFalse(OffHeapTimetableStore.isEvicted(stored));
+        assertEquals(response.getCode(), stored.getCode());
+        assertEquals(response.getJson(), stored.getJson());
+        assertEquals(response.getFingerprint(), stored.getFingerprint());
+        assertEquals(2, stored.getJson().getJsonArray("result").length());
+        assertThrows(IndexOutOfBoundsException.class, () -> ((List<?>) stored.getJson().get("result")).get(2));
+    }
+
+    @Test
+    void emptyTimetable() {
+        Response stored = new OffHeapTimetableStore(capacity).store(timetable(1, 0, ""));
+        assertTrue(OffHeapTimetableStore.isOffHeap(stored));
+        assertEquals(0, stored.getJson().getJsonArray("result").length());
+    }
+
+    @Test
+    void responsesWhichCanNotBeStoredAreReturnedUnchanged() {
+        OffHeapTimetableStore store = new OffHeapTimetableStore(capacity);
+
+        Map<String, Object> json = new HashMap<>();
+        json.put("result", "no lessons");
+        Response noLessons = new Response(200, new JsonObject(json));
+        assertSame(noLessons, store.store(noLessons));
+        assertFalse(OffHeapTimetableStore.isOffHeap(noLessons));
+
+        Response tooLarge = timetable(1, 100, "Unterricht");
+        assertSame(tooLarge, store.store(tooLarge));
+        assertFalse(OffHeapTimetableStore.isOffHeap(tooLarge));
+        assertFalse(OffHeapTimetableStore.isEvicted(tooLarge));
+    }
+
+    @Test
+    void identicalResponsesAreStoredOnce() {
+        OffHeapTimetableStore store = new OffHeapTimetableStore(capacity);
+        Response first = store.store(timetable(1, 4, "Unterricht"));
+
+        // the stored copies would fill all slabs many times over if every copy took space
+        for (int i = 0; i < 100; i++) {
+            Response copy = store.store(timetable(1, 4, "Unterricht"));
+            assertEquals(first.getJson(), copy.getJson());
+        }
+        assertFalse(OffHeapTimetableStore.isEvicted(first));
+        assertEquals(timetable(1, 4, "Unterricht").getJson(), first.getJson());
+    }
+
+    @Test
+    void oldestResponsesAreEvicted() {
+        OffHeapTimetableStore store = new OffHeapTimetableStore(capacity);
+        assertEquals(capacity, store.getCapacity());
+
+        List<Response> stored = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            stored.add(store.store(timetable(i, 4, "Unterricht")));
+        }
+
+        Response oldest = stored.get(0);
+        assertTrue(OffHeapTimetableStore.isOffHeap(oldest));
+        assertTrue(OffHeapTimetableStore.isEvicted(oldest));
+        List<?> lessons = (List<?>) oldest.getJson().get("result");
+        assertEquals(4, lessons.size());
+        assertThrows(OffHeapTimetableStore.EvictedException.class, () -> lessons.get(0));
+
+        Response latest = stored.get(stored.size() - 1);
+        assertFalse(OffHeapTimetableStore.isEvicted(latest));
+        assertEquals(timetable(199, 4, "Unterricht").getJson(), latest.getJson());
+
+        // an evicted response is stored again instead of pointing to its cleared slab
+        Response restored = store.store(timetable(0, 4, "Unterricht"));
+        assertFalse(OffHeapTimetableStore.isEvicted(restored));
+        assertEquals(timetable(0, 4, "Unterricht").getJson(), restored.getJson());
+        assertTrue(OffHeapTimetableStore.isEvicted(oldest));
+    }
+}
@@ -0,0 +1,189 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentResponseStoreTest {
+
+    private static final long importTime = 1700000000000L;
+
+    @TempDir
+    Path directory;
+
+    private PersistentResponseStore store;
+
+    @AfterEach
+    void close() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private PersistentResponseStore open() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+        store = PersistentResponseStore.of(directory.resolve("responses.cache"), Duration.ofDays(1));
+        return store;
+    }
+
+    private static RequestKey request(String method, int id) {
+        return new RequestKey(method, ("{\"method\":\"" + method + "\",\"params\":{\"id\":" + id + "}}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Response response(String result) {
+        Map<String, Object> json = new HashMap<>();
+        json.put("result", result);
+        return new Response(200, new JsonObject(json));
+    }
+
+    private static void assertStored(Response expected, Response stored) {
+        assertNotNull(stored);
+        assertEquals(expected.getCode(), stored.getCode());
+        assertEquals(expected.getJson(), stored.getJson());
+        assertEquals(expected.getFingerprint(), stored.getFingerprint());
+    }
+
+    @Test
+    void returnsOnlyResponsesOfTheSameImportTime() throws IOException {
+        PersistentResponseStore store = open();
+        Response response = response("teachers");
+        store.put(request("getTeachers", 1), response, importTime);
+
+        assertStored(response, store.get(request("getTeachers", 1), importTime));
+        assertNull(store.get(request("getTeachers", 1), importTime + 1));
+        assertNull(store.get(request("getTeachers", 2), importTime));
+        assertNull(store.get(request("getRooms", 1), importTime));
+    }
+
+    @Test
+    void keepsResponsesAfterReopen() throws IOException {
+        Response teachers = response("teachers");
+        Response rooms = response("rooms");
+        open().put(request("getTeachers", 1), teachers, importTime);
+        store.put(request("getRooms", 1), rooms, importTime);
+        store.put(request("getRooms", 1), response("rooms v2"), importTime);
+
+        PersistentResponseStore reopened = open();
+        assertStored(teachers, reopened.get(request("getTeachers", 1), importTime));
+        assertStored(response("rooms v2"), reopened.get(request("getRooms", 1), importTime));
+    }
+
+    @Test
+    void cutsOffIncompleteAndCorruptRecords() throws IOException {
+        Path file = directory.resolve("responses.cache");
+        Response teachers = response("teachers");
+        open().put(request("getTeachers", 1), teachers, importTime);
+        long firstRecordEnd = Files.size(file);
+        store.put(request("getRooms", 1), response("rooms"), importTime);
+        store.close();
+
+        // the application crashed while the second record was written
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+        assertStored(teachers, open().get(request("getTeachers", 1), importTime));
+        assertNull(store.get(request("getRooms", 1), importTime));
+        assertEquals(firstRecordEnd, Files.size(file));
+
+        // a record whose checksum doesn't match is cut off as well
+        store.put(request("getRooms", 1), response("rooms"), importTime);
+        store.close();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 2] ^= 1;
+        Files.write(file, bytes);
+        assertStored(teachers, open().get(request("getTeachers", 1), importTime));
+        assertNull(store.get(request("getRooms", 1), importTime));
+        assertEquals(firstRecordEnd, Files.size(file));
+
+        // new records are appended after the last valid one
+        Response rooms = response("rooms again");
+        store.put(request("getRooms", 1), rooms, importTime);
+        assertStored(rooms, open().get(request("getRooms", 1), importTime));
+    }
+
+    @Test
+    void startsFromScratchWithUnknownFormat() throws IOException {
+        Path file = directory.resolve("responses.cache");
+        Files.write(file, "no store".getBytes(StandardCharsets.UTF_8));
+
+        PersistentResponseStore store = open();
+        assertNull(store.get(request("getTeachers", 1), importTime));
+        Response teachers = response("teachers");
+        store.put(request("getTeachers", 1), teachers, importTime);
+        assertStored(teachers, open().get(request("getTeachers", 1), importTime));
+    }
+
+    @Test
+    void compactsOutdatedRecords() throws IOException {
+        Path file = directory.resolve("responses.cache");
+        PersistentResponseStore store = open();
+        Response teachers = response("teachers");
+        store.put(request("getTeachers", 1), teachers, importTime);
+
+        // every version of the timetable replaces the previous one, so most of the file becomes outdated
+        String padding = "x".repeat(100_000);
+        long written = 0;
+        boolean compacted = false;
+        Response timetable = null;
+        for (int i = 0; i < 30; i++) {
+            long size = Files.size(file);
+            timetable = response(i + padding);
+            store.put(request("getTimetable", 1), timetable, importTime);
+            written += 100_000;
+            compacted |= Files.size(file) < size;
+        }
+        assertTrue(compacted, "the file should have been compacted");
+        assertTrue(Files.size(file) < written / 2);
+
+        assertStored(teachers, store.get(request("getTeachers", 1), importTime));
+        assertStored(timetable, store.get(request("getTimetable", 1), importTime));
+        PersistentResponseStore reopened = open();
+        assertStored(teachers, reopened.get(request("getTeachers", 1), importTime));
+        assertStored(timetable, reopened.get(request("getTimetable", 1), importTime));
+    }
+
+    @Test
+    void removedResponsesStayRemovedAfterReopen() throws IOException {
+        Response teachers = response("teachers");
+        open().put(request("getTeachers", 1), teachers, importTime);
+        store.put(request("getRooms", 1), response("rooms"), importTime);
+
+        store.removeIf(request -> request.getMethod().equals("getRooms"));
+        assertNull(store.get(request("getRooms", 1), importTime));
+
+        PersistentResponseStore reopened = open();
+        assertNull(reopened.get(request("getRooms", 1), importTime));
+        assertStored(teachers, reopened.get(request("getTeachers", 1), importTime));
+    }
+
+    @Test
+    void unchangedResponsesAreNotWrittenAgain() throws IOException {
+        Path file = directory.resolve("responses.cache");
+        PersistentResponseStore store = open();
+        store.put(request("getTeachers", 1), response("teachers"), importTime);
+        long size = Files.size(file);
+
+        store.put(request("getTeachers", 1), response("teachers"), importTime);
+        assertEquals(size, Files.size(file));
+        store.put(request("getTeachers", 1), response("teachers"), importTime + 1);
+        assertTrue(Files.size(file) > size);
+    }
+}
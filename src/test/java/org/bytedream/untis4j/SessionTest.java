@@ -0,0 +1,144 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.responseObjects.Rooms;
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionTest {
+
+    private static final LocalDate monday = LocalDate.of(2023, 10, 2);
+
+    private FakeUntisServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new FakeUntisServer();
+        server.on("getRooms", params -> List.of(room(2, "R102"), room(1, "R101"), room(3, "R103")));
+        server.on("getTimetable", params -> List.of(lesson(20231002, 950, 1035), lesson(20231002, 800, 845), lesson(20231003, 800, 845)));
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private static Map<String, Object> room(int id, String name) {
+        Map<String, Object> room = new HashMap<>();
+        room.put("id", id);
+        room.put("name", name);
+        room.put("longName", "Raum " + id);
+        room.put("active", true);
+        room.put("building", "A");
+        return room;
+    }
+
+    private static Map<String, Object> lesson(int date, int startTime, int endTime) {
+        Map<String, Object> lesson = new HashMap<>();
+        lesson.put("id", date * 10000 + startTime);
+        lesson.put("date", date);
+        lesson.put("startTime", startTime);
+        lesson.put("endTime", endTime);
+        lesson.put("lstext", "Unterricht");
+        return lesson;
+    }
+
+    private static TimetableQuery query() {
+        return TimetableQuery.of(monday, monday.plusDays(4), UntisUtils.ElementType.CLASS, 1)
+                .fields(TimetableQuery.Field.DATE, TimetableQuery.Field.START_TIME, TimetableQuery.Field.END_TIME, TimetableQuery.Field.LS_TEXT);
+    }
+
+    @Test
+    void modifyingAResultDoesNotAffectTheNextCall() throws IOException {
+        Session session = server.login();
+
+        Rooms rooms = session.getRooms();
+        List<String> names = new ArrayList<>(rooms.getNames());
+        rooms.sortByName();
+        rooms.removeIf(room -> room.getId() == 3);
+        Rooms.sortById(rooms);
+
+        Rooms next = session.getRooms();
+        assertNotSame(rooms, next);
+        assertEquals(names, next.getNames());
+        assertEquals(1, server.requests("getRooms"));
+    }
+
+    @Test
+    void modifyingATimetableDoesNotAffectTheNextCall() throws IOException {
+        Session session = server.login();
+
+        for (boolean lazy : new boolean[]{false, true}) {
+            session.setLazyTimetables(lazy);
+            Timetable timetable = session.getTimetable(query());
+            List<LocalTime> startTimes = new ArrayList<>(timetable.getStartTimes());
+            Timetable.sortByStartTime(timetable);
+            timetable.removeIf(lesson -> lesson.getDate().equals(monday));
+
+            Timetable next = session.getTimetable(query());
+            assertNotSame(timetable, next);
+            assertEquals(startTimes, next.getStartTimes(), "lazy " + lazy);
+            assertEquals(3, next.size());
+        }
+        assertEquals(1, server.requests("getTimetable"));
+    }
+
+    @Test
+    void copiesOfLazyTimetablesShareTheDecodedLessons() throws IOException {
+        Session session = server.login();
+        session.setLazyTimetables(true);
+
+        Timetable first = session.getTimetable(query());
+        Timetable second = session.getTimetable(query());
+        assertTrue(first.isLazy());
+        assertTrue(second.isLazy());
+        for (int i = 0; i < first.size(); i++) {
+            assertTrue(first.get(i) == second.get(i), "lesson " + i);
+        }
+    }
+
+    @Test
+    void layeredTimetableOnlyFromCache() throws IOException {
+        Map<String, Object> cancellation = new HashMap<>();
+        cancellation.put("type", "cancel");
+        cancellation.put("date", 20231002);
+        cancellation.put("startTime", 800);
+        cancellation.put("endTime", 845);
+        cancellation.put("kl", List.of(Map.of("id", 1)));
+        server.on("getSubstitutions", params -> List.of(cancellation));
+        server.on("getLatestImportTime", params -> 1700000000000L);
+
+        Session session = server.login();
+        Session onlyIfCached = session.withCacheControl(CacheControl.onlyIfCached());
+        TimetableQuery query = TimetableQuery.of(monday, monday.plusDays(4), UntisUtils.ElementType.CLASS, 1)
+                .fields(TimetableQuery.Field.DATE, TimetableQuery.Field.START_TIME, TimetableQuery.Field.CODE);
+        assertThrows(CacheMissException.class, () -> onlyIfCached.getLayeredTimetable(query));
+
+        Timetable layered = session.getLayeredTimetable(query);
+        assertEquals(List.of(UntisUtils.LessonCode.REGULAR, UntisUtils.LessonCode.CANCELLED, UntisUtils.LessonCode.REGULAR), layered.getLessonCodes());
+        // the import time is only checked once a minute
+        session.getLayeredTimetable(query);
+        session.getTimetable(query.onlyBaseTimetable());
+        assertEquals(1, server.requests("getLatestImportTime"));
+        int timetableRequests = server.requests("getTimetable");
+
+        assertEquals(layered.toString(), onlyIfCached.getLayeredTimetable(query).toString());
+        assertEquals(3, onlyIfCached.getTimetable(query.onlyBaseTimetable()).size());
+        assertEquals(1, server.requests("getLatestImportTime"));
+        assertEquals(timetableRequests, server.requests("getTimetable"));
+    }
+}
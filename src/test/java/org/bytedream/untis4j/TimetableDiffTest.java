@@ -0,0 +1,151 @@
+package org.bytedream.untis4j;
+
+import org.bytedream.untis4j.json.JsonArray;
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimetableDiffTest {
+
+    private static final Set<TimetableQuery.Field> allFields = EnumSet.complementOf(EnumSet.of(TimetableQuery.Field.TIME_UNIT));
+
+    private static Map<String, Object> lesson(int startTime, Integer lsNumber, String text) {
+        Map<String, Object> lesson = new HashMap<>();
+        lesson.put("date", 20231002);
+        lesson.put("startTime", startTime);
+        lesson.put("endTime", startTime + 45);
+        lesson.put("lstext", text);
+        if (lsNumber != null) {
+            lesson.put("lsnumber", lsNumber);
+        }
+        return lesson;
+    }
+
+    private static Timetable timetable(Set<TimetableQuery.Field> fields, List<Map<String, Object>> lessons) {
+        return new LessonDecoder(fields, null, null, null, null, null).decodeAll(new JsonArray(new ArrayList<>(lessons)));
+    }
+
+    private static Timetable timetable(List<Map<String, Object>> lessons) {
+        return timetable(allFields, lessons);
+    }
+
+    @Test
+    void sameTimetable() {
+        Timetable timetable = timetable(List.of(lesson(800, 1, "Mathe")));
+        assertTrue(TimetableDiff.of(timetable, timetable).isEmpty());
+        assertTrue(TimetableDiff.of(timetable, timetable(List.of(lesson(800, 1, "Mathe")))).isEmpty());
+    }
+
+    @Test
+    void addedRemovedAndChangedLessons() {
+        Map<String, Object> cancelled = lesson(1000, 3, "Physik");
+        cancelled.put("code", "cancelled");
+        Timetable oldTimetable = timetable(List.of(lesson(800, 1, "Mathe"), lesson(900, 2, "Deutsch"), lesson(1000, 3, "Physik")));
+        Timetable newTimetable = timetable(List.of(lesson(800, 1, "Mathe"), cancelled, lesson(1100, 4, "Sport")));
+
+        TimetableDiff diff = TimetableDiff.of(oldTimetable, newTimetable);
+        assertEquals(3, diff.getChanges().size());
+
+        TimetableDiff.Change changed = diff.getChanges().get(0);
+        assertEquals(TimetableDiff.Change.Type.CHANGED, changed.getType());
+        assertSame(oldTimetable.get(2), changed.getOldLesson());
+        assertSame(newTimetable.get(1), changed.getNewLesson());
+        assertEquals(EnumSet.of(TimetableQuery.Field.CODE), changed.getChangedFields());
+        assertTrue(changed.isCancellation());
+
+        TimetableDiff.Change added = diff.getChanges().get(1);
+        assertEquals(TimetableDiff.Change.Type.ADDED, added.getType());
+        assertSame(newTimetable.get(2), added.getNewLesson());
+
+        TimetableDiff.Change removed = diff.getChanges().get(2);
+        assertEquals(TimetableDiff.Change.Type.REMOVED, removed.getType());
+        assertSame(oldTimetable.get(1), removed.getOldLesson());
+        assertEquals(List.of(removed), diff.getChanges(TimetableDiff.Change.Type.REMOVED));
+    }
+
+    @Test
+    void lessonsWithTheSameIdentityArePairedByTheirContentFirst() {
+        // without lesson number all lessons at 8:00 share their identity
+        Timetable oldTimetable = timetable(List.of(lesson(800, null, "A"), lesson(800, null, "B"), lesson(800, null, "C"), lesson(800, null, "D")));
+        Timetable newTimetable = timetable(List.of(lesson(800, null, "D"), lesson(800, null, "X"), lesson(800, null, "B")));
+
+        TimetableDiff diff = TimetableDiff.of(oldTimetable, newTimetable);
+        assertEquals(2, diff.getChanges().size());
+
+        // A is the first old lesson which isn't unchanged in the new timetable
+        TimetableDiff.Change changed = diff.getChanges().get(0);
+        assertEquals(TimetableDiff.Change.Type.CHANGED, changed.getType());
+        assertSame(oldTimetable.get(0), changed.getOldLesson());
+        assertSame(newTimetable.get(1), changed.getNewLesson());
+        assertEquals(EnumSet.of(TimetableQuery.Field.LS_TEXT), changed.getChangedFields());
+
+        TimetableDiff.Change removed = diff.getChanges().get(1);
+        assertEquals(TimetableDiff.Change.Type.REMOVED, removed.getType());
+        assertSame(oldTimetable.get(2), removed.getOldLesson());
+    }
+
+    @Test
+    void lessonsWithTheSameIdentityAndContent() {
+        Timetable oldTimetable = timetable(List.of(lesson(800, null, "A"), lesson(800, null, "A")));
+
+        assertTrue(TimetableDiff.of(oldTimetable, timetable(List.of(lesson(800, null, "A"), lesson(800, null, "A")))).isEmpty());
+
+        Timetable moreLessons = timetable(List.of(lesson(800, null, "A"), lesson(800, null, "A"), lesson(800, null, "A")));
+        TimetableDiff added = TimetableDiff.of(oldTimetable, moreLessons);
+        assertEquals(1, added.getChanges().size());
+        assertEquals(TimetableDiff.Change.Type.ADDED, added.getChanges().get(0).getType());
+        assertSame(moreLessons.get(2), added.getChanges().get(0).getNewLesson());
+
+        TimetableDiff removed = TimetableDiff.of(oldTimetable, timetable(List.of(lesson(900, null, "A"))));
+        assertEquals(3, removed.getChanges().size());
+        assertEquals(TimetableDiff.Change.Type.ADDED, removed.getChanges().get(0).getType());
+        assertEquals(2, removed.getChanges(TimetableDiff.Change.Type.REMOVED).size());
+    }
+
+    @Test
+    void largeBucketsOfDuplicates() {
+        List<Map<String, Object>> oldLessons = new ArrayList<>();
+        List<Map<String, Object>> newLessons = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            oldLessons.add(lesson(800, null, "Lesson " + i));
+            newLessons.add(lesson(800, null, "Lesson " + (i + 10)));
+        }
+        TimetableDiff diff = TimetableDiff.of(timetable(oldLessons), timetable(newLessons));
+
+        // the last 10 new lessons are paired with the first 10 old lessons, which aren't in the new timetable anymore
+        assertEquals(10, diff.getChanges().size());
+        for (int i = 0; i < 10; i++) {
+            TimetableDiff.Change change = diff.getChanges().get(i);
+            assertEquals(TimetableDiff.Change.Type.CHANGED, change.getType());
+            assertEquals("Lesson " + i, change.getOldLesson().getLsText());
+            assertEquals("Lesson " + (20_000 + i), change.getNewLesson().getLsText());
+        }
+    }
+
+    @Test
+    void projectedAwayFieldsAreNotCompared() {
+        Set<TimetableQuery.Field> fields = EnumSet.of(TimetableQuery.Field.DATE, TimetableQuery.Field.START_TIME, TimetableQuery.Field.LS_NUMBER);
+        Map<String, Object> moved = lesson(800, 1, "Deutsch");
+        moved.put("endTime", 930);
+
+        assertTrue(TimetableDiff.of(timetable(fields, List.of(lesson(800, 1, "Mathe"))), timetable(fields, List.of(moved))).isEmpty());
+
+        Set<TimetableQuery.Field> withEndTime = EnumSet.of(TimetableQuery.Field.DATE, TimetableQuery.Field.START_TIME, TimetableQuery.Field.LS_NUMBER,
+                TimetableQuery.Field.END_TIME);
+        TimetableDiff diff = TimetableDiff.of(timetable(withEndTime, List.of(lesson(800, 1, "Mathe"))), timetable(withEndTime, List.of(moved)));
+        assertEquals(1, diff.getChanges().size());
+        assertEquals(EnumSet.of(TimetableQuery.Field.END_TIME), diff.getChanges().get(0).getChangedFields());
+        assertEquals(LocalTime.of(9, 30), diff.getChanges().get(0).getNewLesson().getEndTime());
+    }
+}
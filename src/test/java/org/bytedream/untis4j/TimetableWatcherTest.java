@@ -0,0 +1,49 @@
+package org.bytedream.untis4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimetableWatcherTest {
+
+    private static void awaitRequests(FakeUntisServer server, String method, int requests) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (server.requests(method) < requests && System.nanoTime() < end) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void watchesOfDifferentUsersDoNotSharePolls() throws IOException, InterruptedException {
+        try (FakeUntisServer server = new FakeUntisServer()) {
+            for (String masterData : List.of("getKlassen", "getTeachers", "getSubjects", "getRooms")) {
+                server.on(masterData, params -> List.of());
+            }
+            server.on("getTimegridUnits", params -> List.of(Map.of("day", 2, "timeUnits", List.of(Map.of("name", "1", "startTime", 800, "endTime", 845)))));
+            server.on("getTimetable", params -> List.of(Map.of("id", 1, "date", 20231002, "startTime", 800, "endTime", 845)));
+            LocalDate monday = LocalDate.of(2023, 10, 2);
+
+            Session first = server.login("first");
+            Session second = server.login("second");
+            TimetableWatch firstWatch = first.watch(UntisUtils.ElementType.CLASS, 1, monday, monday.plusDays(4), (element, diff) -> {});
+            TimetableWatch sameUser = first.watch(UntisUtils.ElementType.CLASS, 1, monday, monday.plusDays(4), (element, diff) -> {});
+            TimetableWatch secondWatch = second.watch(UntisUtils.ElementType.CLASS, 1, monday, monday.plusDays(4), (element, diff) -> {});
+            try {
+                // every user polls the week with its own session, watches of the same user share their poll
+                awaitRequests(server, "getTimetable", 2);
+                Thread.sleep(1500);
+                assertEquals(2, server.requests("getTimetable"));
+            } finally {
+                firstWatch.cancel();
+                sameUser.cancel();
+                secondWatch.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.bytedream.untis4j.binary;
+
+import org.bytedream.untis4j.UntisUtils;
+import org.bytedream.untis4j.responseObjects.Classes;
+import org.bytedream.untis4j.responseObjects.Holidays;
+import org.bytedream.untis4j.responseObjects.Rooms;
+import org.bytedream.untis4j.responseObjects.SchoolYears;
+import org.bytedream.untis4j.responseObjects.Subjects;
+import org.bytedream.untis4j.responseObjects.Teachers;
+import org.bytedream.untis4j.responseObjects.TimeUnits;
+import org.bytedream.untis4j.responseObjects.TimegridUnits;
+import org.bytedream.untis4j.responseObjects.Timetable;
+import org.bytedream.untis4j.responseObjects.baseObjects.BaseResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryCodecTest {
+
+    private static <T extends BaseResponse> T roundTrip(T response) throws IOException {
+        byte[] bytes = BinaryCodec.toByteArray(response);
+        @SuppressWarnings("unchecked")
+        T read = (T) BinaryCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), response.getClass());
+        return read;
+    }
+
+    private static Teachers teachers() {
+        Teachers teachers = new Teachers();
+        teachers.add(new Teachers.TeacherObject("MUE", true, 12, "Müller", "Dr.", "Anna"));
+        teachers.add(new Teachers.TeacherObject("SCH", false, 4, "Schmidt", null, "Bernd"));
+        return teachers;
+    }
+
+    private static Rooms rooms() {
+        Rooms rooms = new Rooms();
+        rooms.add(new Rooms.RoomObject("R101", true, 101, "Raum 101", "A"));
+        rooms.add(new Rooms.RoomObject("R102", true, 102, "Raum 102", null));
+        return rooms;
+    }
+
+    private static Classes classes() {
+        Classes classes = new Classes();
+        classes.add(new Classes.ClassObject("5a", true, 7, "Klasse 5a"));
+        return classes;
+    }
+
+    private static Subjects subjects() {
+        Subjects subjects = new Subjects();
+        subjects.add(new Subjects.SubjectObject("M", true, 3, "Mathematik", "Mathe", "FF0000", "000000"));
+        return subjects;
+    }
+
+    private static Timetable.Lesson lesson(LocalDate date, LocalTime start, LocalTime end, UntisUtils.LessonCode code, Integer lsNumber, Rooms originalRooms) {
+        return new Timetable.Lesson(date, start, end, new TimeUnits.TimeUnitObject("1", start, end), classes(), new Classes(), teachers(), new Teachers(), rooms(), originalRooms,
+                subjects(), new Subjects(), code, "Unterricht", "info", null, "ls text", lsNumber, null);
+    }
+
+    @Test
+    void timetableRoundTrip() throws IOException {
+        LocalDate monday = LocalDate.of(2023, 10, 2);
+        Timetable timetable = new Timetable();
+        timetable.add(lesson(monday, LocalTime.of(8, 0), LocalTime.of(8, 45), UntisUtils.LessonCode.REGULAR, 1, new Rooms()));
+        timetable.add(lesson(monday, LocalTime.of(8, 50), LocalTime.of(9, 35), UntisUtils.LessonCode.CANCELLED, null, rooms()));
+        timetable.add(lesson(monday.plusDays(3), LocalTime.of(13, 15), LocalTime.of(14, 0), UntisUtils.LessonCode.IRREGULAR, 42, new Rooms()));
+
+        Timetable read = roundTrip(timetable);
+        assertEquals(timetable.size(), read.size());
+        for (int i = 0; i < timetable.size(); i++) {
+            assertEquals(timetable.get(i).toString(), read.get(i).toString(), "lesson " + i);
+        }
+    }
+
+    @Test
+    void emptyTimetableRoundTrip() throws IOException {
+        assertEquals(0, roundTrip(new Timetable()).size());
+    }
+
+    @Test
+    void masterDataRoundTrip() throws IOException {
+        assertEquals(teachers().toString(), roundTrip(teachers()).toString());
+        assertEquals(rooms().toString(), roundTrip(rooms()).toString());
+        assertEquals(classes().toString(), roundTrip(classes()).toString());
+        assertEquals(subjects().toString(), roundTrip(subjects()).toString());
+
+        Holidays holidays = new Holidays();
+        holidays.add(new Holidays.HolidaysObject("Herbst", 1, "Herbstferien", LocalDate.of(2023, 10, 30), LocalDate.of(2023, 11, 3)));
+        assertEquals(holidays.toString(), roundTrip(holidays).toString());
+
+        SchoolYears schoolYears = new SchoolYears();
+        schoolYears.add(new SchoolYears.SchoolYearObject("2023/2024", 9, LocalDate.of(2023, 8, 1), LocalDate.of(2024, 7, 31)));
+        assertEquals(schoolYears.toString(), roundTrip(schoolYears).toString());
+
+        TimeUnits timeUnits = new TimeUnits();
+        timeUnits.add(new TimeUnits.TimeUnitObject("1", LocalTime.of(8, 0), LocalTime.of(8, 45)));
+        timeUnits.add(new TimeUnits.TimeUnitObject("2", LocalTime.of(8, 50), LocalTime.of(9, 35)));
+        TimegridUnits timegridUnits = new TimegridUnits();
+        timegridUnits.add(new TimegridUnits.TimegridUnitObject(2, timeUnits));
+        assertEquals(timegridUnits.toString(), roundTrip(timegridUnits).toString());
+    }
+
+    @Test
+    void readsFromByteBuffer() throws IOException {
+        byte[] first = BinaryCodec.toByteArray(teachers());
+        byte[] second = BinaryCodec.toByteArray(rooms());
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length).put(first).put(second).flip();
+
+        assertEquals(teachers().toString(), BinaryCodec.read(buffer).toString());
+        assertEquals(rooms().toString(), BinaryCodec.read(buffer).toString());
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        byte[] bytes = BinaryCodec.toByteArray(teachers());
+
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] ^= 1;
+        assertThrows(IOException.class, () -> BinaryCodec.read(ByteBuffer.wrap(wrongMagic)));
+
+        byte[] wrongVersion = bytes.clone();
+        wrongVersion[4] = (byte) (BinaryCodec.formatVersion + 1);
+        assertThrows(IOException.class, () -> BinaryCodec.read(ByteBuffer.wrap(wrongVersion)));
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IOException.class, () -> BinaryCodec.read(ByteBuffer.wrap(truncated)));
+
+        assertThrows(IOException.class, () -> BinaryCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), Rooms.class));
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.toByteArray(new TimeUnits()));
+    }
+
+    @Test
+    void readTypeMatchesWrittenType() throws IOException {
+        assertInstanceOf(Teachers.class, BinaryCodec.read(ByteBuffer.wrap(BinaryCodec.toByteArray(teachers()))));
+    }
+}
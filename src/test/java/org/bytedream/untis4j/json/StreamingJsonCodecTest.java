@@ -0,0 +1,159 @@
+package org.bytedream.untis4j.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingJsonCodecTest {
+
+    private static Map<String, Object> decode(String json) throws IOException {
+        return new StreamingJsonCodec().decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void encodedJsonKeepsNullValues() throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        map.put("missing", null);
+        map.put("list", Arrays.asList(1, null, "two"));
+        JsonObject json = new JsonObject(map);
+
+        assertEquals("{\"missing\":null}", new JsonObject(Collections.singletonMap("missing", null)).toString());
+        Map<String, Object> decoded = decode(json.toString());
+        assertTrue(decoded.containsKey("missing"));
+        assertEquals(map, decoded);
+        assertEquals("[1,null,\"two\"]", new JsonArray(Arrays.asList(1, null, "two")).toString());
+    }
+
+    @Test
+    void encodedJsonDecodesToTheSameValues() throws IOException {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("empty", Map.of());
+        nested.put("emptyList", List.of());
+        Map<String, Object> map = new HashMap<>();
+        map.put("text", "quote \" backslash \\ slash / newline \n tab \t control \u0001 umlauts äöü 😀");
+        map.put("int", -42);
+        map.put("long", 5_000_000_000L);
+        map.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        map.put("double", 0.25);
+        map.put("boolean", true);
+        map.put("nested", nested);
+        map.put("objects", List.of(new JsonObject(Map.of("id", 1)), new JsonArray(List.of(2))));
+
+        Map<String, Object> decoded = decode(new JsonObject(map).toString());
+        assertEquals(map.get("text"), decoded.get("text"));
+        assertEquals(-42, decoded.get("int"));
+        assertEquals(5_000_000_000L, decoded.get("long"));
+        assertEquals(map.get("bigInteger"), decoded.get("bigInteger"));
+        assertEquals(0.25, decoded.get("double"));
+        assertEquals(true, decoded.get("boolean"));
+        assertEquals(nested, decoded.get("nested"));
+        assertEquals(List.of(Map.of("id", 1), List.of(2)), decoded.get("objects"));
+    }
+
+    @Test
+    void nonFiniteNumbersAreEncodedAsNull() {
+        assertEquals("[null,null,1.5]", new JsonArray(Arrays.asList(Double.NaN, Float.POSITIVE_INFINITY, 1.5)).toString());
+    }
+
+    @Test
+    void longStrings() throws IOException {
+        // longer than the read buffer and the initial char buffer, with multi byte characters across the buffer borders
+        String text = "äb😀c".repeat(5000);
+        Map<String, Object> decoded = decode("{\"text\":\"" + text + "\",\"next\":1}");
+        assertEquals(text, decoded.get("text"));
+        assertEquals(1, decoded.get("next"));
+    }
+
+    @Test
+    void escapes() throws IOException {
+        Map<String, Object> decoded = decode("{\"text\":\"\\\" \\\\ \\/ \\b \\f \\n \\r \\t \\u00e4 \\u00E4 \\ud83d\\ude00\",\"\\u006b\\\"ey\":true}");
+        assertEquals("\" \\ / \b \f \n \r \t ä ä 😀", decoded.get("text"));
+        assertEquals(true, decoded.get("k\"ey"));
+    }
+
+    @Test
+    void numbers() throws IOException {
+        Map<String, Object> decoded = decode("{\"zero\":0,\"negative\":-42,\"intMax\":2147483647,\"intMin\":-2147483648,\"long\":2147483648,"
+                + "\"longMin\":-9223372036854775808,\"bigInteger\":123456789012345678901234567890,\"negativeBigInteger\":-123456789012345678901234567890,"
+                + "\"double\":0.25,\"negativeDouble\":-1.5,\"exponent\":1e3,\"negativeExponent\":2.5E-2,\"positiveExponent\":1E+2}");
+        assertEquals(0, decoded.get("zero"));
+        assertEquals(-42, decoded.get("negative"));
+        assertEquals(Integer.MAX_VALUE, decoded.get("intMax"));
+        assertEquals(Integer.MIN_VALUE, decoded.get("intMin"));
+        assertEquals(2147483648L, decoded.get("long"));
+        // numbers with more than 18 digits are decoded as BigInteger, even if they would fit in a long
+        assertEquals(new BigInteger("-9223372036854775808"), decoded.get("longMin"));
+        assertEquals(new BigInteger("123456789012345678901234567890"), decoded.get("bigInteger"));
+        assertEquals(new BigInteger("-123456789012345678901234567890"), decoded.get("negativeBigInteger"));
+        assertEquals(0.25, decoded.get("double"));
+        assertEquals(-1.5, decoded.get("negativeDouble"));
+        assertEquals(1000.0, decoded.get("exponent"));
+        assertEquals(0.025, decoded.get("negativeExponent"));
+        assertEquals(100.0, decoded.get("positiveExponent"));
+    }
+
+    @Test
+    void nestedEmptyContainersAndNulls() throws IOException {
+        Map<String, Object> decoded = decode(" {\n\t\"object\" : { \"empty\" : {} , \"list\" : [ [ ] , { } , null ] } ,\r\n \"null\" : null, \"flags\":[true,false] } ");
+        assertEquals(Map.of("empty", Map.of(), "list", Arrays.asList(List.of(), Map.of(), null)), decoded.get("object"));
+        assertTrue(decoded.containsKey("null"));
+        assertNull(decoded.get("null"));
+        assertEquals(List.of(true, false), decoded.get("flags"));
+        assertEquals(Map.of(), decode("{}"));
+    }
+
+    @Test
+    void malformedInput() {
+        String[] malformed = {
+                "",
+                "   ",
+                "[1]",
+                "\"text\"",
+                "{",
+                "{\"key\"",
+                "{\"key\":}",
+                "{\"key\" 1}",
+                "{key:1}",
+                "{\"key\":1,}",
+                "{\"key\":1 \"next\":2}",
+                "{\"list\":[1,]}",
+                "{\"list\":[1 2]}",
+                "{\"list\":[1}",
+                "{\"text\":\"unterminated}",
+                "{\"text\":\"\\x\"}",
+                "{\"text\":\"\\u12\"}",
+                "{\"text\":\"\\u12g4\"}",
+                "{\"literal\":tru}",
+                "{\"literal\":nul}",
+                "{\"literal\":False}",
+                "{\"number\":-}",
+                "{\"number\":1-2}",
+                "{\"number\":1.2.3}",
+                "{\"number\":1e}",
+                "{\"number\":.5}",
+                "{\"number\":+1}",
+                "{\"deep\":" + "[".repeat(100_000) + "]".repeat(100_000) + "}",
+        };
+        for (String json : malformed) {
+            assertThrows(JsonException.class, () -> decode(json), json.length() > 50 ? json.substring(0, 50) : json);
+        }
+
+        byte[] invalidUtf8 = {'{', '"', 'k', '"', ':', '"', (byte) 0xC3, '"', '}'};
+        assertThrows(JsonException.class, () -> new StreamingJsonCodec().decode(new ByteArrayInputStream(invalidUtf8)));
+        byte[] invalidStartByte = {'{', '"', (byte) 0xFF, '"', ':', '1', '}'};
+        assertThrows(JsonException.class, () -> new StreamingJsonCodec().decode(new ByteArrayInputStream(invalidStartByte)));
+    }
+}